@@ -0,0 +1,75 @@
+package com.gry.demo.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gry.demo.dto.ApiResponse;
+import com.gry.demo.dto.ProductSummary;
+import com.gry.demo.entity.Product;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ApiResponse 包装分页结果的 JSON 序列化，不含数据库访问：
+ * 已加载的 Product 实体与 ProductSummary 投影对比。含查询的完整读取路径见 ReadPathBenchmark。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ApiResponseSerializationBenchmark {
+    
+    @Param({"10", "100"})
+    private int pageSize;
+    
+    private ObjectMapper objectMapper;
+    
+    private Page<Product> entityPage;
+    
+    private Page<ProductSummary> summaryPage;
+    
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        String description = "商品详情".repeat(50);
+        LocalDateTime now = LocalDateTime.now();
+        List<Product> products = new ArrayList<>(pageSize);
+        List<ProductSummary> summaries = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Product product = new Product("bench-product-" + i, description, new BigDecimal("99.00"), 100);
+            product.setId((long) i + 1);
+            product.setCreatedAt(now);
+            product.setUpdatedAt(now);
+            product.setOrderItems(List.of());
+            products.add(product);
+            summaries.add(new ProductSummary(product.getId(), product.getName(), product.getPrice(),
+                    product.getStockQuantity()));
+        }
+        PageRequest pageable = PageRequest.of(3, pageSize);
+        entityPage = new PageImpl<>(products, pageable, 10_000);
+        summaryPage = new PageImpl<>(summaries, pageable, 10_000);
+        
+        System.out.printf("%npageSize=%d bytes: entity=%d summary=%d%n",
+                pageSize, entityPage().length, summaryPage().length);
+    }
+    
+    @Benchmark
+    public byte[] entityPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ApiResponse.success("获取产品列表成功", entityPage));
+    }
+    
+    @Benchmark
+    public byte[] summaryPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ApiResponse.success("获取产品列表成功", summaryPage));
+    }
+}
@@ -0,0 +1,41 @@
+package com.gry.demo.benchmark;
+
+import com.gry.demo.DemoApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 为基准测试启动不带 Web 服务器的应用上下文。
+ * 覆盖配置以命令行参数传入：SpringApplicationBuilder.properties 只是默认值，会被 application.yml 覆盖。
+ * 默认不启动 Kafka 监听器和 outbox 中继，关闭 SQL 输出。
+ */
+final class BenchmarkContext {
+    
+    private static final String[] DEFAULTS = {
+        "spring.kafka.listener.auto-startup=false",
+        "spring.kafka.admin.auto-create=false",
+        "gry.outbox.relay.enabled=false",
+        "spring.jpa.show-sql=false",
+        "logging.level.root=WARN"
+    };
+    
+    private BenchmarkContext() {
+    }
+    
+    static ConfigurableApplicationContext start(String... properties) {
+        List<String> args = new ArrayList<>(DEFAULTS.length + properties.length);
+        for (String property : DEFAULTS) {
+            args.add("--" + property);
+        }
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,101 @@
+package com.gry.demo.benchmark;
+
+import com.gry.demo.dto.BulkImportResult;
+import com.gry.demo.entity.Product;
+import com.gry.demo.repository.ProductRepository;
+import com.gry.demo.service.BulkImportService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NDJSON 批量导入产品的吞吐（行/秒），在 H2 内存库上对比分块并行 JDBC batch 与逐个实体 saveAll。
+ * 名称索引和分面索引关闭，只测解析、校验和插入；每次调用后删除本次插入的行。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+@OperationsPerInvocation(BulkImportBenchmark.ROWS)
+public class BulkImportBenchmark {
+    
+    static final int ROWS = 100_000;
+    
+    @Param({"1000", "5000"})
+    private int chunkSize;
+    
+    private ConfigurableApplicationContext context;
+    
+    private BulkImportService bulkImportService;
+    
+    private ProductRepository productRepository;
+    
+    private TransactionTemplate transactionTemplate;
+    
+    private JdbcTemplate jdbcTemplate;
+    
+    private byte[] ndjson;
+    
+    private long seededMaxId;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(
+                "gry.search.name-index.enabled=false",
+                "gry.search.facets.enabled=false",
+                "gry.bulk-import.chunk-size=" + chunkSize);
+        bulkImportService = context.getBean(BulkImportService.class);
+        productRepository = context.getBean(ProductRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        seededMaxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM products", Long.class);
+        
+        StringBuilder lines = new StringBuilder(ROWS * 96);
+        for (int i = 0; i < ROWS; i++) {
+            lines.append("{\"name\":\"bulk-product-").append(i)
+                    .append("\",\"description\":\"批量导入\",\"price\":").append(10 + i % 990)
+                    .append(".90,\"stockQuantity\":").append(i % 500).append("}\n");
+        }
+        ndjson = lines.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @TearDown(Level.Invocation)
+    public void deleteImported() {
+        jdbcTemplate.update("DELETE FROM products WHERE id > ?", seededMaxId);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public BulkImportResult bulkImport() throws IOException {
+        BulkImportResult result = bulkImportService.importProducts(new ByteArrayInputStream(ndjson));
+        if (result.inserted() != ROWS) {
+            throw new IllegalStateException("Imported " + result.inserted() + " of " + ROWS + " rows");
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public List<Product> jpaSaveAll() {
+        List<Product> products = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            products.add(new Product("bulk-product-" + i, "批量导入", new BigDecimal((10 + i % 990) + ".90"), i % 500));
+        }
+        return transactionTemplate.execute(status -> productRepository.saveAll(products));
+    }
+}
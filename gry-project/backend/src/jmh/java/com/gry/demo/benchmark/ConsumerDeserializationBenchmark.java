@@ -0,0 +1,102 @@
+package com.gry.demo.benchmark;
+
+import com.gry.demo.config.OrderEventDeserializer;
+import com.gry.demo.config.OrderEventSerializer;
+import com.gry.demo.dto.OrderEvent;
+import com.gry.demo.entity.OrderStatus;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KafkaConsumerService 各监听器在收到一次 poll 结果时的反序列化开销，每次调用解码一整批记录：
+ * order-events 按 KafkaConfig 的配置经 ErrorHandlingDeserializer 包装的二进制解码，
+ * 其余主题按 application.yml 的 JsonDeserializer 解码为 Map。
+ * 单条记录的编码对比见 OrderEventSerializationBenchmark。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConsumerDeserializationBenchmark {
+    
+    private static final String ORDER_TOPIC = "order-events";
+    
+    private static final String INVALIDATION_TOPIC = "product-cache-invalidation";
+    
+    @Param({"500"})
+    private int batchSize;
+    
+    private StringDeserializer keyDeserializer;
+    
+    private ErrorHandlingDeserializer<OrderEvent> orderEventDeserializer;
+    
+    private JsonDeserializer<Object> jsonDeserializer;
+    
+    private byte[][] keys;
+    
+    private byte[][] orderEvents;
+    
+    private byte[][] invalidationEvents;
+    
+    private RecordHeaders[] invalidationHeaders;
+    
+    @Setup
+    public void setUp() {
+        keyDeserializer = new StringDeserializer();
+        orderEventDeserializer = new ErrorHandlingDeserializer<>(new OrderEventDeserializer());
+        orderEventDeserializer.configure(Map.of(), false);
+        jsonDeserializer = new JsonDeserializer<>();
+        jsonDeserializer.configure(Map.of(JsonDeserializer.TRUSTED_PACKAGES, "com.gry.demo.dto"), false);
+        
+        OrderEventSerializer orderEventSerializer = new OrderEventSerializer();
+        JsonSerializer<Object> jsonSerializer = new JsonSerializer<>();
+        keys = new byte[batchSize][];
+        orderEvents = new byte[batchSize][];
+        invalidationEvents = new byte[batchSize][];
+        invalidationHeaders = new RecordHeaders[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            long orderId = 100_000L + i;
+            keys[i] = String.valueOf(orderId).getBytes(StandardCharsets.UTF_8);
+            orderEvents[i] = orderEventSerializer.serialize(ORDER_TOPIC, new OrderEvent(OrderEvent.Type.ORDER_CREATED,
+                    orderId, 4242L, null, OrderStatus.PENDING, Instant.now(), new BigDecimal("59.70"),
+                    List.of(new OrderEvent.Line(1000L + i % 50, 3))));
+            Map<String, Object> invalidation = new HashMap<>();
+            invalidation.put("productId", 1000L + i);
+            invalidationHeaders[i] = new RecordHeaders();
+            invalidationEvents[i] = jsonSerializer.serialize(INVALIDATION_TOPIC, invalidationHeaders[i], invalidation);
+        }
+    }
+    
+    @Benchmark
+    public void orderEventBatch(Blackhole blackhole) {
+        for (int i = 0; i < batchSize; i++) {
+            blackhole.consume(keyDeserializer.deserialize(ORDER_TOPIC, keys[i]));
+            blackhole.consume(orderEventDeserializer.deserialize(ORDER_TOPIC, new RecordHeaders(), orderEvents[i]));
+        }
+    }
+    
+    @Benchmark
+    public void jsonEventBatch(Blackhole blackhole) {
+        for (int i = 0; i < batchSize; i++) {
+            blackhole.consume(keyDeserializer.deserialize(INVALIDATION_TOPIC, keys[i]));
+            // JsonDeserializer 读取后会移除类型头，每次传入副本，与消费者为每条记录新建头部一致
+            blackhole.consume(jsonDeserializer.deserialize(INVALIDATION_TOPIC,
+                    new RecordHeaders(invalidationHeaders[i].toArray()), invalidationEvents[i]));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.gry.demo.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 对比两次 JMH 运行的 JSON 结果（-rf json），按基准方法加参数逐项打印变化。
+ * 吞吐模式分数越高越好，其余模式越低越好；变差超过阈值百分比且超出两次误差之和的项记为回归，
+ * 有回归时以非零状态退出，便于在不同提交之间比较。
+ * 用法：JmhResultComparison baseline.json current.json [阈值百分比，默认 10]
+ */
+public final class JmhResultComparison {
+    
+    private JmhResultComparison() {
+    }
+    
+    record Score(String mode, String unit, double score, double error) {
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: JmhResultComparison <baseline.json> <current.json> [threshold-percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+        
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null || !before.mode().equals(now.mode()) || !before.unit().equals(now.unit())) {
+                System.out.printf("%-70s %14s %14.3f %9s%n", entry.getKey(), "-", now.score(), "new");
+                continue;
+            }
+            double change = (now.score() - before.score()) / before.score() * 100;
+            double worse = "thrpt".equals(now.mode()) ? -change : change;
+            boolean regression = worse > threshold
+                    && Math.abs(now.score() - before.score()) > nonNegative(now.error()) + nonNegative(before.error());
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), before.score(), now.score(),
+                    change, regression ? "  REGRESSION" : "");
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.printf("%-70s %14.3f %14s %9s%n", name, baseline.get(name).score(), "-", "missing");
+            }
+        }
+        System.out.printf("%n%d regression(s) beyond %.1f%%%n", regressions, threshold);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+    
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder name = new StringBuilder(run.get("benchmark").asText()
+                    .replace("com.gry.demo.benchmark.", ""));
+            JsonNode params = run.get("params");
+            if (params != null) {
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> param = fields.next();
+                    name.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+                }
+            }
+            JsonNode metric = run.get("primaryMetric");
+            scores.put(name.toString(), new Score(run.get("mode").asText(), metric.get("scoreUnit").asText(),
+                    metric.get("score").asDouble(), metric.get("scoreError").asDouble()));
+        }
+        return scores;
+    }
+    
+    private static double nonNegative(double error) {
+        // 只有一次迭代时 JMH 输出的误差为 NaN
+        return Double.isNaN(error) ? 0 : error;
+    }
+}
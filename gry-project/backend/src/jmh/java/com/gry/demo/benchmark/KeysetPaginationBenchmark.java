@@ -0,0 +1,113 @@
+package com.gry.demo.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 深页场景下 OFFSET + count(*)（Page）与 keyset（CursorSlice）的对比。
+ * 在 H2 内存库的 orders 表上执行与 OrderRepository 生成的 SQL 同形的语句，
+ * keyset 的游标在 setup 时定位到与 offset 相同的页深。
+ * 关闭 H2 的结果复用，否则重复执行的相同查询会直接命中缓存。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeysetPaginationBenchmark {
+    
+    private static final int ROWS = 1_000_000;
+    
+    private static final int PAGE_SIZE = 10;
+    
+    @Param({"0", "10000", "100000", "900000"})
+    private int offset;
+    
+    private Connection connection;
+    
+    private PreparedStatement offsetQuery;
+    
+    private PreparedStatement countQuery;
+    
+    private PreparedStatement keysetQuery;
+    
+    private Timestamp cursorCreatedAt;
+    
+    private long cursorId;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:keyset-" + offset + ";DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, " +
+                    "total_amount DECIMAL(10, 2) NOT NULL, status VARCHAR(20) NOT NULL, created_at TIMESTAMP)");
+            // 每秒 10 单，保证 created_at 有重复值，游标必须依赖 id 打破并列
+            statement.execute("INSERT INTO orders SELECT X, MOD(X, 1000), 100.00, 'PENDING', " +
+                    "DATEADD('SECOND', X / 10, TIMESTAMP '2024-01-01 00:00:00') FROM SYSTEM_RANGE(1, " + ROWS + ")");
+            statement.execute("CREATE INDEX idx_orders_created_at_id ON orders (created_at DESC, id DESC)");
+        }
+        
+        offsetQuery = connection.prepareStatement("SELECT id, user_id, total_amount, status, created_at FROM orders " +
+                "ORDER BY created_at DESC, id DESC OFFSET ? ROWS FETCH FIRST " + PAGE_SIZE + " ROWS ONLY");
+        countQuery = connection.prepareStatement("SELECT COUNT(*) FROM orders");
+        keysetQuery = connection.prepareStatement("SELECT id, user_id, total_amount, status, created_at FROM orders " +
+                "WHERE created_at <= ? AND (created_at < ? OR id < ?) " +
+                "ORDER BY created_at DESC, id DESC FETCH FIRST " + (PAGE_SIZE + 1) + " ROWS ONLY");
+        
+        if (offset == 0) {
+            cursorCreatedAt = new Timestamp(Long.MAX_VALUE / 2);
+            cursorId = Long.MAX_VALUE;
+            return;
+        }
+        try (PreparedStatement cursorQuery = connection.prepareStatement("SELECT created_at, id FROM orders " +
+                "ORDER BY created_at DESC, id DESC OFFSET ? ROWS FETCH FIRST 1 ROWS ONLY")) {
+            cursorQuery.setInt(1, offset - 1);
+            try (ResultSet resultSet = cursorQuery.executeQuery()) {
+                resultSet.next();
+                cursorCreatedAt = resultSet.getTimestamp(1);
+                cursorId = resultSet.getLong(2);
+            }
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+    
+    @Benchmark
+    public void offsetPage(Blackhole blackhole) throws SQLException {
+        offsetQuery.setInt(1, offset);
+        consume(offsetQuery, blackhole);
+        consume(countQuery, blackhole);
+    }
+    
+    @Benchmark
+    public void keysetSlice(Blackhole blackhole) throws SQLException {
+        keysetQuery.setTimestamp(1, cursorCreatedAt);
+        keysetQuery.setTimestamp(2, cursorCreatedAt);
+        keysetQuery.setLong(3, cursorId);
+        consume(keysetQuery, blackhole);
+    }
+    
+    private static void consume(PreparedStatement statement, Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getLong(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.gry.demo.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gry.demo.config.KafkaConfig;
+import com.gry.demo.config.OrderEventSerializer;
+import com.gry.demo.dto.OrderEvent;
+import com.gry.demo.entity.Order;
+import com.gry.demo.entity.OrderItem;
+import com.gry.demo.entity.OrderStatus;
+import com.gry.demo.entity.Product;
+import com.gry.demo.entity.User;
+import com.gry.demo.service.NotificationService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NotificationService.createOrderEvent 从订单实体构造事件并编码的开销，
+ * 对比写入 outbox 的二进制编码与 Jackson JSON。setup 时打印两种编码的字节数。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NotificationEventBenchmark {
+    
+    @Param({"1", "10", "50"})
+    private int items;
+    
+    private NotificationService notificationService;
+    
+    private OrderEventSerializer serializer;
+    
+    private ObjectMapper objectMapper;
+    
+    private Order order;
+    
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        notificationService = new NotificationService();
+        serializer = new OrderEventSerializer();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        
+        User user = new User("bench-buyer", "bench-buyer@example.com", "password");
+        user.setId(4242L);
+        order = new Order(user, new BigDecimal("19.90").multiply(BigDecimal.valueOf(items)));
+        order.setId(123456L);
+        List<OrderItem> orderItems = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            Product product = new Product("bench-item-" + i, null, new BigDecimal("19.90"), 100);
+            product.setId(1000L + i);
+            orderItems.add(new OrderItem(order, product, 1 + i % 3, product.getPrice()));
+        }
+        order.setOrderItems(orderItems);
+        
+        System.out.printf("%nitems=%d bytes: binary=%d json=%d%n", items, binaryEvent().length, jsonEvent().length);
+    }
+    
+    @Benchmark
+    public OrderEvent createEvent() {
+        return notificationService.createOrderEvent(order, OrderEvent.Type.ORDER_CREATED, null, OrderStatus.PENDING);
+    }
+    
+    @Benchmark
+    public byte[] binaryEvent() {
+        return serializer.serialize(KafkaConfig.ORDER_EVENTS_TOPIC, createEvent());
+    }
+    
+    @Benchmark
+    public byte[] jsonEvent() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(createEvent());
+    }
+}
@@ -0,0 +1,83 @@
+package com.gry.demo.benchmark;
+
+import com.gry.demo.dto.OrderDto;
+import com.gry.demo.dto.OrderItemDto;
+import com.gry.demo.entity.Order;
+import com.gry.demo.entity.Product;
+import com.gry.demo.entity.User;
+import com.gry.demo.repository.ProductRepository;
+import com.gry.demo.repository.UserRepository;
+import com.gry.demo.service.OrderService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderService.createOrder 在 H2 上的耗时，按订单明细数和库存预留方式（内存台账或条件 UPDATE）对比。
+ * 库存设得足够大，测量期间不会出现库存不足；setup 时打印单次下单的 SQL 语句数。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderCreationBenchmark {
+    
+    @Param({"1", "10", "50"})
+    private int items;
+    
+    @Param({"true", "false"})
+    private boolean ledger;
+    
+    private ConfigurableApplicationContext context;
+    
+    private OrderService orderService;
+    
+    private OrderDto orderDto;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(
+                "gry.stock.ledger.enabled=" + ledger,
+                "spring.jpa.properties.hibernate.generate_statistics=true");
+        orderService = context.getBean(OrderService.class);
+        User user = context.getBean(UserRepository.class)
+                .save(new User("bench-buyer", "bench-buyer@example.com", "password"));
+        
+        List<Product> products = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            products.add(new Product("bench-item-" + i, null, new BigDecimal("19.90"), Integer.MAX_VALUE / 2));
+        }
+        products = context.getBean(ProductRepository.class).saveAll(products);
+        
+        List<OrderItemDto> orderItems = new ArrayList<>(items);
+        for (Product product : products) {
+            orderItems.add(new OrderItemDto(product.getId(), 1, product.getPrice()));
+        }
+        orderDto = new OrderDto(user.getId(), new BigDecimal("19.90").multiply(BigDecimal.valueOf(items)));
+        orderDto.setOrderItems(orderItems);
+        
+        Statistics statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        createOrder();
+        System.out.printf("%nitems=%d ledger=%s statements=%d%n", items, ledger, statistics.getPrepareStatementCount());
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public Order createOrder() {
+        return orderService.createOrder(orderDto);
+    }
+}
@@ -0,0 +1,123 @@
+package com.gry.demo.benchmark;
+
+import com.gry.demo.config.OrderEventDeserializer;
+import com.gry.demo.config.OrderEventSerializer;
+import com.gry.demo.dto.OrderEvent;
+import com.gry.demo.entity.OrderStatus;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 旧的 HashMap + JsonSerializer 路径与 OrderEvent 二进制编码的对比。
+ * 每事件分配量用 -prof gc 查看（gc.alloc.rate.norm）；编码后字节数在 setup 时打印。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderEventSerializationBenchmark {
+    
+    private static final String TOPIC = "order-events";
+    
+    private Map<String, Object> mapEvent;
+    
+    private OrderEvent orderEvent;
+    
+    private JsonSerializer<Object> jsonSerializer;
+    
+    private JsonDeserializer<Object> jsonDeserializer;
+    
+    private OrderEventSerializer binarySerializer;
+    
+    private OrderEventDeserializer binaryDeserializer;
+    
+    private RecordHeaders jsonHeaders;
+    
+    private byte[] jsonBytes;
+    
+    private byte[] binaryBytes;
+    
+    @Setup
+    public void setUp() {
+        mapEvent = new HashMap<>();
+        mapEvent.put("orderId", 123456L);
+        mapEvent.put("userId", 4242L);
+        mapEvent.put("eventType", "ORDER_STATUS_CHANGED");
+        mapEvent.put("oldStatus", "PROCESSING");
+        mapEvent.put("newStatus", "SHIPPED");
+        mapEvent.put("timestamp", LocalDateTime.now().toString());
+        mapEvent.put("totalAmount", new BigDecimal("6198.00"));
+        
+        orderEvent = new OrderEvent(OrderEvent.Type.ORDER_STATUS_CHANGED, 123456L, 4242L,
+                OrderStatus.PROCESSING, OrderStatus.SHIPPED, Instant.now(), new BigDecimal("6198.00"));
+        
+        jsonSerializer = new JsonSerializer<>();
+        jsonDeserializer = new JsonDeserializer<>();
+        jsonDeserializer.addTrustedPackages("*");
+        binarySerializer = new OrderEventSerializer();
+        binaryDeserializer = new OrderEventDeserializer();
+        
+        jsonHeaders = new RecordHeaders();
+        jsonBytes = jsonSerializer.serialize(TOPIC, jsonHeaders, mapEvent);
+        binaryBytes = binarySerializer.serialize(TOPIC, orderEvent);
+        
+        System.out.printf("%nbytes on wire: json=%d (+%d header bytes), binary=%d%n",
+                jsonBytes.length, headerBytes(jsonHeaders), binaryBytes.length);
+    }
+    
+    @Benchmark
+    public byte[] jsonSerialize() {
+        return jsonSerializer.serialize(TOPIC, new RecordHeaders(), mapEvent);
+    }
+    
+    @Benchmark
+    public Object jsonDeserialize() {
+        return jsonDeserializer.deserialize(TOPIC, jsonHeaders, jsonBytes);
+    }
+    
+    @Benchmark
+    public byte[] binarySerialize() {
+        return binarySerializer.serialize(TOPIC, orderEvent);
+    }
+    
+    @Benchmark
+    public OrderEvent binaryDeserialize() {
+        return binaryDeserializer.deserialize(TOPIC, binaryBytes);
+    }
+    
+    @Benchmark
+    public void jsonRoundTripWithFieldAccess(Blackhole blackhole) {
+        RecordHeaders headers = new RecordHeaders();
+        byte[] bytes = jsonSerializer.serialize(TOPIC, headers, mapEvent);
+        Map<?, ?> decoded = (Map<?, ?>) jsonDeserializer.deserialize(TOPIC, headers, bytes);
+        blackhole.consume((String) decoded.get("eventType"));
+        blackhole.consume(Long.valueOf(decoded.get("orderId").toString()));
+    }
+    
+    @Benchmark
+    public void binaryRoundTripWithFieldAccess(Blackhole blackhole) {
+        OrderEvent decoded = binaryDeserializer.deserialize(TOPIC, binarySerializer.serialize(TOPIC, orderEvent));
+        blackhole.consume(decoded.eventType());
+        blackhole.consume(decoded.orderId());
+    }
+    
+    private static int headerBytes(RecordHeaders headers) {
+        int size = 0;
+        for (var header : headers) {
+            size += header.key().length() + header.value().length;
+        }
+        return size;
+    }
+}
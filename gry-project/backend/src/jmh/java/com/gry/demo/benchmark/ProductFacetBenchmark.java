@@ -0,0 +1,151 @@
+package com.gry.demo.benchmark;
+
+import com.gry.demo.dto.ProductSummary;
+import com.gry.demo.repository.ProductRepository;
+import com.gry.demo.service.ProductFacetIndex;
+import com.gry.demo.service.StockLedger;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 100 万个产品上的价格/库存过滤加分页：ProductFacetIndex 位图求交后截取一页 id，
+ * 对比 ProductRepository.findProductsWithFilters 的组合条件查询及其 count 查询（H2 内存库）。
+ * 两边取到的都是一页 id 和总数；位图一侧不含按 id 取当前页行的那次查询。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ProductFacetBenchmark {
+    
+    private static final int PRODUCTS = 1_000_000;
+    
+    private static final int PAGE_SIZE = 10;
+    
+    private static final String FILTER_SQL = "(? IS NULL OR price >= ?) AND (? IS NULL OR price <= ?) AND " +
+            "(? IS NULL OR (? = TRUE AND stock_quantity > 0) OR (? = FALSE))";
+    
+    /** 价格下限,价格上限,是否只要有库存；空串表示不限。 */
+    @Param({",,true", "50,150,true", "99.5,100.5,false"})
+    private String filter;
+    
+    @Param({"0", "5000"})
+    private int page;
+    
+    private BigDecimal minPrice;
+    
+    private BigDecimal maxPrice;
+    
+    private Boolean inStock;
+    
+    private ProductFacetIndex index;
+    
+    private Connection connection;
+    
+    private PreparedStatement pageQuery;
+    
+    private PreparedStatement countQuery;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String[] parts = filter.split(",", -1);
+        minPrice = parts[0].isEmpty() ? null : new BigDecimal(parts[0]);
+        maxPrice = parts[1].isEmpty() ? null : new BigDecimal(parts[1]);
+        inStock = Boolean.valueOf(parts[2]);
+        
+        connection = DriverManager.getConnection("jdbc:h2:mem:facets;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE");
+        try (Statement statement = connection.createStatement()) {
+            // 价格 1.00 ~ 1000.99 均匀分布，约 20% 缺货
+            statement.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, name VARCHAR(255) NOT NULL, " +
+                    "price DECIMAL(10, 2) NOT NULL, stock_quantity INT)");
+            statement.execute("INSERT INTO products SELECT X, CONCAT('product-', X), " +
+                    "1 + MOD(X * 7919, 100000) / 100.0, CASE WHEN MOD(X, 5) = 0 THEN 0 ELSE MOD(X, 50) END " +
+                    "FROM SYSTEM_RANGE(1, " + PRODUCTS + ")");
+            statement.execute("CREATE INDEX idx_products_price ON products (price)");
+        }
+        pageQuery = connection.prepareStatement("SELECT id FROM products WHERE " + FILTER_SQL +
+                " OFFSET ? ROWS FETCH FIRST " + PAGE_SIZE + " ROWS ONLY");
+        countQuery = connection.prepareStatement("SELECT COUNT(*) FROM products WHERE " + FILTER_SQL);
+        
+        List<ProductSummary> rows = new ArrayList<>(PRODUCTS);
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT id, name, price, stock_quantity FROM products ORDER BY id")) {
+            while (resultSet.next()) {
+                rows.add(new ProductSummary(resultSet.getLong(1), resultSet.getString(2),
+                        resultSet.getBigDecimal(3), resultSet.getInt(4)));
+            }
+        }
+        ProductRepository repository = mock(ProductRepository.class);
+        when(repository.findSummariesAfter(anyLong(), any(Pageable.class))).thenReturn(rows, List.of());
+        index = new ProductFacetIndex();
+        ReflectionTestUtils.setField(index, "productRepository", repository);
+        ReflectionTestUtils.setField(index, "stockLedger", mock(StockLedger.class));
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "loadBatchSize", 10_000);
+        ReflectionTestUtils.setField(index, "priceBuckets", new BigDecimal[] {BigDecimal.ZERO, new BigDecimal("10"),
+                new BigDecimal("50"), new BigDecimal("100"), new BigDecimal("200"), new BigDecimal("500"),
+                new BigDecimal("1000"), new BigDecimal("5000")});
+        index.init();
+        index.rebuild();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+    
+    @Benchmark
+    public void bitmap(Blackhole blackhole) {
+        RoaringBitmap ids = index.filter(minPrice, maxPrice, inStock);
+        blackhole.consume(ids.getLongCardinality());
+        blackhole.consume(ProductFacetIndex.slice(ids, (long) page * PAGE_SIZE, PAGE_SIZE));
+    }
+    
+    @Benchmark
+    public void catchAllQuery(Blackhole blackhole) throws SQLException {
+        bind(pageQuery);
+        pageQuery.setInt(8, page * PAGE_SIZE);
+        try (ResultSet resultSet = pageQuery.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getLong(1));
+            }
+        }
+        bind(countQuery);
+        try (ResultSet resultSet = countQuery.executeQuery()) {
+            resultSet.next();
+            blackhole.consume(resultSet.getLong(1));
+        }
+    }
+    
+    private void bind(PreparedStatement statement) throws SQLException {
+        statement.setBigDecimal(1, minPrice);
+        statement.setBigDecimal(2, minPrice);
+        statement.setBigDecimal(3, maxPrice);
+        statement.setBigDecimal(4, maxPrice);
+        statement.setObject(5, inStock);
+        statement.setObject(6, inStock);
+        statement.setObject(7, inStock);
+    }
+}
@@ -0,0 +1,61 @@
+package com.gry.demo.benchmark;
+
+import com.gry.demo.service.ProductNameIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 100 万个产品名称上的 ProductNameIndex 查询延迟，SampleTime 模式输出 p99。
+ * 名称由品牌、形容词、品类和型号随机组合；查询覆盖精确型号、多词短语和高频品类词。
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ProductNameIndexBenchmark {
+    
+    private static final int PRODUCTS = 1_000_000;
+    
+    private static final String[] BRANDS = {"Acme", "Globex", "Initech", "Umbrella", "Hooli", "Stark", "Wayne", "Wonka"};
+    
+    private static final String[] ADJECTIVES = {"Wireless", "Mechanical", "Portable", "Ergonomic", "Compact", "Smart",
+            "无线", "便携"};
+    
+    private static final String[] CATEGORIES = {"Keyboard", "Mouse", "Monitor", "Headset", "Speaker", "Webcam",
+            "Charger", "Router", "键盘", "鼠标", "耳机", "音箱"};
+    
+    @Param({"K-48213", "wireless keyboard", "headset"})
+    private String query;
+    
+    private ProductNameIndex index;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        int[] ids = new int[PRODUCTS];
+        String[] names = new String[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            ids[i] = i + 1;
+            names[i] = BRANDS[random.nextInt(BRANDS.length)] + " "
+                    + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+                    + CATEGORIES[random.nextInt(CATEGORIES.length)] + " K-" + random.nextInt(100_000);
+        }
+        index = new ProductNameIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "gramSize", 3);
+        long start = System.nanoTime();
+        index.rebuild(ids, names);
+        System.out.printf("%nrebuild of %d names took %d ms, '%s' matches %d%n",
+                PRODUCTS, (System.nanoTime() - start) / 1_000_000, query, index.search(query).length);
+    }
+    
+    @Benchmark
+    public int[] search() {
+        return index.search(query);
+    }
+}
@@ -0,0 +1,130 @@
+package com.gry.demo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gry.demo.dto.ApiResponse;
+import com.gry.demo.entity.Product;
+import com.gry.demo.entity.User;
+import com.gry.demo.repository.ProductRepository;
+import com.gry.demo.repository.UserRepository;
+import com.gry.demo.service.ProductService;
+import com.gry.demo.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 列表接口读取路径对比：直接序列化 JPA 实体（Jackson 在打开的 Session 中遍历懒加载集合）
+ * 与 JPQL 投影到 record。setup 时打印每次请求的响应字节数和 SQL 语句数。
+ * 订单实体因 user 代理和双向关联无法直接序列化，这里只对比产品和用户列表。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadPathBenchmark {
+    
+    private static final int ROWS = 500;
+    
+    private static final Pageable PAGE = PageRequest.of(2, 50);
+    
+    private ConfigurableApplicationContext context;
+    
+    private ObjectMapper objectMapper;
+    
+    private TransactionTemplate transactionTemplate;
+    
+    private ProductRepository productRepository;
+    
+    private UserRepository userRepository;
+    
+    private ProductService productService;
+    
+    private UserService userService;
+    
+    private Statistics statistics;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkContext.start(
+                "spring.jpa.properties.hibernate.generate_statistics=true");
+        objectMapper = context.getBean(ObjectMapper.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        productRepository = context.getBean(ProductRepository.class);
+        userRepository = context.getBean(UserRepository.class);
+        productService = context.getBean(ProductService.class);
+        userService = context.getBean(UserService.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        
+        String description = "商品详情".repeat(200);
+        List<Product> products = new ArrayList<>(ROWS);
+        List<User> users = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            products.add(new Product("bench-product-" + i, description, new BigDecimal("99.00"), 100));
+            users.add(new User("bench-user-" + i, "bench-user-" + i + "@example.com", "password-" + i));
+        }
+        productRepository.saveAll(products);
+        userRepository.saveAll(users);
+        
+        report("products entity", this::productsEntity);
+        report("products projection", this::productsProjection);
+        report("users entity", this::usersEntity);
+        report("users projection", this::usersProjection);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public byte[] productsEntity() {
+        // 模拟 open-in-view：序列化发生在 Session 仍打开时
+        return transactionTemplate.execute(status ->
+                serialize(ApiResponse.success("获取产品列表成功", productRepository.findAll(PAGE))));
+    }
+    
+    @Benchmark
+    public byte[] productsProjection() {
+        return serialize(ApiResponse.success("获取产品列表成功", productService.getAllProducts(PAGE)));
+    }
+    
+    @Benchmark
+    public byte[] usersEntity() {
+        return transactionTemplate.execute(status ->
+                serialize(ApiResponse.success("获取用户列表成功", userRepository.findAll(PAGE))));
+    }
+    
+    @Benchmark
+    public byte[] usersProjection() {
+        return serialize(ApiResponse.success("获取用户列表成功", userService.getAllUsers(PAGE)));
+    }
+    
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private void report(String name, Callable<byte[]> request) throws Exception {
+        statistics.clear();
+        int bytes = request.call().length;
+        System.out.printf("%n%-20s bytes=%d statements=%d entities=%d%n",
+                name, bytes, statistics.getPrepareStatementCount(), statistics.getEntityLoadCount());
+    }
+}
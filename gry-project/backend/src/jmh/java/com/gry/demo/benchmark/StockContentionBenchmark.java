@@ -0,0 +1,61 @@
+package com.gry.demo.benchmark;
+
+import com.gry.demo.entity.Product;
+import com.gry.demo.repository.ProductRepository;
+import com.gry.demo.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程并发调用 ProductService.updateStock 的吞吐。
+ * hotProducts 为被争用的产品数，1 时所有线程更新同一行，行锁串行化全部事务。
+ * 线程数用 -t 调整，默认 8。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class StockContentionBenchmark {
+    
+    @Param({"1", "64"})
+    private int hotProducts;
+    
+    private ConfigurableApplicationContext context;
+    
+    private ProductService productService;
+    
+    private long[] productIds;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        productService = context.getBean(ProductService.class);
+        
+        List<Product> products = new ArrayList<>(hotProducts);
+        for (int i = 0; i < hotProducts; i++) {
+            products.add(new Product("bench-stock-" + i, null, new BigDecimal("9.90"), Integer.MAX_VALUE / 2));
+        }
+        productIds = context.getBean(ProductRepository.class).saveAll(products).stream()
+                .mapToLong(Product::getId).toArray();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public Product updateStock() {
+        long productId = productIds[ThreadLocalRandom.current().nextInt(productIds.length)];
+        return productService.updateStock(productId, 1);
+    }
+}
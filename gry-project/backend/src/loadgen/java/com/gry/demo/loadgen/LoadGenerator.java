@@ -0,0 +1,491 @@
+package com.gry.demo.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gry.demo.DemoApplication;
+import com.gry.demo.entity.OrderStatus;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 进程内负载生成器：启动嵌入式 Kafka（KRaft）和使用 H2 的应用，经批量导入接口准备用户和产品，
+ * 再按固定速率（开环，不等待响应）发出混合的 REST 请求，每个请求一个虚拟线程（Java 21 以上，
+ * 否则退回按需创建的平台线程池）。延迟从计划发出时刻起算，避免响应变慢时少发请求造成的协同遗漏。
+ * 结束后按接口输出 HdrHistogram 分位数、order-events 端到端延迟和消费组积压，并写出 JSON 报告。
+ * 应用端可用平台线程（Tomcat 线程池）或虚拟线程运行，server-threads=both 时各跑一轮并对比吞吐和 p99。
+ */
+public final class LoadGenerator {
+    
+    private static final String[] SEARCH_WORDS = {"keyboard", "mouse", "monitor", "laptop", "phone", "cable"};
+    
+    private static final OrderStatus[] NEXT_STATUSES = {
+        OrderStatus.PROCESSING, OrderStatus.SHIPPED, OrderStatus.DELIVERED
+    };
+    
+    private static final int RECENT_ORDERS = 4096;
+    
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+    
+    private final LoadOptions options;
+    
+    private final LoadOptions.ServerThreads serverThreads;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+    
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    
+    private final AtomicLongArray recentOrders = new AtomicLongArray(RECENT_ORDERS);
+    
+    private final AtomicLong createdOrders = new AtomicLong();
+    
+    private final AtomicLong inFlight = new AtomicLong();
+    
+    private HttpClient httpClient;
+    
+    private String baseUrl;
+    
+    private long[] userIds;
+    
+    private long[] productIds;
+    
+    private BigDecimal[] productPrices;
+    
+    record Stats(Histogram latencyMicros, LongAdder errors) {
+    }
+    
+    private LoadGenerator(LoadOptions options, LoadOptions.ServerThreads serverThreads) {
+        this.options = options;
+        this.serverThreads = serverThreads;
+        options.mix().keySet().forEach(operation ->
+                stats.put(operation, new Stats(new ConcurrentHistogram(MAX_LATENCY_MICROS, 3), new LongAdder())));
+    }
+    
+    public static void main(String[] args) throws Exception {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+        Map<LoadOptions.ServerThreads, Map<String, Map<String, Object>>> results =
+                new EnumMap<>(LoadOptions.ServerThreads.class);
+        for (LoadOptions.ServerThreads serverThreads : options.serverThreads()) {
+            results.put(serverThreads, new LoadGenerator(options, serverThreads).run());
+        }
+        if (results.size() > 1) {
+            compare(options, results);
+        }
+        System.exit(0);
+    }
+    
+    /**
+     * 跑一轮并返回各接口的统计，键为操作名，另有 total 汇总全部请求。
+     */
+    private Map<String, Map<String, Object>> run() throws Exception {
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, options.partitions());
+        broker.afterPropertiesSet();
+        ExecutorService executor = newRequestExecutor();
+        try (ConfigurableApplicationContext context = startApplication(broker.getBrokersAsString())) {
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .executor(executor)
+                    .build();
+            seed(context.getBean(JdbcTemplate.class));
+            try (OrderEventLagMonitor lagMonitor = new OrderEventLagMonitor(broker.getBrokersAsString())) {
+                long drainMillis = drive(executor, lagMonitor);
+                return report(lagMonitor, drainMillis);
+            }
+        } finally {
+            executor.shutdownNow();
+            broker.destroy();
+        }
+    }
+    
+    private ConfigurableApplicationContext startApplication(String bootstrapServers) {
+        String partitions = String.valueOf(options.partitions());
+        return new SpringApplicationBuilder(DemoApplication.class).run(
+                "--server.port=0",
+                "--spring.kafka.bootstrap-servers=" + bootstrapServers,
+                "--spring.kafka.consumer.auto-offset-reset=earliest",
+                "--gry.kafka.topics.order-events.partitions=" + partitions,
+                "--gry.kafka.topics.notification-events.partitions=" + partitions,
+                "--gry.kafka.topics.inventory-events.partitions=" + partitions,
+                "--spring.threads.virtual.enabled=" + (serverThreads == LoadOptions.ServerThreads.VIRTUAL),
+                "--server.tomcat.threads.max=" + options.tomcatThreads(),
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN");
+    }
+    
+    /**
+     * 每个请求一个虚拟线程；运行在 Java 21 之前时退回按需创建的平台线程池。
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            System.out.println("Request threads: virtual");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Request threads: platform (virtual threads need Java 21+)");
+            return Executors.newCachedThreadPool();
+        }
+    }
+    
+    private void seed(JdbcTemplate jdbcTemplate) throws IOException, InterruptedException {
+        StringBuilder users = new StringBuilder();
+        for (int i = 0; i < options.users(); i++) {
+            users.append("{\"username\":\"load-user-").append(i)
+                    .append("\",\"email\":\"load-user-").append(i)
+                    .append("@example.com\",\"password\":\"password\"}\n");
+        }
+        StringBuilder products = new StringBuilder();
+        for (int i = 0; i < options.products(); i++) {
+            products.append("{\"name\":\"load ").append(SEARCH_WORDS[i % SEARCH_WORDS.length]).append(' ').append(i)
+                    .append("\",\"price\":").append(5 + i % 995)
+                    .append(".00,\"stockQuantity\":1000000000}\n");
+        }
+        System.out.println("Seeded users: " + bulkImport("/api/users/bulk", users));
+        System.out.println("Seeded products: " + bulkImport("/api/products/bulk", products));
+        
+        userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Long.class).stream()
+                .mapToLong(Long::longValue).toArray();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, price FROM products WHERE stock_quantity >= 1000000 ORDER BY id");
+        productIds = new long[rows.size()];
+        productPrices = new BigDecimal[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            productIds[i] = ((Number) rows.get(i).get("id")).longValue();
+            productPrices[i] = (BigDecimal) rows.get(i).get("price");
+        }
+    }
+    
+    private String bulkImport(String path, CharSequence ndjson) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(ndjson.toString()))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Seeding " + path + " failed: " + response.body());
+        }
+        JsonNode data = objectMapper.readTree(response.body()).path("data");
+        return data.path("inserted").asLong() + " inserted, " + data.path("rejected").asLong() + " rejected";
+    }
+    
+    /**
+     * 按计划时刻发出请求直到测量结束，之后等待在途请求完成，再采样积压直到消费组追上，返回追平耗时。
+     */
+    private long drive(ExecutorService executor, OrderEventLagMonitor lagMonitor) throws InterruptedException {
+        Operation[] operations = options.mix().keySet().toArray(new Operation[0]);
+        int[] cumulativeWeights = new int[operations.length];
+        int totalWeight = 0;
+        for (int i = 0; i < operations.length; i++) {
+            totalWeight += options.mix().get(operations[i]);
+            cumulativeWeights[i] = totalWeight;
+        }
+        
+        ScheduledExecutorService lagSampler = Executors.newSingleThreadScheduledExecutor();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        boolean measuring = false;
+        System.out.printf("Driving %d req/s for %s (+%s warmup), server threads: %s%n", options.rate(),
+                options.duration(), options.warmup(), serverThreads.getName());
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = intended >= measureFrom;
+            if (measured && !measuring) {
+                measuring = true;
+                lagMonitor.startMeasuring();
+                lagSampler.scheduleAtFixedRate(() -> sampleLag(lagMonitor), 0, 1, TimeUnit.SECONDS);
+            }
+            int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+            int index = 0;
+            while (cumulativeWeights[index] <= pick) {
+                index++;
+            }
+            Operation operation = operations[index];
+            inFlight.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    execute(operation, intended, measured);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+        lagSampler.shutdownNow();
+        
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        if (inFlight.get() > 0) {
+            System.out.println("Gave up waiting for " + inFlight.get() + " in-flight requests");
+        }
+        
+        long drainStart = System.nanoTime();
+        deadline = drainStart + TimeUnit.SECONDS.toNanos(60);
+        while (lagMonitor.sampleGroupLag() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - drainStart);
+    }
+    
+    private static void sampleLag(OrderEventLagMonitor lagMonitor) {
+        try {
+            lagMonitor.sampleGroupLag();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            System.err.println("Lag sample failed: " + e.getMessage());
+        }
+    }
+    
+    private void execute(Operation operation, long intendedNanos, boolean measured) {
+        boolean failed;
+        String body = null;
+        try {
+            HttpResponse<String> response = httpClient.send(request(operation), HttpResponse.BodyHandlers.ofString());
+            failed = response.statusCode() >= 400;
+            body = response.body();
+        } catch (IOException e) {
+            failed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedNanos);
+        if (measured) {
+            Stats operationStats = stats.get(operation);
+            operationStats.latencyMicros().recordValue(Math.min(latencyMicros, MAX_LATENCY_MICROS));
+            if (failed) {
+                operationStats.errors().increment();
+            }
+        }
+        if (operation == Operation.CREATE_ORDER && !failed) {
+            rememberOrder(body);
+        }
+    }
+    
+    private HttpRequest request(Operation operation) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (operation) {
+            case CREATE_ORDER -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/orders"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(newOrder(random))))
+                    .build();
+            case STATUS_UPDATE -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/orders/" + recentOrder(random)
+                            + "/status?status=" + NEXT_STATUSES[random.nextInt(NEXT_STATUSES.length)]))
+                    .PUT(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            case SEARCH -> {
+                int minPrice = random.nextInt(500);
+                yield HttpRequest.newBuilder(URI.create(baseUrl + "/api/products?name="
+                        + SEARCH_WORDS[random.nextInt(SEARCH_WORDS.length)]
+                        + "&minPrice=" + minPrice + "&maxPrice=" + (minPrice + 200) + "&size=20")).GET().build();
+            }
+            case LIST -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/products?page="
+                    + random.nextInt(Math.max(1, Math.min(50, productIds.length / 20))) + "&size=20")).GET().build();
+        };
+    }
+    
+    private Map<String, Object> newOrder(ThreadLocalRandom random) {
+        int items = 1 + random.nextInt(options.maxItems());
+        List<Map<String, Object>> orderItems = new ArrayList<>(items);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < items; i++) {
+            int product = random.nextInt(productIds.length);
+            int quantity = 1 + random.nextInt(3);
+            orderItems.add(Map.of("productId", productIds[product], "quantity", quantity,
+                    "price", productPrices[product]));
+            total = total.add(productPrices[product].multiply(BigDecimal.valueOf(quantity)));
+        }
+        Map<String, Object> order = new LinkedHashMap<>();
+        order.put("userId", userIds[random.nextInt(userIds.length)]);
+        order.put("totalAmount", total);
+        order.put("orderItems", orderItems);
+        return order;
+    }
+    
+    private void rememberOrder(String body) {
+        try {
+            long orderId = objectMapper.readTree(body).path("data").path("id").asLong();
+            if (orderId > 0) {
+                recentOrders.set((int) (createdOrders.getAndIncrement() % RECENT_ORDERS), orderId);
+            }
+        } catch (IOException e) {
+            // 响应不是预期的 JSON 时不记录，状态更新会改用其他订单
+        }
+    }
+    
+    /**
+     * 随机取一个近期创建的订单；还没有创建过订单时使用 data.sql 中的订单。
+     */
+    private long recentOrder(ThreadLocalRandom random) {
+        long created = Math.min(createdOrders.get(), RECENT_ORDERS);
+        if (created == 0) {
+            return 1 + random.nextInt(3);
+        }
+        long orderId = recentOrders.get(random.nextInt((int) created));
+        return orderId > 0 ? orderId : 1;
+    }
+    
+    private Map<String, Map<String, Object>> report(OrderEventLagMonitor lagMonitor, long drainMillis)
+            throws IOException {
+        double seconds = options.duration().toNanos() / 1e9;
+        Map<String, Map<String, Object>> operations = new LinkedHashMap<>();
+        Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+        LongAdder totalErrors = new LongAdder();
+        System.out.printf("%n%-14s %-42s %9s %7s %9s %9s %9s %9s %9s %9s%n", "operation", "endpoint",
+                "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        stats.forEach((operation, operationStats) -> {
+            Histogram histogram = operationStats.latencyMicros();
+            long errors = operationStats.errors().sum();
+            total.add(histogram);
+            totalErrors.add(errors);
+            Map<String, Object> summary = summarize(histogram, 1000.0);
+            summary.put("errors", errors);
+            summary.put("throughput", histogram.getTotalCount() / seconds);
+            operations.put(operation.getName(), summary);
+            System.out.printf("%-14s %-42s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.getName(), operation.getEndpoint(), histogram.getTotalCount(), errors,
+                    histogram.getTotalCount() / seconds, summary.get("p50"), summary.get("p90"),
+                    summary.get("p99"), summary.get("p99.9"), summary.get("max"));
+        });
+        Map<String, Object> totalSummary = summarize(total, 1000.0);
+        totalSummary.put("errors", totalErrors.sum());
+        totalSummary.put("throughput", total.getTotalCount() / seconds);
+        operations.put("total", totalSummary);
+        System.out.printf("%-14s %-42s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", "total", "",
+                total.getTotalCount(), totalErrors.sum(), total.getTotalCount() / seconds, totalSummary.get("p50"),
+                totalSummary.get("p90"), totalSummary.get("p99"), totalSummary.get("p99.9"), totalSummary.get("max"));
+        
+        Histogram endToEnd = lagMonitor.endToEndMillis();
+        Histogram groupLag = lagMonitor.groupLag();
+        Map<String, Object> orderEvents = summarize(endToEnd, 1.0);
+        orderEvents.put("maxGroupLag", groupLag.getMaxValue());
+        orderEvents.put("meanGroupLag", groupLag.getMean());
+        orderEvents.put("drainMillis", drainMillis);
+        System.out.printf("%norder-events end-to-end (ms): events=%d p50=%.0f p90=%.0f p99=%.0f p99.9=%.0f max=%.0f%n",
+                endToEnd.getTotalCount(), orderEvents.get("p50"), orderEvents.get("p90"), orderEvents.get("p99"),
+                orderEvents.get("p99.9"), orderEvents.get("max"));
+        System.out.printf("%s lag (messages): max=%d mean=%.1f, drained %d ms after load stopped%n",
+                OrderEventLagMonitor.APPLICATION_GROUP, groupLag.getMaxValue(), groupLag.getMean(), drainMillis);
+        
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", Map.of("rate", options.rate(), "warmup", options.warmup().toString(),
+                "duration", options.duration().toString(), "mix", options.mix(), "users", options.users(),
+                "products", options.products(), "maxItems", options.maxItems(), "partitions", options.partitions(),
+                "serverThreads", serverThreads.getName(), "tomcatThreads", options.tomcatThreads()));
+        report.put("operations", operations);
+        report.put("orderEvents", orderEvents);
+        Path path = options.serverThreads().size() > 1 ? withSuffix(options.report(), serverThreads.getName())
+                : options.report();
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        objectMapper.writeValue(path.toFile(), report);
+        System.out.println("Report written to " + path);
+        return operations;
+    }
+    
+    /**
+     * 平台线程与虚拟线程两轮的对比：各接口吞吐和 p99，变化以平台线程为基准。
+     */
+    private static void compare(LoadOptions options,
+                                Map<LoadOptions.ServerThreads, Map<String, Map<String, Object>>> results)
+            throws IOException {
+        Map<String, Map<String, Object>> platform = results.get(LoadOptions.ServerThreads.PLATFORM);
+        Map<String, Map<String, Object>> virtual = results.get(LoadOptions.ServerThreads.VIRTUAL);
+        Map<String, Object> comparison = new LinkedHashMap<>();
+        System.out.printf("%nplatform (%d Tomcat threads) vs virtual threads%n", options.tomcatThreads());
+        System.out.printf("%-14s %12s %12s %8s %12s %12s %8s %9s %9s%n", "operation", "platform/s", "virtual/s",
+                "change", "platform p99", "virtual p99", "change", "p errors", "v errors");
+        for (String operation : platform.keySet()) {
+            Map<String, Object> before = platform.get(operation);
+            Map<String, Object> after = virtual.get(operation);
+            double throughputChange = change((Double) before.get("throughput"), (Double) after.get("throughput"));
+            double p99Change = change((Double) before.get("p99"), (Double) after.get("p99"));
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("platformThroughput", before.get("throughput"));
+            entry.put("virtualThroughput", after.get("throughput"));
+            entry.put("throughputChangePercent", throughputChange);
+            entry.put("platformP99", before.get("p99"));
+            entry.put("virtualP99", after.get("p99"));
+            entry.put("p99ChangePercent", p99Change);
+            entry.put("platformErrors", before.get("errors"));
+            entry.put("virtualErrors", after.get("errors"));
+            comparison.put(operation, entry);
+            System.out.printf("%-14s %12.1f %12.1f %+7.1f%% %12.2f %12.2f %+7.1f%% %9d %9d%n", operation,
+                    before.get("throughput"), after.get("throughput"), throughputChange, before.get("p99"),
+                    after.get("p99"), p99Change, before.get("errors"), after.get("errors"));
+        }
+        Path path = withSuffix(options.report(), "comparison");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), comparison);
+        System.out.println("Comparison written to " + path);
+    }
+    
+    private static double change(double before, double after) {
+        return before == 0 ? 0 : (after - before) * 100 / before;
+    }
+    
+    private static Path withSuffix(Path report, String suffix) {
+        String name = report.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String fileName = dot < 0 ? name + "-" + suffix : name.substring(0, dot) + "-" + suffix + name.substring(dot);
+        return report.resolveSibling(fileName);
+    }
+    
+    private static Map<String, Object> summarize(Histogram histogram, double divisor) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getTotalCount());
+        summary.put("p50", histogram.getValueAtPercentile(50) / divisor);
+        summary.put("p90", histogram.getValueAtPercentile(90) / divisor);
+        summary.put("p99", histogram.getValueAtPercentile(99) / divisor);
+        summary.put("p99.9", histogram.getValueAtPercentile(99.9) / divisor);
+        summary.put("max", histogram.getMaxValue() / divisor);
+        return summary;
+    }
+}
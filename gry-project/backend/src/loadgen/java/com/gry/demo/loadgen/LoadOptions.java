@@ -0,0 +1,110 @@
+package com.gry.demo.loadgen;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 负载生成参数，命令行格式为 --name=value，未给出的取默认值。
+ * mix 为各操作的权重，例如 create-order=40,status-update=20,search=20,list=20。
+ * server-threads 为 both 时先后以平台线程和虚拟线程启动应用各跑一轮，最后对比吞吐和 p99。
+ */
+record LoadOptions(
+        int rate,
+        Duration warmup,
+        Duration duration,
+        Map<Operation, Integer> mix,
+        int users,
+        int products,
+        int maxItems,
+        int partitions,
+        List<ServerThreads> serverThreads,
+        int tomcatThreads,
+        Path report) {
+
+    enum ServerThreads {
+        PLATFORM, VIRTUAL;
+
+        String getName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    static final String USAGE = """
+            Options (--name=value):
+              rate            requests per second, issued on schedule regardless of responses (default 200)
+              warmup          ISO-8601 duration excluded from the results (default PT10S)
+              duration        measured duration (default PT60S)
+              mix             operation weights (default create-order=40,status-update=20,search=20,list=20)
+              users           seeded users (default 1000)
+              products        seeded products (default 5000)
+              max-items       maximum items per created order (default 5)
+              partitions      partitions of the embedded Kafka topics (default 3)
+              server-threads  platform, virtual (Java 21+) or both, run one after the other (default platform)
+              tomcat-threads  Tomcat worker threads in platform mode (default 200)
+              report          JSON report path (default target/loadgen-report.json)""";
+
+    static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Unrecognized argument: " + arg + "\n" + USAGE);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        LoadOptions options = new LoadOptions(
+                Integer.parseInt(values.getOrDefault("rate", "200")),
+                Duration.parse(values.getOrDefault("warmup", "PT10S")),
+                Duration.parse(values.getOrDefault("duration", "PT60S")),
+                parseMix(values.getOrDefault("mix", "create-order=40,status-update=20,search=20,list=20")),
+                Integer.parseInt(values.getOrDefault("users", "1000")),
+                Integer.parseInt(values.getOrDefault("products", "5000")),
+                Integer.parseInt(values.getOrDefault("max-items", "5")),
+                Integer.parseInt(values.getOrDefault("partitions", "3")),
+                parseServerThreads(values.getOrDefault("server-threads", "platform")),
+                Integer.parseInt(values.getOrDefault("tomcat-threads", "200")),
+                Path.of(values.getOrDefault("report", "target/loadgen-report.json")));
+        if (options.rate() <= 0 || options.users() <= 0 || options.products() <= 0 || options.maxItems() <= 0
+                || options.tomcatThreads() <= 0) {
+            throw new IllegalArgumentException("rate, users, products, max-items and tomcat-threads must be positive\n"
+                    + USAGE);
+        }
+        if (options.serverThreads().contains(ServerThreads.VIRTUAL) && Runtime.version().feature() < 21) {
+            throw new IllegalArgumentException("server-threads=virtual needs Java 21+, running on "
+                    + Runtime.version() + " (use mvn -Pvirtual-threads,loadgen)");
+        }
+        return options;
+    }
+
+    private static List<ServerThreads> parseServerThreads(String value) {
+        return switch (value) {
+            case "platform" -> List.of(ServerThreads.PLATFORM);
+            case "virtual" -> List.of(ServerThreads.VIRTUAL);
+            case "both" -> List.of(ServerThreads.PLATFORM, ServerThreads.VIRTUAL);
+            default -> throw new IllegalArgumentException("Invalid server-threads: " + value + "\n" + USAGE);
+        };
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + entry + "\n" + USAGE);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.fromName(parts[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Mix must contain at least one positive weight\n" + USAGE);
+        }
+        return weights;
+    }
+}
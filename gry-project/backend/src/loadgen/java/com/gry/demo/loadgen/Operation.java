@@ -0,0 +1,38 @@
+package com.gry.demo.loadgen;
+
+/**
+ * 负载中的操作类型，每种对应一个 REST 接口，分别统计延迟。
+ */
+enum Operation {
+    
+    CREATE_ORDER("create-order", "POST /api/orders"),
+    STATUS_UPDATE("status-update", "PUT /api/orders/{id}/status"),
+    SEARCH("search", "GET /api/products?name&minPrice&maxPrice"),
+    LIST("list", "GET /api/products?page&size");
+    
+    private final String name;
+    
+    private final String endpoint;
+    
+    Operation(String name, String endpoint) {
+        this.name = name;
+        this.endpoint = endpoint;
+    }
+    
+    String getName() {
+        return name;
+    }
+    
+    String getEndpoint() {
+        return endpoint;
+    }
+    
+    static Operation fromName(String name) {
+        for (Operation operation : values()) {
+            if (operation.name.equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + name);
+    }
+}
@@ -0,0 +1,142 @@
+package com.gry.demo.loadgen;
+
+import com.gry.demo.config.KafkaConfig;
+import com.gry.demo.config.OrderEventDeserializer;
+import com.gry.demo.dto.OrderEvent;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * order-events 的端到端延迟和应用消费组积压。
+ * 独立消费组读取同一主题，以事件时间戳（订单事务中生成）到收到消息的间隔作为端到端延迟，
+ * 包含 outbox 中继的轮询间隔；积压按应用消费组已提交 offset 与分区末尾 offset 之差定期采样。
+ */
+class OrderEventLagMonitor implements AutoCloseable {
+    
+    static final String APPLICATION_GROUP = "order-processing-group";
+    
+    private final KafkaConsumer<String, OrderEvent> consumer;
+    
+    private final AdminClient admin;
+    
+    private final Thread pollThread;
+    
+    private final Histogram endToEndMillis = new Histogram(TimeUnit.MINUTES.toMillis(10), 3);
+    
+    private final Histogram groupLag = new Histogram(3);
+    
+    private volatile long measureFromMillis = Long.MAX_VALUE;
+    
+    private volatile boolean running = true;
+    
+    OrderEventLagMonitor(String bootstrapServers) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "loadgen-" + UUID.randomUUID());
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        consumer = new KafkaConsumer<>(props, new StringDeserializer(), new OrderEventDeserializer());
+        consumer.subscribe(List.of(KafkaConfig.ORDER_EVENTS_TOPIC));
+        admin = AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
+        pollThread = new Thread(this::poll, "loadgen-order-events");
+        pollThread.setDaemon(true);
+        pollThread.start();
+    }
+    
+    /**
+     * 之后生成的事件计入端到端延迟，之前的（预热期间）忽略。
+     */
+    void startMeasuring() {
+        measureFromMillis = System.currentTimeMillis();
+    }
+    
+    /**
+     * 采样一次应用消费组积压并返回，消费组尚未提交过的分区按从头计算。
+     */
+    long sampleGroupLag() throws InterruptedException {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(APPLICATION_GROUP)
+                    .partitionsToOffsetAndMetadata().get(5, TimeUnit.SECONDS);
+            List<TopicPartition> partitions = admin.describeTopics(List.of(KafkaConfig.ORDER_EVENTS_TOPIC))
+                    .allTopicNames().get(5, TimeUnit.SECONDS).get(KafkaConfig.ORDER_EVENTS_TOPIC).partitions().stream()
+                    .map(partition -> new TopicPartition(KafkaConfig.ORDER_EVENTS_TOPIC, partition.partition()))
+                    .toList();
+            Map<TopicPartition, ListOffsetsResultInfo> ends = admin.listOffsets(partitions.stream()
+                    .collect(Collectors.toMap(partition -> partition, partition -> OffsetSpec.latest())))
+                    .all().get(5, TimeUnit.SECONDS);
+            long lag = 0;
+            for (TopicPartition partition : partitions) {
+                OffsetAndMetadata offset = committed.get(partition);
+                lag += ends.get(partition).offset() - (offset != null ? offset.offset() : 0);
+            }
+            synchronized (groupLag) {
+                groupLag.recordValue(Math.max(0, lag));
+            }
+            return lag;
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Failed to read consumer group lag", e);
+        }
+    }
+    
+    Histogram endToEndMillis() {
+        synchronized (endToEndMillis) {
+            return endToEndMillis.copy();
+        }
+    }
+    
+    Histogram groupLag() {
+        synchronized (groupLag) {
+            return groupLag.copy();
+        }
+    }
+    
+    private void poll() {
+        try {
+            while (running) {
+                for (ConsumerRecord<String, OrderEvent> record : consumer.poll(Duration.ofMillis(200))) {
+                    long received = System.currentTimeMillis();
+                    OrderEvent event = record.value();
+                    if (event == null || event.timestamp().toEpochMilli() < measureFromMillis) {
+                        continue;
+                    }
+                    synchronized (endToEndMillis) {
+                        endToEndMillis.recordValue(Math.min(endToEndMillis.getHighestTrackableValue(),
+                                Math.max(0, received - event.timestamp().toEpochMilli())));
+                    }
+                }
+            }
+        } catch (WakeupException e) {
+            // close() 唤醒阻塞中的 poll
+        } finally {
+            consumer.close();
+        }
+    }
+    
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        consumer.wakeup();
+        pollThread.join(TimeUnit.SECONDS.toMillis(10));
+        admin.close();
+    }
+}
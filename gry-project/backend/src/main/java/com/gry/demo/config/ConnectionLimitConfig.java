@@ -0,0 +1,42 @@
+package com.gry.demo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * gry.datasource.connection-limit.enabled=true 时数据源外包一层 ConnectionLimitingDataSource。
+ * 默认跟随 spring.threads.virtual.enabled：Tomcat 请求和 Kafka 监听运行在虚拟线程上（Java 21 起）时，
+ * 并发不再由线程池大小限制，改由这里按连接池大小限制访问数据库的并发。
+ */
+@Configuration
+@ConditionalOnProperty(name = "gry.datasource.connection-limit.enabled", havingValue = "true")
+public class ConnectionLimitConfig {
+    
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(Environment environment,
+                                                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        int permits = environment.getProperty("gry.datasource.connection-limit.permits", Integer.class,
+                environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+        int maxWaiting = environment.getProperty("gry.datasource.connection-limit.max-waiting", Integer.class, 200);
+        Duration acquireTimeout = environment.getProperty("gry.datasource.connection-limit.acquire-timeout",
+                Duration.class, Duration.ofSeconds(5));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConnectionLimitingDataSource)) {
+                    return new ConnectionLimitingDataSource(dataSource, permits, maxWaiting, acquireTimeout,
+                            meterRegistry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,136 @@
+package com.gry.demo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接池前的准入控制：同时持有的连接数不超过 permits，排队等待的线程不超过 maxWaiting，超出或等待超时直接失败。
+ * 虚拟线程下请求和监听线程不再受线程池大小限制，全部堵在连接池上时每个请求都要等满 connectionTimeout，
+ * 这里让多出的请求立即失败，等待在公平信号量上（虚拟线程让出载体线程），不会占住连接池内部的队列。
+ * permits 应与连接池大小一致；启用读写分离时所有池共用这一个上限。
+ */
+public class ConnectionLimitingDataSource extends DelegatingDataSource {
+    
+    private final Semaphore permits;
+    
+    private final int maxWaiting;
+    
+    private final long acquireTimeoutNanos;
+    
+    private final AtomicInteger waiting = new AtomicInteger();
+    
+    private final Counter queueFull;
+    
+    private final Counter timedOut;
+    
+    public ConnectionLimitingDataSource(DataSource targetDataSource, int permits, int maxWaiting,
+                                        Duration acquireTimeout, MeterRegistry meterRegistry) {
+        super(targetDataSource);
+        this.permits = new Semaphore(permits, true);
+        this.maxWaiting = maxWaiting;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        Gauge.builder("gry.datasource.connection.limit.waiting", waiting, AtomicInteger::get)
+                .description("Threads waiting for a connection permit")
+                .register(meterRegistry);
+        Gauge.builder("gry.datasource.connection.limit.available", this.permits, Semaphore::availablePermits)
+                .description("Connection permits not currently held")
+                .register(meterRegistry);
+        queueFull = Counter.builder("gry.datasource.connection.limit.rejected")
+                .description("Connection requests rejected before reaching the pool")
+                .tag("reason", "queue-full")
+                .register(meterRegistry);
+        timedOut = Counter.builder("gry.datasource.connection.limit.rejected")
+                .description("Connection requests rejected before reaching the pool")
+                .tag("reason", "timeout")
+                .register(meterRegistry);
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return wrap(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return wrap(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+    
+    private void acquire() throws SQLException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            queueFull.increment();
+            throw new SQLTransientConnectionException("Connection limit reached, " + maxWaiting
+                    + " requests already waiting");
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                timedOut.increment();
+                throw new SQLTransientConnectionException("No connection permit within "
+                        + TimeUnit.NANOSECONDS.toMillis(acquireTimeoutNanos) + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection permit", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+    
+    /**
+     * 连接关闭时归还许可，重复 close 只归还一次。
+     */
+    private Connection wrap(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ConnectionLimitingDataSource.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("close")) {
+                        return invoke(connection, method, args);
+                    }
+                    try {
+                        return invoke(connection, method, args);
+                    } finally {
+                        if (released.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                });
+    }
+    
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.gry.demo.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * gry.datasource.routing.enabled=true 时用 ReadWriteRoutingDataSource 替换 Spring Boot 的数据源：
+ * 主库沿用 spring.datasource.*，副本为 replica-urls 中的各个地址，连接池参数都取 spring.datasource.hikari.*。
+ * 本地可以把副本指向另一个 H2 实例（如 jdbc:h2:tcp://localhost/mem:replica）或与主库同一个内存库来验证路由。
+ */
+@Configuration
+@ConditionalOnProperty(name = "gry.datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+    
+    @Value("${gry.datasource.routing.replica-urls:}")
+    private List<String> replicaUrls;
+    
+    @Value("${gry.datasource.routing.replica-username:${spring.datasource.username:}}")
+    private String replicaUsername;
+    
+    @Value("${gry.datasource.routing.replica-password:${spring.datasource.password:}}")
+    private String replicaPassword;
+    
+    @Value("${gry.datasource.routing.selection:ROUND_ROBIN}")
+    private ReadWriteRoutingDataSource.Selection selection;
+    
+    @Value("${gry.datasource.routing.replica-connection-timeout:PT1S}")
+    private Duration replicaConnectionTimeout;
+    
+    @Value("${gry.datasource.routing.replica-retry-after:PT30S}")
+    private Duration replicaRetryAfter;
+    
+    @Value("${gry.datasource.routing.read-your-writes:true}")
+    private boolean readYourWrites;
+    
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry) {
+        MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+        
+        HikariConfig primaryConfig = poolConfig(environment, "gry-primary", metrics);
+        primaryConfig.setJdbcUrl(properties.determineUrl());
+        primaryConfig.setUsername(properties.determineUsername());
+        primaryConfig.setPassword(properties.determinePassword());
+        primaryConfig.setDriverClassName(properties.determineDriverClassName());
+        HikariDataSource primary = new HikariDataSource(primaryConfig);
+        
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariConfig replicaConfig = poolConfig(environment, "gry-replica-" + (i + 1), metrics);
+            replicaConfig.setJdbcUrl(replicaUrls.get(i).trim());
+            replicaConfig.setUsername(replicaUsername);
+            replicaConfig.setPassword(replicaPassword);
+            replicaConfig.setReadOnly(true);
+            // 副本宕机时快速失败退回主库；启动时副本不可用也不影响应用启动
+            replicaConfig.setConnectionTimeout(replicaConnectionTimeout.toMillis());
+            replicaConfig.setInitializationFailTimeout(-1);
+            replicas.add(new HikariDataSource(replicaConfig));
+        }
+        return new ReadWriteRoutingDataSource(primary, replicas, selection, replicaRetryAfter, meterRegistry);
+    }
+    
+    /**
+     * Hibernate 默认在会话关闭前一直持有连接，open-in-view 下同一请求的多个事务会共用第一个事务拿到的连接；
+     * 改为每个事务结束就释放，下一个事务重新路由。
+     */
+    @Bean
+    public HibernatePropertiesCustomizer connectionReleasePerTransaction() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+    
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter() {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter());
+        registration.setEnabled(readYourWrites);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 100);
+        return registration;
+    }
+    
+    private static HikariConfig poolConfig(Environment environment, String poolName,
+                                           MicrometerMetricsTrackerFactory metrics) {
+        HikariConfig config = new HikariConfig();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(config));
+        config.setPoolName(poolName);
+        config.setMetricsTrackerFactory(metrics);
+        return config;
+    }
+}
@@ -0,0 +1,25 @@
+package com.gry.demo.config;
+
+import org.hibernate.dialect.H2Dialect;
+
+/**
+ * H2 2.2 支持 FOR UPDATE SKIP LOCKED，但 Hibernate 自带的 H2Dialect 未声明，
+ * 导致 outbox 认领在本地退化为互相阻塞的 FOR UPDATE。
+ */
+public class H2SkipLockedDialect extends H2Dialect {
+    
+    @Override
+    public boolean supportsSkipLocked() {
+        return true;
+    }
+    
+    @Override
+    public String getForUpdateSkipLockedString() {
+        return " for update skip locked";
+    }
+    
+    @Override
+    public String getForUpdateSkipLockedString(String aliases) {
+        return getForUpdateSkipLockedString();
+    }
+}
@@ -1,17 +1,231 @@
 package com.gry.demo.config;
 
+import com.gry.demo.dto.OrderEvent;
+import com.gry.demo.service.ProductCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.ssl.SslBundles;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Configuration
 public class KafkaConfig {
     
+    public static final String ORDER_EVENTS_TOPIC = "order-events";
+    
+    public static final String ORDER_EVENTS_DLT_TOPIC = ORDER_EVENTS_TOPIC + "-dlt";
+    
+    @Autowired
+    private Environment environment;
+    
+    @Value("${gry.kafka.producer.linger-ms:10}")
+    private int lingerMs;
+    
+    @Value("${gry.kafka.producer.batch-size:65536}")
+    private int batchSize;
+    
+    @Value("${gry.kafka.producer.compression-type:lz4}")
+    private String compressionType;
+    
+    @Value("${gry.kafka.topics.order-events.partitions:3}")
+    private int orderEventsPartitions;
+    
+    @Value("${gry.kafka.topics.notification-events.partitions:3}")
+    private int notificationEventsPartitions;
+    
+    @Value("${gry.kafka.topics.inventory-events.partitions:3}")
+    private int inventoryEventsPartitions;
+    
+    @Value("${gry.kafka.consumer.order-events.concurrency:3}")
+    private int orderEventsConcurrency;
+    
+    @Value("${gry.kafka.consumer.order-events.max-poll-records:500}")
+    private int orderEventsMaxPollRecords;
+    
+    /**
+     * 各 producer/consumer 工厂都注册 Micrometer 监听器，导出 Kafka 客户端指标
+     * （kafka.producer.*、kafka.consumer.*，其中 kafka.consumer.fetch.manager.records.lag 按分区给出消费积压）。
+     */
+    @Bean
+    public ProducerFactory<String, Object> producerFactory(KafkaProperties kafkaProperties, SslBundles sslBundles,
+                                                           MeterRegistry meterRegistry) {
+        DefaultKafkaProducerFactory<String, Object> factory =
+                new DefaultKafkaProducerFactory<>(producerProperties(kafkaProperties, sslBundles));
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
+    }
+    
+    @Bean
+    public KafkaTemplate<String, Object> kafkaTemplate(ProducerFactory<String, Object> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+    
+    /**
+     * Outbox 中保存的是已编码的消息体，relay 原样发送字节。
+     */
+    @Bean
+    public KafkaTemplate<String, byte[]> outboxKafkaTemplate(KafkaProperties kafkaProperties, SslBundles sslBundles,
+                                                             MeterRegistry meterRegistry) {
+        return new KafkaTemplate<>(producerFactory(kafkaProperties, sslBundles, meterRegistry,
+                new ByteArraySerializer()));
+    }
+    
+    /**
+     * 供 order-events 的重试主题转发使用，保持与原消息相同的二进制编码。
+     */
+    @Bean
+    public KafkaTemplate<String, OrderEvent> orderEventKafkaTemplate(KafkaProperties kafkaProperties,
+                                                                     SslBundles sslBundles,
+                                                                     MeterRegistry meterRegistry) {
+        return new KafkaTemplate<>(producerFactory(kafkaProperties, sslBundles, meterRegistry,
+                new OrderEventSerializer()));
+    }
+    
+    @Bean
+    public ConsumerFactory<String, OrderEvent> orderEventConsumerFactory(KafkaProperties kafkaProperties,
+                                                                         SslBundles sslBundles,
+                                                                         MeterRegistry meterRegistry) {
+        Map<String, Object> props = kafkaProperties.buildConsumerProperties(sslBundles);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, orderEventsMaxPollRecords);
+        DefaultKafkaConsumerFactory<String, OrderEvent> factory = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new ErrorHandlingDeserializer<>(new OrderEventDeserializer()));
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
+    }
+    
+    /**
+     * 其余监听（notification、inventory）使用的默认消费者工厂。
+     * 定义了 orderEventConsumerFactory 后 Spring Boot 不再创建自己的工厂，默认容器工厂会临时新建一个不带指标的。
+     */
+    @Bean
+    public ConsumerFactory<Object, Object> kafkaConsumerFactory(KafkaProperties kafkaProperties, SslBundles sslBundles,
+                                                                MeterRegistry meterRegistry) {
+        DefaultKafkaConsumerFactory<Object, Object> factory =
+                new DefaultKafkaConsumerFactory<>(kafkaProperties.buildConsumerProperties(sslBundles));
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
+    }
+    
+    /**
+     * order-events 批量监听：每次 poll 的记录一次性交给监听方法，整批处理完后统一提交 offset。
+     * 单条失败由监听方法抛出 BatchListenerFailedException 指明，之前的记录提交，
+     * 失败记录按原重试策略（3 次，1s 起指数退避）重试后转入 DLT。
+     * 并发数不超过分区数，多出的消费者线程只会空闲。
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, OrderEvent> orderEventListenerContainerFactory(
+            ConsumerFactory<String, OrderEvent> orderEventConsumerFactory,
+            KafkaTemplate<String, OrderEvent> orderEventKafkaTemplate,
+            KafkaTemplate<String, byte[]> outboxKafkaTemplate,
+            SqlStatementMonitor sqlStatementMonitor) {
+        ConcurrentKafkaListenerContainerFactory<String, OrderEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(orderEventConsumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(Math.max(1, Math.min(orderEventsConcurrency, orderEventsPartitions)));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setCommonErrorHandler(orderEventErrorHandler(orderEventKafkaTemplate, outboxKafkaTemplate));
+        factory.setBatchInterceptor(sqlStatementMonitor.batchInterceptor("order-events"));
+        applyThreading(factory, "order-events-");
+        return factory;
+    }
+    
+    /**
+     * 销量聚合使用的 order-events 批量监听：不加入消费组，每个实例手动分配全部分区，
+     * 分配后由 SalesAggregator 跳到快照中的 offset。聚合只更新内存状态，不做重试和 DLT 转发。
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, OrderEvent> salesAggregatorContainerFactory(
+            KafkaProperties kafkaProperties,
+            SslBundles sslBundles,
+            MeterRegistry meterRegistry,
+            SqlStatementMonitor sqlStatementMonitor,
+            @Value("${gry.sales.enabled:true}") boolean salesEnabled) {
+        Map<String, Object> props = ungroupedConsumerProperties(kafkaProperties, sslBundles);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, orderEventsMaxPollRecords);
+        DefaultKafkaConsumerFactory<String, OrderEvent> consumerFactory = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new ErrorHandlingDeserializer<>(new OrderEventDeserializer()));
+        consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        ConcurrentKafkaListenerContainerFactory<String, OrderEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setAutoStartup(salesEnabled);
+        factory.setBatchInterceptor(sqlStatementMonitor.batchInterceptor("order-sales"));
+        applyThreading(factory, "order-sales-");
+        return factory;
+    }
+    
+    /**
+     * 每个实例都要收到全部消息的广播监听（商品缓存失效）：不加入消费组、手动分配分区、不提交 offset，
+     * 重启不会在 broker 上留下废弃的消费组。
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> broadcastListenerContainerFactory(
+            KafkaProperties kafkaProperties,
+            SslBundles sslBundles,
+            MeterRegistry meterRegistry,
+            SqlStatementMonitor sqlStatementMonitor) {
+        DefaultKafkaConsumerFactory<Object, Object> consumerFactory =
+                new DefaultKafkaConsumerFactory<>(ungroupedConsumerProperties(kafkaProperties, sslBundles));
+        consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setRecordInterceptor(sqlStatementMonitor.recordInterceptor());
+        applyThreading(factory, "broadcast-");
+        return factory;
+    }
+    
+    /**
+     * Spring Boot 把它装到默认的监听容器工厂上，按主题统计每条消息执行的 SQL。
+     */
+    @Bean
+    public RecordInterceptor<Object, Object> sqlStatisticsRecordInterceptor(SqlStatementMonitor sqlStatementMonitor) {
+        return sqlStatementMonitor.recordInterceptor();
+    }
+    
+    @Bean
+    public NewTopic orderEventsDltTopic() {
+        return TopicBuilder.name(ORDER_EVENTS_DLT_TOPIC)
+                .partitions(orderEventsPartitions)
+                .replicas(1)
+                .build();
+    }
+    
     @Bean
     public NewTopic orderEventsTopic() {
-        return TopicBuilder.name("order-events")
-                .partitions(3)
+        return TopicBuilder.name(ORDER_EVENTS_TOPIC)
+                .partitions(orderEventsPartitions)
                 .replicas(1)
                 .build();
     }
@@ -19,7 +233,7 @@ public class KafkaConfig {
     @Bean
     public NewTopic notificationEventsTopic() {
         return TopicBuilder.name("notification-events")
-                .partitions(3)
+                .partitions(notificationEventsPartitions)
                 .replicas(1)
                 .build();
     }
@@ -27,8 +241,70 @@ public class KafkaConfig {
     @Bean
     public NewTopic inventoryEventsTopic() {
         return TopicBuilder.name("inventory-events")
-                .partitions(3)
+                .partitions(inventoryEventsPartitions)
                 .replicas(1)
                 .build();
     }
-}
\ No newline at end of file
+    
+    @Bean
+    public NewTopic productCacheInvalidationTopic() {
+        return TopicBuilder.name(ProductCache.INVALIDATION_TOPIC)
+                .partitions(1)
+                .replicas(1)
+                .build();
+    }
+    
+    /**
+     * spring.threads.virtual.enabled 且运行在 Java 21 以上时，与 Spring Boot 配置的默认容器工厂一样，
+     * 消费者线程改用虚拟线程；否则保持每个容器一个平台线程。
+     */
+    private void applyThreading(ConcurrentKafkaListenerContainerFactory<?, ?> factory, String threadNamePrefix) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+    }
+    
+    /**
+     * 去掉 spring.kafka.consumer.group-id：容器没有组 id 时不提交 offset，监听方法也不能调用 acknowledge()。
+     */
+    private Map<String, Object> ungroupedConsumerProperties(KafkaProperties kafkaProperties, SslBundles sslBundles) {
+        Map<String, Object> props = kafkaProperties.buildConsumerProperties(sslBundles);
+        props.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return props;
+    }
+    
+    private DefaultErrorHandler orderEventErrorHandler(KafkaTemplate<String, OrderEvent> orderEventKafkaTemplate,
+                                                       KafkaTemplate<String, byte[]> outboxKafkaTemplate) {
+        // 反序列化失败的记录以原始字节转发
+        Map<Class<?>, KafkaOperations<?, ?>> templates = new LinkedHashMap<>();
+        templates.put(OrderEvent.class, orderEventKafkaTemplate);
+        templates.put(byte[].class, outboxKafkaTemplate);
+        // 默认目标是 <topic>.DLT，这里固定为 order-events-dlt 的同一分区
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(templates,
+                (record, exception) -> new TopicPartition(ORDER_EVENTS_DLT_TOPIC, record.partition()));
+        
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(2);
+        backOff.setInitialInterval(1000L);
+        backOff.setMultiplier(2.0);
+        return new DefaultErrorHandler(recoverer, backOff);
+    }
+    
+    private <V> ProducerFactory<String, V> producerFactory(KafkaProperties kafkaProperties, SslBundles sslBundles,
+                                                           MeterRegistry meterRegistry, Serializer<V> valueSerializer) {
+        DefaultKafkaProducerFactory<String, V> factory = new DefaultKafkaProducerFactory<>(
+                producerProperties(kafkaProperties, sslBundles), new StringSerializer(), valueSerializer);
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
+    }
+    
+    private Map<String, Object> producerProperties(KafkaProperties kafkaProperties, SslBundles sslBundles) {
+        Map<String, Object> props = kafkaProperties.buildProducerProperties(sslBundles);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        return props;
+    }
+}
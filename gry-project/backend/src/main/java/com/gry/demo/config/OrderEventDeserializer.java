@@ -0,0 +1,80 @@
+package com.gry.demo.config;
+
+import com.gry.demo.dto.OrderEvent;
+import com.gry.demo.entity.OrderStatus;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.List;
+
+public class OrderEventDeserializer implements Deserializer<OrderEvent> {
+    
+    @Override
+    public OrderEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            byte version = buffer.get();
+            if (version != OrderEventSerializer.VERSION && version != OrderEventSerializer.VERSION_WITHOUT_ITEMS) {
+                throw new SerializationException("Unsupported OrderEvent version: " + version);
+            }
+            OrderEvent.Type eventType = type(buffer.get());
+            long orderId = buffer.getLong();
+            long userId = buffer.getLong();
+            OrderStatus oldStatus = status(buffer.get());
+            OrderStatus newStatus = status(buffer.get());
+            Instant timestamp = Instant.ofEpochMilli(buffer.getLong());
+            int scale = buffer.get();
+            int length = buffer.get();
+            BigDecimal totalAmount = null;
+            if (length > 0) {
+                byte[] unscaled = new byte[length];
+                buffer.get(unscaled);
+                totalAmount = new BigDecimal(new BigInteger(unscaled), scale);
+            }
+            List<OrderEvent.Line> items = List.of();
+            if (version == OrderEventSerializer.VERSION) {
+                int count = Short.toUnsignedInt(buffer.getShort());
+                OrderEvent.Line[] lines = new OrderEvent.Line[count];
+                for (int i = 0; i < count; i++) {
+                    lines[i] = new OrderEvent.Line(buffer.getLong(), buffer.getInt());
+                }
+                items = List.of(lines);
+            }
+            return new OrderEvent(eventType, orderId, userId, oldStatus, newStatus, timestamp, totalAmount, items);
+        } catch (BufferUnderflowException e) {
+            throw new SerializationException("Malformed OrderEvent payload of " + data.length + " bytes", e);
+        }
+    }
+    
+    /**
+     * 与 OrderEventSerializer.code 对应。
+     */
+    private static OrderEvent.Type type(byte code) {
+        return switch (code) {
+            case 0 -> OrderEvent.Type.ORDER_CREATED;
+            case 1 -> OrderEvent.Type.ORDER_STATUS_CHANGED;
+            case 2 -> OrderEvent.Type.ORDER_DELETED;
+            default -> throw new SerializationException("Unknown OrderEvent type code: " + code);
+        };
+    }
+    
+    private static OrderStatus status(byte code) {
+        return switch (code) {
+            case OrderEventSerializer.NULL -> null;
+            case 0 -> OrderStatus.PENDING;
+            case 1 -> OrderStatus.PROCESSING;
+            case 2 -> OrderStatus.SHIPPED;
+            case 3 -> OrderStatus.DELIVERED;
+            case 4 -> OrderStatus.CANCELLED;
+            default -> throw new SerializationException("Unknown OrderStatus code: " + code);
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.gry.demo.config;
+
+import com.gry.demo.dto.OrderEvent;
+import com.gry.demo.entity.OrderStatus;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+/**
+ * OrderEvent 的定长二进制编码（大端）：
+ * <pre>
+ * version:1 | eventType:1 | orderId:8 | userId:8 | oldStatus:1 | newStatus:1 | timestamp(epoch ms):8
+ * | amountScale:1 | amountLength:1 | amountUnscaled:amountLength
+ * | itemCount:2 | (productId:8 | quantity:4) * itemCount
+ * </pre>
+ * 事件类型和状态写入固定代码（见 code 方法），与枚举的声明顺序无关，新增枚举值必须分配新代码；
+ * 状态为 null 记为 -1；金额为 null 时 amountLength 为 0。
+ * 版本 1 没有明细部分，反序列化时仍然兼容。
+ */
+public class OrderEventSerializer implements Serializer<OrderEvent> {
+    
+    static final byte VERSION = 2;
+    
+    static final byte VERSION_WITHOUT_ITEMS = 1;
+    
+    static final int FIXED_LENGTH = 1 + 1 + 8 + 8 + 1 + 1 + 8 + 1 + 1;
+    
+    static final int ITEM_LENGTH = 8 + 4;
+    
+    static final int MAX_ITEMS = 0xFFFF;
+    
+    static final int MAX_LENGTH = FIXED_LENGTH + Byte.MAX_VALUE + 2 + MAX_ITEMS * ITEM_LENGTH;
+    
+    static final byte NULL = -1;
+    
+    @Override
+    public byte[] serialize(String topic, OrderEvent event) {
+        if (event == null) {
+            return null;
+        }
+        byte[] unscaled = event.totalAmount() != null 
+                ? event.totalAmount().unscaledValue().toByteArray() 
+                : new byte[0];
+        if (unscaled.length > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Amount too large to encode: " + event.totalAmount());
+        }
+        if (event.items().size() > MAX_ITEMS) {
+            throw new IllegalArgumentException("Too many order items to encode: " + event.items().size());
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_LENGTH + unscaled.length + 2 + event.items().size() * ITEM_LENGTH);
+        buffer.put(VERSION);
+        buffer.put(code(event.eventType()));
+        buffer.putLong(event.orderId());
+        buffer.putLong(event.userId());
+        buffer.put(event.oldStatus() != null ? code(event.oldStatus()) : NULL);
+        buffer.put(event.newStatus() != null ? code(event.newStatus()) : NULL);
+        buffer.putLong(event.timestamp().toEpochMilli());
+        buffer.put(event.totalAmount() != null ? (byte) scale(event.totalAmount()) : 0);
+        buffer.put((byte) unscaled.length);
+        buffer.put(unscaled);
+        buffer.putShort((short) event.items().size());
+        for (OrderEvent.Line item : event.items()) {
+            buffer.putLong(item.productId());
+            buffer.putInt(item.quantity());
+        }
+        return buffer.array();
+    }
+    
+    static byte code(OrderEvent.Type type) {
+        return switch (type) {
+            case ORDER_CREATED -> 0;
+            case ORDER_STATUS_CHANGED -> 1;
+            case ORDER_DELETED -> 2;
+        };
+    }
+    
+    static byte code(OrderStatus status) {
+        return switch (status) {
+            case PENDING -> 0;
+            case PROCESSING -> 1;
+            case SHIPPED -> 2;
+            case DELIVERED -> 3;
+            case CANCELLED -> 4;
+        };
+    }
+    
+    private static int scale(BigDecimal amount) {
+        if (amount.scale() < Byte.MIN_VALUE || amount.scale() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported amount scale: " + amount.scale());
+        }
+        return amount.scale();
+    }
+}
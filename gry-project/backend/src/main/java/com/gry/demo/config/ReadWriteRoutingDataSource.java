@@ -0,0 +1,160 @@
+package com.gry.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离数据源：只读事务（@Transactional(readOnly = true)）的连接取自副本，其余取自主库。
+ * 事务开始时只读标记还没有同步到线程上，所以连接延迟到第一条语句执行时才真正获取（LazyConnectionDataSourceProxy）。
+ * 副本按轮询或当前活跃连接最少挑选；取连接失败的副本在 retry-after 内跳过，所有副本都不可用时退回主库。
+ * 只读事务内途中的查询失败不会切换，照常抛给调用方。
+ */
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+    
+    public enum Selection {
+        ROUND_ROBIN,
+        LEAST_CONNECTIONS
+    }
+    
+    private final HikariDataSource primary;
+    
+    private final List<Replica> replicas;
+    
+    private final Selection selection;
+    
+    private final long retryAfterNanos;
+    
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    
+    private final Counter primaryConnections;
+    
+    private final Counter replicaConnections;
+    
+    private final Counter fallbackConnections;
+    
+    private static final class Replica {
+        
+        private final HikariDataSource dataSource;
+        
+        /**
+         * 0 表示可用，否则为 System.nanoTime() 下可以重试的时间点。
+         */
+        private volatile long unavailableUntil;
+        
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+        
+        private boolean isAvailable(long now) {
+            long until = unavailableUntil;
+            return until == 0 || now - until >= 0;
+        }
+        
+        private int activeConnections() {
+            return dataSource.getHikariPoolMXBean() != null ? dataSource.getHikariPoolMXBean().getActiveConnections() : 0;
+        }
+    }
+    
+    public ReadWriteRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas, Selection selection,
+                                      Duration retryAfter, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.selection = selection;
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.primaryConnections = routeCounter(meterRegistry, "primary");
+        this.replicaConnections = routeCounter(meterRegistry, "replica");
+        this.fallbackConnections = routeCounter(meterRegistry, "fallback");
+        setTargetDataSource(new Router());
+        afterPropertiesSet();
+    }
+    
+    private static Counter routeCounter(MeterRegistry meterRegistry, String route) {
+        return Counter.builder("gry.datasource.connections")
+                .description("Physical connections handed out by the read/write routing data source")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+    
+    @Override
+    public void close() {
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+        primary.close();
+    }
+    
+    private void markUnavailable(Replica replica, SQLException e) {
+        replica.unavailableUntil = System.nanoTime() + retryAfterNanos;
+        logger.warn("Replica {} unavailable, skipping it for {} ms: {}", replica.dataSource.getPoolName(),
+                retryAfterNanos / 1_000_000, e.getMessage());
+    }
+    
+    private final class Router extends AbstractDataSource {
+        
+        @Override
+        public Connection getConnection() throws SQLException {
+            boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+            if (!readOnly || replicas.isEmpty() || ReadYourWrites.isPinnedToPrimary()) {
+                if (!readOnly && TransactionSynchronizationManager.isActualTransactionActive()) {
+                    ReadYourWrites.markWritten();
+                }
+                primaryConnections.increment();
+                return primary.getConnection();
+            }
+            for (Replica replica : candidates()) {
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    replica.unavailableUntil = 0;
+                    replicaConnections.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    markUnavailable(replica, e);
+                }
+            }
+            fallbackConnections.increment();
+            return primary.getConnection();
+        }
+        
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLFeatureNotSupportedException("Routing data source uses the pool credentials");
+        }
+        
+        /**
+         * 可用的副本，轮询起点每次后移一位；按连接数挑选时再做稳定排序，连接数相同的仍然轮流。
+         */
+        private List<Replica> candidates() {
+            long now = System.nanoTime();
+            int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+            List<Replica> candidates = new ArrayList<>(replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get((start + i) % replicas.size());
+                if (replica.isAvailable(now)) {
+                    candidates.add(replica);
+                }
+            }
+            if (selection == Selection.LEAST_CONNECTIONS && candidates.size() > 1) {
+                candidates.sort(Comparator.comparingInt(Replica::activeConnections));
+            }
+            return candidates;
+        }
+    }
+}
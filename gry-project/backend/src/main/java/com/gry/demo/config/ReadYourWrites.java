@@ -0,0 +1,50 @@
+package com.gry.demo.config;
+
+/**
+ * 读己之写：一个 HTTP 请求内发生写事务后，同一请求里后续的只读事务也走主库，避免读到副本上还没同步的数据。
+ * 状态绑定在线程上，由 ReadYourWritesFilter 按请求开启；没有开启时只读事务照常走副本。
+ */
+public final class ReadYourWrites {
+    
+    private static final ThreadLocal<Session> CURRENT = new ThreadLocal<>();
+    
+    private ReadYourWrites() {
+    }
+    
+    public static final class Session implements AutoCloseable {
+        
+        private boolean written;
+        
+        private Session() {
+        }
+        
+        public boolean hasWritten() {
+            return written;
+        }
+        
+        @Override
+        public void close() {
+            if (CURRENT.get() == this) {
+                CURRENT.remove();
+            }
+        }
+    }
+    
+    public static Session open() {
+        Session session = new Session();
+        CURRENT.set(session);
+        return session;
+    }
+    
+    static boolean isPinnedToPrimary() {
+        Session session = CURRENT.get();
+        return session != null && session.written;
+    }
+    
+    static void markWritten() {
+        Session session = CURRENT.get();
+        if (session != null) {
+            session.written = true;
+        }
+    }
+}
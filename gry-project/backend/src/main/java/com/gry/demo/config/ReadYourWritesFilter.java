@@ -0,0 +1,23 @@
+package com.gry.demo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 每个 HTTP 请求一个 ReadYourWrites 会话，由 DataSourceRoutingConfig 在开启读写分离时注册。
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try (ReadYourWrites.Session ignored = ReadYourWrites.open()) {
+            chain.doFilter(request, response);
+        }
+    }
+}
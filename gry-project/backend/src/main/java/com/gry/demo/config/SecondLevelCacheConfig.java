@@ -0,0 +1,156 @@
+package com.gry.demo.config;
+
+import com.gry.demo.repository.ProductRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.impl.serialization.PlainJavaSerializer;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Hibernate 二级缓存（JCache，由 Ehcache 3 实现）：User、Product 实体各一个区域，findAvailableProducts 用单独的查询缓存区域。
+ * 每个区域分别设定堆内条目上限、堆外容量（0 为不用堆外层）和存活时间，超出上限时按 Ehcache 的近似 LRU 淘汰。
+ * 缓存只在本实例内，其他实例的修改靠 ProductCache 的失效通知和存活时间收敛。
+ * 实体区域的命中、未命中、写入由 hibernate-micrometer 导出为 hibernate.second.level.cache.*，
+ * 查询区域导出为 gry.hibernate.query.cache.*。
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+    
+    public static final String USERS_REGION = "users";
+    
+    public static final String PRODUCTS_REGION = "products";
+    
+    @Value("${gry.hibernate-cache.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${gry.hibernate-cache.users.heap-entries:10000}")
+    private long usersHeapEntries;
+    
+    @Value("${gry.hibernate-cache.users.offheap-mb:0}")
+    private long usersOffheapMb;
+    
+    @Value("${gry.hibernate-cache.users.time-to-live:PT10M}")
+    private Duration usersTimeToLive;
+    
+    @Value("${gry.hibernate-cache.products.heap-entries:10000}")
+    private long productsHeapEntries;
+    
+    @Value("${gry.hibernate-cache.products.offheap-mb:32}")
+    private long productsOffheapMb;
+    
+    @Value("${gry.hibernate-cache.products.time-to-live:PT5M}")
+    private Duration productsTimeToLive;
+    
+    @Value("${gry.hibernate-cache.available-products.heap-entries:500}")
+    private long availableProductsHeapEntries;
+    
+    @Value("${gry.hibernate-cache.available-products.time-to-live:PT30S}")
+    private Duration availableProductsTimeToLive;
+    
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer() {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, enabled);
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, enabled);
+            if (!enabled) {
+                return;
+            }
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager());
+            hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            hibernateProperties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+    
+    /**
+     * 查询缓存区域的统计，hibernate-micrometer 只导出实体区域。
+     */
+    @Bean
+    public MeterBinder queryCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            String region = ProductRepository.AVAILABLE_PRODUCTS_REGION;
+            queryCacheCounter(registry, "gry.hibernate.query.cache.requests", statistics, region,
+                    CacheRegionStatistics::getHitCount, "result", "hit");
+            queryCacheCounter(registry, "gry.hibernate.query.cache.requests", statistics, region,
+                    CacheRegionStatistics::getMissCount, "result", "miss");
+            queryCacheCounter(registry, "gry.hibernate.query.cache.puts", statistics, region,
+                    CacheRegionStatistics::getPutCount);
+        };
+    }
+    
+    private static void queryCacheCounter(MeterRegistry registry, String name, Statistics statistics, String region,
+                                          ToDoubleFunction<CacheRegionStatistics> count, String... tags) {
+        FunctionCounter.builder(name, statistics, stats -> {
+                    // 区域在第一次查询时才创建
+                    CacheRegionStatistics regionStatistics = stats.getQueryRegionStatistics(region);
+                    return regionStatistics != null ? count.applyAsDouble(regionStatistics) : 0;
+                })
+                .tags(tags)
+                .tag("region", region)
+                .register(registry);
+    }
+    
+    /**
+     * Hibernate 关闭时会关闭这个 CacheManager。URI 每次不同，测试中并存的多个应用上下文不会共用缓存。
+     */
+    private CacheManager cacheManager() {
+        EhcacheCachingProvider provider =
+                (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(URI.create("urn:gry:hibernate:" + UUID.randomUUID()),
+                ConfigurationBuilder.newConfigurationBuilder().build());
+        cacheManager.createCache(USERS_REGION, region(usersHeapEntries, usersOffheapMb, usersTimeToLive));
+        cacheManager.createCache(PRODUCTS_REGION, region(productsHeapEntries, productsOffheapMb, productsTimeToLive));
+        cacheManager.createCache(ProductRepository.AVAILABLE_PRODUCTS_REGION,
+                region(availableProductsHeapEntries, 0, availableProductsTimeToLive));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                region(1000, 0, Duration.ofMinutes(5)));
+        // 表的最后修改时间，查询缓存据此判断结果是否过期，不能先于查询结果淘汰
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                region(1000, 0, null));
+        return cacheManager;
+    }
+    
+    private javax.cache.configuration.Configuration<Object, Object> region(long heapEntries, long offheapMb,
+                                                                          Duration timeToLive) {
+        ResourcePoolsBuilder pools = ResourcePoolsBuilder.heap(heapEntries);
+        if (offheapMb > 0) {
+            pools = pools.offheap(offheapMb, MemoryUnit.MB);
+        }
+        CacheConfigurationBuilder<Object, Object> builder =
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, pools)
+                        .withExpiry(timeToLive != null ? ExpiryPolicyBuilder.timeToLiveExpiration(timeToLive)
+                                : ExpiryPolicyBuilder.noExpiration());
+        if (offheapMb > 0) {
+            // 堆外层存放序列化后的条目，Hibernate 的缓存键和条目都实现了 Serializable
+            builder = builder.withKeySerializer(new PlainJavaSerializer<>(getClass().getClassLoader()))
+                    .withValueSerializer(new PlainJavaSerializer<>(getClass().getClassLoader()));
+        }
+        return Eh107Configuration.fromEhcacheCacheConfiguration(builder);
+    }
+}
@@ -0,0 +1,259 @@
+package com.gry.demo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 汇总各操作（HTTP 接口、Kafka 监听）每次执行的 SQL 统计，导出指标并检查两条护栏：
+ * 单个请求 / 单条消息的语句数不超过 max-statements；同一条 SQL 在一次执行中重复不超过 n-plus-one-threshold 次。
+ * 越界只记录日志、计数并保留最近的若干条，不影响请求本身；测试中用 SqlStatisticsAssertions 卡住上限。
+ */
+@Component
+public class SqlStatementMonitor {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementMonitor.class);
+    
+    private static final int RECENT_VIOLATIONS = 50;
+    
+    private static final int MAX_SQL_LENGTH = 500;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${gry.sql.guardrails.max-statements:30}")
+    private int maxStatements;
+    
+    @Value("${gry.sql.guardrails.n-plus-one-threshold:5}")
+    private int nPlusOneThreshold;
+    
+    private final Map<String, OperationStatistics> operations = new ConcurrentHashMap<>();
+    
+    private final Deque<Violation> recentViolations = new ArrayDeque<>();
+    
+    public record Violation(Instant at, String source, String operation, String type, long statements,
+                            long messages, String sql, long repeats) {
+    }
+    
+    public record OperationSummary(String source, String operation, long executions, long messages,
+                                   double avgStatements, long maxStatements, double avgRows, long maxRows,
+                                   double avgMillis, double maxMillis, long violations) {
+    }
+    
+    public record Report(int maxStatementsPerExecution, int nPlusOneThreshold, List<OperationSummary> operations,
+                         List<Violation> recentViolations) {
+    }
+    
+    private static final class OperationStatistics {
+        
+        private final String source;
+        
+        private final String operation;
+        
+        private long executions;
+        
+        private long messages;
+        
+        private long statements;
+        
+        private long maxStatements;
+        
+        private long rows;
+        
+        private long maxRows;
+        
+        private long nanos;
+        
+        private long maxNanos;
+        
+        private long violations;
+        
+        private OperationStatistics(String source, String operation) {
+            this.source = source;
+            this.operation = operation;
+        }
+        
+        private synchronized void add(SqlStatistics.Snapshot snapshot, int messageCount, boolean violated) {
+            executions++;
+            messages += messageCount;
+            statements += snapshot.statements();
+            maxStatements = Math.max(maxStatements, snapshot.statements());
+            rows += snapshot.rows();
+            maxRows = Math.max(maxRows, snapshot.rows());
+            nanos += snapshot.executionNanos();
+            maxNanos = Math.max(maxNanos, snapshot.executionNanos());
+            if (violated) {
+                violations++;
+            }
+        }
+        
+        private synchronized OperationSummary summary() {
+            double millis = TimeUnit.MILLISECONDS.toNanos(1);
+            return new OperationSummary(source, operation, executions, messages,
+                    executions == 0 ? 0 : (double) statements / executions, maxStatements,
+                    executions == 0 ? 0 : (double) rows / executions, maxRows,
+                    executions == 0 ? 0 : nanos / millis / executions, maxNanos / millis, violations);
+        }
+    }
+    
+    /**
+     * 记录一次执行。source 为 http 或 kafka；messages 为这次处理的消息数，HTTP 请求为 1，
+     * 批量监听按每条消息的平均语句数检查上限。
+     */
+    public void record(String source, String operation, int messages, SqlStatistics.Snapshot snapshot) {
+        DistributionSummary.builder("gry.sql.statements")
+                .description("SQL statements per HTTP request or Kafka delivery")
+                .tags("source", source, "operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(snapshot.statements());
+        DistributionSummary.builder("gry.sql.rows")
+                .description("Rows read or written per HTTP request or Kafka delivery")
+                .tags("source", source, "operation", operation)
+                .register(meterRegistry)
+                .record(snapshot.rows());
+        Timer.builder("gry.sql.execution")
+                .description("Time spent executing SQL per HTTP request or Kafka delivery")
+                .tags("source", source, "operation", operation)
+                .register(meterRegistry)
+                .record(snapshot.executionNanos(), TimeUnit.NANOSECONDS);
+        
+        boolean violated = false;
+        long perMessage = (snapshot.statements() + Math.max(1, messages) - 1) / Math.max(1, messages);
+        if (perMessage > maxStatements) {
+            violated = true;
+            violation(new Violation(Instant.now(), source, operation, "statement-budget", snapshot.statements(),
+                    messages, truncate(snapshot.mostRepeatedSql()), snapshot.mostRepeatedCount()));
+            logger.warn("{} {} executed {} SQL statements for {} message(s), limit is {} per message",
+                    source, operation, snapshot.statements(), messages, maxStatements);
+        }
+        if (snapshot.mostRepeatedCount() >= nPlusOneThreshold) {
+            violated = true;
+            violation(new Violation(Instant.now(), source, operation, "n-plus-one", snapshot.statements(),
+                    messages, truncate(snapshot.mostRepeatedSql()), snapshot.mostRepeatedCount()));
+            logger.warn("Possible N+1 in {} {}: statement executed {} times: {}",
+                    source, operation, snapshot.mostRepeatedCount(), truncate(snapshot.mostRepeatedSql()));
+        }
+        operations.computeIfAbsent(source + " " + operation, key -> new OperationStatistics(source, operation))
+                .add(snapshot, messages, violated);
+    }
+    
+    /**
+     * 单条消息监听用的拦截器，按主题统计每条消息。
+     */
+    public <K, V> RecordInterceptor<K, V> recordInterceptor() {
+        ThreadLocal<SqlStatistics.Scope> scopes = new ThreadLocal<>();
+        return new RecordInterceptor<>() {
+            @Override
+            public ConsumerRecord<K, V> intercept(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+                scopes.set(SqlStatistics.open());
+                return record;
+            }
+            
+            @Override
+            public void afterRecord(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+                SqlStatistics.Scope scope = scopes.get();
+                if (scope != null) {
+                    scopes.remove();
+                    scope.close();
+                    record("kafka", record.topic(), 1, scope.snapshot());
+                }
+            }
+        };
+    }
+    
+    /**
+     * 批量监听用的拦截器，每批记一次，上限按每条消息的平均语句数检查。
+     * 监听方法把记录分给其他线程处理时，需用 SqlStatistics.wrap 包装任务才能计入。
+     */
+    public <K, V> BatchInterceptor<K, V> batchInterceptor(String listener) {
+        ThreadLocal<SqlStatistics.Scope> scopes = new ThreadLocal<>();
+        return new BatchInterceptor<>() {
+            @Override
+            public ConsumerRecords<K, V> intercept(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+                scopes.set(SqlStatistics.open());
+                return records;
+            }
+            
+            @Override
+            public void success(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+                complete(records);
+            }
+            
+            @Override
+            public void failure(ConsumerRecords<K, V> records, Exception exception, Consumer<K, V> consumer) {
+                complete(records);
+            }
+            
+            private void complete(ConsumerRecords<K, V> records) {
+                SqlStatistics.Scope scope = scopes.get();
+                if (scope != null) {
+                    scopes.remove();
+                    scope.close();
+                    record("kafka", listener, records.count(), scope.snapshot());
+                }
+            }
+        };
+    }
+    
+    /**
+     * 各操作按单次最多语句数从高到低排列。
+     */
+    public Report report() {
+        List<OperationSummary> summaries = new ArrayList<>();
+        for (OperationStatistics statistics : operations.values()) {
+            summaries.add(statistics.summary());
+        }
+        summaries.sort(Comparator.comparingLong(OperationSummary::maxStatements).reversed());
+        List<Violation> violations;
+        synchronized (recentViolations) {
+            violations = new ArrayList<>(recentViolations);
+        }
+        return new Report(maxStatements, nPlusOneThreshold, summaries, violations);
+    }
+    
+    public void reset() {
+        operations.clear();
+        synchronized (recentViolations) {
+            recentViolations.clear();
+        }
+    }
+    
+    private void violation(Violation violation) {
+        Counter.builder("gry.sql.guardrail.violations")
+                .tags("source", violation.source(), "operation", violation.operation(), "type", violation.type())
+                .register(meterRegistry)
+                .increment();
+        synchronized (recentViolations) {
+            if (recentViolations.size() == RECENT_VIOLATIONS) {
+                recentViolations.removeLast();
+            }
+            recentViolations.addFirst(violation);
+        }
+    }
+    
+    private static String truncate(String sql) {
+        return sql == null || sql.length() <= MAX_SQL_LENGTH ? sql : sql.substring(0, MAX_SQL_LENGTH) + "...";
+    }
+}
@@ -0,0 +1,133 @@
+package com.gry.demo.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一段工作（一个 HTTP 请求、一条或一批 Kafka 消息）内执行的 SQL 统计：语句数、行数、执行耗时，
+ * 以及每条 SQL 文本的执行次数，同一文本反复执行通常就是 N+1。
+ * 作用域绑定在线程上，可以嵌套，内层的语句同时计入外层；交给其他线程的任务用 wrap 带上当前作用域。
+ */
+public final class SqlStatistics {
+    
+    /**
+     * 单个作用域内跟踪的不同 SQL 文本上限，超出后只计总数。
+     */
+    private static final int MAX_DISTINCT_SQL = 512;
+    
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+    
+    private SqlStatistics() {
+    }
+    
+    public record Snapshot(long statements, long rows, long executionNanos, String mostRepeatedSql,
+                           long mostRepeatedCount) {
+        
+        public double executionMillis() {
+            return executionNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+    
+    public static final class Scope implements AutoCloseable {
+        
+        private final Scope parent;
+        
+        private final LongAdder statements = new LongAdder();
+        
+        private final LongAdder rows = new LongAdder();
+        
+        private final LongAdder executionNanos = new LongAdder();
+        
+        private final Map<String, LongAdder> executionsBySql = new ConcurrentHashMap<>();
+        
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+        
+        public Snapshot snapshot() {
+            String mostRepeatedSql = null;
+            long mostRepeatedCount = 0;
+            for (Map.Entry<String, LongAdder> entry : executionsBySql.entrySet()) {
+                long count = entry.getValue().sum();
+                if (count > mostRepeatedCount) {
+                    mostRepeatedSql = entry.getKey();
+                    mostRepeatedCount = count;
+                }
+            }
+            return new Snapshot(statements.sum(), rows.sum(), executionNanos.sum(), mostRepeatedSql,
+                    mostRepeatedCount);
+        }
+        
+        @Override
+        public void close() {
+            if (CURRENT.get() == this) {
+                if (parent != null) {
+                    CURRENT.set(parent);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        }
+    }
+    
+    /**
+     * 在当前线程上开始一个作用域，已有作用域时作为其内层。
+     */
+    public static Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+    
+    /**
+     * 让任务在执行线程上计入提交时的作用域。
+     */
+    public static Runnable wrap(Runnable task) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            Scope previous = CURRENT.get();
+            CURRENT.set(scope);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+    
+    static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+    
+    static void recordStatement(String sql, long nanos, long rows) {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.statements.increment();
+            scope.executionNanos.add(nanos);
+            scope.rows.add(rows);
+            if (sql != null) {
+                LongAdder executions = scope.executionsBySql.get(sql);
+                if (executions == null && scope.executionsBySql.size() < MAX_DISTINCT_SQL) {
+                    executions = scope.executionsBySql.computeIfAbsent(sql, key -> new LongAdder());
+                }
+                if (executions != null) {
+                    executions.increment();
+                }
+            }
+        }
+    }
+    
+    static void recordRows(long rows) {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.rows.add(rows);
+        }
+    }
+}
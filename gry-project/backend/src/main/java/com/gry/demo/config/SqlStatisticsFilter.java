@@ -0,0 +1,113 @@
+package com.gry.demo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * 每个 HTTP 请求在请求线程上执行的 SQL（含序列化响应时触发的懒加载）按 "method uri模板" 交给 SqlStatementMonitor。
+ * 流式响应在异步线程中写出的部分不计入。
+ * 开启 response-header 时在响应头 X-SQL-Statistics 中返回本次请求的统计；
+ * 为此响应体先缓冲、统计完成后再写出，只应在开发环境开启。
+ * 流式导出等响应调用 {@link #streaming} 后直接写出、不缓冲，也就没有统计响应头，统计仍交给 SqlStatementMonitor。
+ */
+@Component
+public class SqlStatisticsFilter extends OncePerRequestFilter {
+    
+    public static final String HEADER = "X-SQL-Statistics";
+    
+    private static final String STREAMING_ATTRIBUTE = SqlStatisticsFilter.class.getName() + ".STREAMING";
+    
+    @Autowired
+    private SqlStatementMonitor sqlStatementMonitor;
+    
+    @Value("${gry.sql.statistics.response-header:false}")
+    private boolean responseHeader;
+    
+    /**
+     * 在取得输出流之前调用：本次响应体不再缓冲，边生成边写出，内存占用与响应大小无关。
+     */
+    public static void streaming(HttpServletRequest request) {
+        request.setAttribute(STREAMING_ATTRIBUTE, Boolean.TRUE);
+    }
+    
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // 异步请求的缓冲响应在最后一次分派结束时写出
+        return !responseHeader;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                ContentCachingResponseWrapper cached =
+                        WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+                if (cached != null && !isAsyncStarted(request)) {
+                    cached.copyBodyToResponse();
+                }
+            }
+            return;
+        }
+        
+        ContentCachingResponseWrapper cached = responseHeader ? new StreamableResponseWrapper(request, response) : null;
+        SqlStatistics.Scope scope = SqlStatistics.open();
+        try {
+            chain.doFilter(request, cached != null ? cached : response);
+        } finally {
+            scope.close();
+            SqlStatistics.Snapshot snapshot = scope.snapshot();
+            if (cached != null && !isAsyncStarted(request) && !isStreaming(request)) {
+                cached.setHeader(HEADER, String.format(Locale.ROOT, "statements=%d; rows=%d; time=%.2fms",
+                        snapshot.statements(), snapshot.rows(), snapshot.executionMillis()));
+                cached.copyBodyToResponse();
+            }
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            sqlStatementMonitor.record("http", request.getMethod() + " " + (pattern != null ? pattern : "UNKNOWN"),
+                    1, snapshot);
+        }
+    }
+    
+    private static boolean isStreaming(HttpServletRequest request) {
+        return request.getAttribute(STREAMING_ATTRIBUTE) != null;
+    }
+    
+    /**
+     * 缓冲响应体，但请求已标记为流式时把输出流和 writer 直接交给底层响应。
+     */
+    private static class StreamableResponseWrapper extends ContentCachingResponseWrapper {
+        
+        private final HttpServletRequest request;
+        
+        StreamableResponseWrapper(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+            this.request = request;
+        }
+        
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            return isStreaming(request) ? getResponse().getOutputStream() : super.getOutputStream();
+        }
+        
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            return isStreaming(request) ? getResponse().getWriter() : super.getWriter();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.gry.demo.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 把 SQL 执行计入当前线程的 SqlStatistics 作用域，Hibernate 和 JdbcTemplate 发出的语句都经过这里。
+ * 每次 execute/executeQuery/executeUpdate/executeBatch 计一条（一个批次算一次往返）；
+ * 行数为查询读到的行加上更新影响的行，耗时只含 execute 调用本身，不含逐行读取结果。
+ * 线程上没有作用域时只做转发。
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+    
+    public StatementCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+    
+    private static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement
+                            && (method.getName().startsWith("prepare") || method.getName().equals("createStatement"))) {
+                        String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                        return wrapStatement(statement, method.getReturnType(), sql);
+                    }
+                    return result;
+                });
+    }
+    
+    private static Object wrapStatement(Statement statement, Class<?> statementType, String preparedSql) {
+        return Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[] {statementType}, (proxy, method, args) -> {
+                    if (!SqlStatistics.isActive()) {
+                        return invoke(statement, method, args);
+                    }
+                    if (!method.getName().startsWith("execute")) {
+                        Object result = invoke(statement, method, args);
+                        return result instanceof ResultSet resultSet ? wrapResultSet(resultSet) : result;
+                    }
+                    long start = System.nanoTime();
+                    Object result = invoke(statement, method, args);
+                    long nanos = System.nanoTime() - start;
+                    String sql = preparedSql != null ? preparedSql
+                            : args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                    // execute 返回 false 表示结果是更新计数
+                    long rows = Boolean.FALSE.equals(result) ? Math.max(0, statement.getUpdateCount())
+                            : affectedRows(result);
+                    SqlStatistics.recordStatement(sql, nanos, rows);
+                    return result instanceof ResultSet resultSet ? wrapResultSet(resultSet) : result;
+                });
+    }
+    
+    private static ResultSet wrapResultSet(ResultSet resultSet) {
+        return (ResultSet) Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                    Object result = invoke(resultSet, method, args);
+                    if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                        SqlStatistics.recordRows(1);
+                    }
+                    return result;
+                });
+    }
+    
+    private static long affectedRows(Object result) {
+        if (result instanceof Number count) {
+            return Math.max(0, count.longValue());
+        }
+        long rows = 0;
+        if (result instanceof int[] counts) {
+            for (int count : counts) {
+                rows += Math.max(0, count);
+            }
+        } else if (result instanceof long[] counts) {
+            for (long count : counts) {
+                rows += Math.max(0, count);
+            }
+        }
+        return rows;
+    }
+    
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -1,45 +1,68 @@
 package com.gry.demo.controller;
 
+import com.gry.demo.config.SqlStatisticsFilter;
 import com.gry.demo.dto.ApiResponse;
+import com.gry.demo.dto.CursorSlice;
+import com.gry.demo.dto.ExportFormat;
+import com.gry.demo.dto.OrderDetail;
 import com.gry.demo.dto.OrderDto;
+import com.gry.demo.dto.OrderSummary;
 import com.gry.demo.entity.Order;
 import com.gry.demo.entity.OrderStatus;
+import com.gry.demo.service.OrderExportService;
 import com.gry.demo.service.OrderService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
+
 @RestController
 @RequestMapping("/api/orders")
 @CrossOrigin(origins = "http://localhost:3000")
 public class OrderController {
     
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    
     @Autowired
     private OrderService orderService;
     
+    @Autowired
+    private OrderExportService orderExportService;
+    
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<Order>> getOrderById(@PathVariable Long id) {
-        Order order = orderService.getOrderWithDetails(id);
+    public ResponseEntity<ApiResponse<OrderDetail>> getOrderById(@PathVariable Long id) {
+        OrderDetail order = orderService.getOrderDetail(id);
         return ResponseEntity.ok(ApiResponse.success("获取订单信息成功", order));
     }
     
     @PostMapping
-    public ResponseEntity<ApiResponse<Order>> createOrder(@Valid @RequestBody OrderDto orderDto) {
+    public ResponseEntity<ApiResponse<OrderDetail>> createOrder(@Valid @RequestBody OrderDto orderDto) {
         Order createdOrder = orderService.createOrder(orderDto);
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(ApiResponse.success("订单创建成功", createdOrder));
+                .body(ApiResponse.success("订单创建成功", OrderDetail.of(createdOrder)));
     }
     
     @PutMapping("/{id}/status")
-    public ResponseEntity<ApiResponse<Order>> updateOrderStatus(@PathVariable Long id, 
-                                                               @RequestParam OrderStatus status) {
+    public ResponseEntity<ApiResponse<OrderSummary>> updateOrderStatus(@PathVariable Long id, 
+                                                                      @RequestParam OrderStatus status) {
         Order updatedOrder = orderService.updateOrderStatus(id, status);
-        return ResponseEntity.ok(ApiResponse.success("订单状态更新成功", updatedOrder));
+        return ResponseEntity.ok(ApiResponse.success("订单状态更新成功", OrderSummary.of(updatedOrder)));
     }
     
     @DeleteMapping("/{id}")
@@ -49,24 +72,24 @@ public class OrderController {
     }
     
     @GetMapping("/user/{userId}")
-    public ResponseEntity<ApiResponse<Page<Order>>> getOrdersByUserId(
+    public ResponseEntity<ApiResponse<Page<OrderDetail>>> getOrdersByUserId(
             @PathVariable Long userId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<Order> orders = orderService.getOrdersByUserId(userId, pageable);
+        Page<OrderDetail> orders = orderService.getOrdersByUserId(userId, pageable);
         return ResponseEntity.ok(ApiResponse.success("获取用户订单列表成功", orders));
     }
     
     @GetMapping
-    public ResponseEntity<ApiResponse<Page<Order>>> getAllOrders(
+    public ResponseEntity<ApiResponse<Page<OrderSummary>>> getAllOrders(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) OrderStatus status) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<Order> orders;
+        Page<OrderSummary> orders;
         
         if (status != null) {
             orders = orderService.getOrdersByStatus(status, pageable);
@@ -77,6 +100,47 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success("获取订单列表成功", orders));
     }
     
+    @GetMapping("/scroll")
+    public ResponseEntity<ApiResponse<CursorSlice<OrderSummary>>> scrollOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") @Min(value = 1, message = "每页条数必须大于0")
+            @Max(value = CursorSlice.MAX_SIZE, message = "每页条数不能超过" + CursorSlice.MAX_SIZE) int size,
+            @RequestParam(required = false) OrderStatus status) {
+        
+        CursorSlice<OrderSummary> orders = orderService.scrollOrders(status, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("获取订单列表成功", orders));
+    }
+    
+    /**
+     * 流式导出创建时间在 [from, to) 内的订单（NDJSON 或 CSV），边查边写，内存占用与时间范围无关；
+     * gzip=true 时输出 gzip 压缩文件。
+     */
+    @GetMapping("/export")
+    public void exportOrders(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                             @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+                             @RequestParam(defaultValue = "false") boolean gzip,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        orderExportService.checkDateRange(from, to);
+        
+        String filename = "orders-" + from.toLocalDate() + "-" + to.toLocalDate() + "." + format.getExtension();
+        response.setContentType(gzip ? "application/gzip" : format.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(gzip ? filename + ".gz" : filename).build().toString());
+        
+        SqlStatisticsFilter.streaming(request);
+        OutputStream out = response.getOutputStream();
+        if (gzip) {
+            try (GZIPOutputStream compressed = new GZIPOutputStream(out, EXPORT_BUFFER_SIZE)) {
+                orderExportService.exportOrders(from, to, format, compressed);
+            }
+        } else {
+            orderExportService.exportOrders(from, to, format, out);
+            out.flush();
+        }
+    }
+    
     @GetMapping("/user/{userId}/count")
     public ResponseEntity<ApiResponse<Long>> countUserOrdersByStatus(
             @PathVariable Long userId,
@@ -0,0 +1,23 @@
+package com.gry.demo.controller;
+
+import com.gry.demo.service.OrderStatusCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * 运维入口：POST /actuator/orderstatuscounts 从 orders 全量重算订单状态计数。
+ */
+@Component
+@Endpoint(id = "orderstatuscounts")
+public class OrderStatusCountsEndpoint {
+    
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+    
+    @WriteOperation
+    public OrderStatusCounter.Rebuild rebuild() {
+        return orderStatusCounter.rebuild();
+    }
+}
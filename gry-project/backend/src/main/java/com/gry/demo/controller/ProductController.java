@@ -1,10 +1,20 @@
 package com.gry.demo.controller;
 
 import com.gry.demo.dto.ApiResponse;
+import com.gry.demo.dto.BulkImportResult;
+import com.gry.demo.dto.CursorSlice;
+import com.gry.demo.dto.ProductDetail;
 import com.gry.demo.dto.ProductDto;
+import com.gry.demo.dto.ProductSales;
+import com.gry.demo.dto.ProductSummary;
 import com.gry.demo.entity.Product;
+import com.gry.demo.service.BulkImportService;
 import com.gry.demo.service.ProductService;
+import com.gry.demo.service.SalesAggregator;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -13,7 +23,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/products")
@@ -23,24 +36,39 @@ public class ProductController {
     @Autowired
     private ProductService productService;
     
+    @Autowired
+    private BulkImportService bulkImportService;
+    
+    @Autowired
+    private SalesAggregator salesAggregator;
+    
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<Product>> getProductById(@PathVariable Long id) {
-        Product product = productService.getProductById(id);
+    public ResponseEntity<ApiResponse<ProductDetail>> getProductById(@PathVariable Long id) {
+        ProductDetail product = productService.getProductDetail(id);
         return ResponseEntity.ok(ApiResponse.success("获取产品信息成功", product));
     }
     
     @PostMapping
-    public ResponseEntity<ApiResponse<Product>> createProduct(@Valid @RequestBody ProductDto productDto) {
+    public ResponseEntity<ApiResponse<ProductDetail>> createProduct(@Valid @RequestBody ProductDto productDto) {
         Product createdProduct = productService.createProduct(productDto);
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(ApiResponse.success("产品创建成功", createdProduct));
+                .body(ApiResponse.success("产品创建成功", ProductDetail.of(createdProduct)));
+    }
+    
+    /**
+     * 以 NDJSON 流式导入，每行一个对象；行级错误按块汇总在结果中返回。
+     */
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    public ResponseEntity<ApiResponse<BulkImportResult>> bulkImportProducts(HttpServletRequest request) throws IOException {
+        BulkImportResult result = bulkImportService.importProducts(request.getInputStream());
+        return ResponseEntity.ok(ApiResponse.success("产品批量导入完成", result));
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<ApiResponse<Product>> updateProduct(@PathVariable Long id, 
-                                                             @Valid @RequestBody ProductDto productDto) {
+    public ResponseEntity<ApiResponse<ProductDetail>> updateProduct(@PathVariable Long id, 
+                                                                   @Valid @RequestBody ProductDto productDto) {
         Product updatedProduct = productService.updateProduct(id, productDto);
-        return ResponseEntity.ok(ApiResponse.success("产品更新成功", updatedProduct));
+        return ResponseEntity.ok(ApiResponse.success("产品更新成功", ProductDetail.of(updatedProduct)));
     }
     
     @DeleteMapping("/{id}")
@@ -50,7 +78,7 @@ public class ProductController {
     }
     
     @GetMapping
-    public ResponseEntity<ApiResponse<Page<Product>>> getAllProducts(
+    public ResponseEntity<ApiResponse<Page<ProductSummary>>> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String name,
@@ -59,7 +87,7 @@ public class ProductController {
             @RequestParam(required = false) Boolean inStock) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<Product> products;
+        Page<ProductSummary> products;
         
         if (name != null || minPrice != null || maxPrice != null || inStock != null) {
             products = productService.searchProducts(name, minPrice, maxPrice, inStock, pageable);
@@ -70,20 +98,53 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success("获取产品列表成功", products));
     }
     
+    @GetMapping("/scroll")
+    public ResponseEntity<ApiResponse<CursorSlice<ProductSummary>>> scrollProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") @Min(value = 1, message = "每页条数必须大于0")
+            @Max(value = CursorSlice.MAX_SIZE, message = "每页条数不能超过" + CursorSlice.MAX_SIZE) int size) {
+        
+        CursorSlice<ProductSummary> products = productService.scrollProducts(cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("获取产品列表成功", products));
+    }
+    
     @GetMapping("/available")
-    public ResponseEntity<ApiResponse<Page<Product>>> getAvailableProducts(
+    public ResponseEntity<ApiResponse<Page<ProductSummary>>> getAvailableProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<Product> products = productService.getAvailableProducts(pageable);
+        Page<ProductSummary> products = productService.getAvailableProducts(pageable);
         return ResponseEntity.ok(ApiResponse.success("获取可用产品列表成功", products));
     }
     
+    /**
+     * 销量排行：不带 window 时为累计销量（精确），带 window（如 PT1H）时为该时间窗口内的下单量估计值。
+     */
+    @GetMapping("/top-selling")
+    public ResponseEntity<ApiResponse<List<ProductSales>>> getTopSelling(
+            @RequestParam(required = false) Duration window,
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        List<ProductSales> top = window != null
+                ? salesAggregator.getTopSelling(window, limit)
+                : salesAggregator.getTopSelling(limit);
+        return ResponseEntity.ok(ApiResponse.success("获取销量排行成功", top));
+    }
+    
+    @GetMapping("/{id}/sales")
+    public ResponseEntity<ApiResponse<ProductSales>> getProductSales(@PathVariable Long id,
+                                                                     @RequestParam(required = false) Duration window) {
+        long unitsSold = window != null
+                ? salesAggregator.getUnitsSold(id, window)
+                : salesAggregator.getUnitsSold(id);
+        return ResponseEntity.ok(ApiResponse.success("获取产品销量成功", new ProductSales(id, unitsSold)));
+    }
+    
     @PutMapping("/{id}/stock")
-    public ResponseEntity<ApiResponse<Product>> updateStock(@PathVariable Long id, 
-                                                           @RequestParam Integer quantity) {
+    public ResponseEntity<ApiResponse<ProductDetail>> updateStock(@PathVariable Long id, 
+                                                                 @RequestParam Integer quantity) {
         Product product = productService.updateStock(id, quantity);
-        return ResponseEntity.ok(ApiResponse.success("库存更新成功", product));
+        return ResponseEntity.ok(ApiResponse.success("库存更新成功", ProductDetail.of(product)));
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.gry.demo.controller;
+
+import com.gry.demo.config.SqlStatementMonitor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * 运维入口：GET /actuator/sqlstatistics 查看各接口、各监听每次执行的 SQL 统计和最近的护栏越界；
+ * DELETE 清空统计。
+ */
+@Component
+@Endpoint(id = "sqlstatistics")
+public class SqlStatisticsEndpoint {
+    
+    @Autowired
+    private SqlStatementMonitor sqlStatementMonitor;
+    
+    @ReadOperation
+    public SqlStatementMonitor.Report report() {
+        return sqlStatementMonitor.report();
+    }
+    
+    @DeleteOperation
+    public void reset() {
+        sqlStatementMonitor.reset();
+    }
+}
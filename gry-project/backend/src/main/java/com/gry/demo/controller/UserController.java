@@ -1,10 +1,17 @@
 package com.gry.demo.controller;
 
 import com.gry.demo.dto.ApiResponse;
+import com.gry.demo.dto.BulkImportResult;
+import com.gry.demo.dto.CursorSlice;
 import com.gry.demo.dto.UserDto;
+import com.gry.demo.dto.UserView;
 import com.gry.demo.entity.User;
+import com.gry.demo.service.BulkImportService;
 import com.gry.demo.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -13,6 +20,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/api/users")
 @CrossOrigin(origins = "http://localhost:3000")
@@ -21,24 +30,36 @@ public class UserController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private BulkImportService bulkImportService;
+    
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<User>> getUserById(@PathVariable Long id) {
-        User user = userService.getUserById(id);
+    public ResponseEntity<ApiResponse<UserView>> getUserById(@PathVariable Long id) {
+        UserView user = userService.getUserView(id);
         return ResponseEntity.ok(ApiResponse.success("获取用户信息成功", user));
     }
     
     @PostMapping
-    public ResponseEntity<ApiResponse<User>> createUser(@Valid @RequestBody UserDto userDto) {
+    public ResponseEntity<ApiResponse<UserView>> createUser(@Valid @RequestBody UserDto userDto) {
         User createdUser = userService.createUser(userDto);
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(ApiResponse.success("用户创建成功", createdUser));
+                .body(ApiResponse.success("用户创建成功", UserView.of(createdUser)));
+    }
+    
+    /**
+     * 以 NDJSON 流式导入，每行一个对象；行级错误按块汇总在结果中返回。
+     */
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    public ResponseEntity<ApiResponse<BulkImportResult>> bulkImportUsers(HttpServletRequest request) throws IOException {
+        BulkImportResult result = bulkImportService.importUsers(request.getInputStream());
+        return ResponseEntity.ok(ApiResponse.success("用户批量导入完成", result));
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<ApiResponse<User>> updateUser(@PathVariable Long id, 
-                                                       @Valid @RequestBody UserDto userDto) {
+    public ResponseEntity<ApiResponse<UserView>> updateUser(@PathVariable Long id, 
+                                                           @Valid @RequestBody UserDto userDto) {
         User updatedUser = userService.updateUser(id, userDto);
-        return ResponseEntity.ok(ApiResponse.success("用户更新成功", updatedUser));
+        return ResponseEntity.ok(ApiResponse.success("用户更新成功", UserView.of(updatedUser)));
     }
     
     @DeleteMapping("/{id}")
@@ -48,14 +69,14 @@ public class UserController {
     }
     
     @GetMapping
-    public ResponseEntity<ApiResponse<Page<User>>> getAllUsers(
+    public ResponseEntity<ApiResponse<Page<UserView>>> getAllUsers(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String username,
             @RequestParam(required = false) String email) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<User> users;
+        Page<UserView> users;
         
         if (username != null || email != null) {
             users = userService.searchUsers(username, email, pageable);
@@ -65,4 +86,14 @@ public class UserController {
         
         return ResponseEntity.ok(ApiResponse.success("获取用户列表成功", users));
     }
+    
+    @GetMapping("/scroll")
+    public ResponseEntity<ApiResponse<CursorSlice<UserView>>> scrollUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") @Min(value = 1, message = "每页条数必须大于0")
+            @Max(value = CursorSlice.MAX_SIZE, message = "每页条数不能超过" + CursorSlice.MAX_SIZE) int size) {
+        
+        CursorSlice<UserView> users = userService.scrollUsers(cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("获取用户列表成功", users));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.gry.demo.dto;
+
+import java.util.List;
+
+/**
+ * 批量导入结果。每个块独立提交，failedChunks 只列出有被拒绝行的块，
+ * 块级错误（如数据库约束冲突）时整块回滚，行级错误（格式、校验、重复）只跳过对应行。
+ */
+public record BulkImportResult(long rows,
+                               long inserted,
+                               long rejected,
+                               long elapsedMillis,
+                               List<ChunkResult> failedChunks) {
+
+    /**
+     * 单个块的导入结果。firstLine 为块在请求体中的起始行号（从 1 开始），
+     * errors 最多保留配置的条数，rejected 为实际被拒绝的行数。
+     */
+    public record ChunkResult(int chunk,
+                              long firstLine,
+                              int rows,
+                              int inserted,
+                              int rejected,
+                              String error,
+                              List<RowError> errors) {
+    }
+
+    public record RowError(long line, String message) {
+    }
+}
@@ -0,0 +1,84 @@
+package com.gry.demo.dto;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset 分页结果：不做 count 查询，只返回当前页内容、是否还有下一页以及下一页的游标。
+ */
+public class CursorSlice<T> {
+
+    /**
+     * 每页条数上限，/scroll 接口按此校验 size。
+     */
+    public static final int MAX_SIZE = 1000;
+
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+
+    public CursorSlice() {}
+
+    public CursorSlice(Slice<T> slice, String nextCursor) {
+        this.content = slice.getContent();
+        this.size = slice.getSize();
+        this.hasNext = slice.hasNext();
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * 由多查一行（size + 1）的结果构造：多出的一行只用于判断是否还有下一页。
+     */
+    public static <T> CursorSlice<T> of(List<T> rows, int size, Function<T, String> cursorOf) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        Slice<T> slice = new SliceImpl<>(content, PageRequest.of(0, size), hasNext);
+        String nextCursor = hasNext ? cursorOf.apply(content.get(content.size() - 1)) : null;
+        return new CursorSlice<>(slice, nextCursor);
+    }
+
+    /**
+     * 查询时多取的一行。
+     */
+    public static Pageable fetchLimit(int size) {
+        return PageRequest.of(0, size + 1);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,29 @@
+package com.gry.demo.dto;
+
+import com.gry.demo.entity.Order;
+import com.gry.demo.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单详情视图：订单头加明细列表。
+ */
+public record OrderDetail(Long id, Long userId, BigDecimal totalAmount, OrderStatus status,
+                          LocalDateTime createdAt, LocalDateTime updatedAt, List<OrderItemView> orderItems) {
+
+    public static OrderDetail of(OrderSummary summary, List<OrderItemView> orderItems) {
+        return new OrderDetail(summary.id(), summary.userId(), summary.totalAmount(), summary.status(),
+                summary.createdAt(), summary.updatedAt(), orderItems);
+    }
+
+    /**
+     * 由已加载明细的订单实体构造，用于写操作的返回值。
+     */
+    public static OrderDetail of(Order order) {
+        List<OrderItemView> orderItems = order.getOrderItems() == null ? List.of()
+                : order.getOrderItems().stream().map(OrderItemView::of).toList();
+        return of(OrderSummary.of(order), orderItems);
+    }
+}
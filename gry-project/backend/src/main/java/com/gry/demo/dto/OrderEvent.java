@@ -0,0 +1,38 @@
+package com.gry.demo.dto;
+
+import com.gry.demo.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 订单事件。items 只在 ORDER_CREATED / ORDER_DELETED 中携带，供销量聚合使用。
+ */
+public record OrderEvent(Type eventType,
+                         long orderId,
+                         long userId,
+                         OrderStatus oldStatus,
+                         OrderStatus newStatus,
+                         Instant timestamp,
+                         BigDecimal totalAmount,
+                         List<Line> items) {
+
+    public OrderEvent {
+        items = items != null ? List.copyOf(items) : List.of();
+    }
+
+    public OrderEvent(Type eventType, long orderId, long userId, OrderStatus oldStatus, OrderStatus newStatus,
+                      Instant timestamp, BigDecimal totalAmount) {
+        this(eventType, orderId, userId, oldStatus, newStatus, timestamp, totalAmount, List.of());
+    }
+
+    public enum Type {
+        ORDER_CREATED,
+        ORDER_STATUS_CHANGED,
+        ORDER_DELETED
+    }
+
+    public record Line(long productId, int quantity) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.gry.demo.dto;
+
+import com.gry.demo.entity.OrderItem;
+
+import java.math.BigDecimal;
+
+/**
+ * 订单明细视图，附带产品名称。
+ */
+public record OrderItemView(Long id, Long orderId, Long productId, String productName, Integer quantity,
+                            BigDecimal price) {
+
+    public static OrderItemView of(OrderItem orderItem) {
+        return new OrderItemView(orderItem.getId(), orderItem.getOrder().getId(), orderItem.getProduct().getId(),
+                orderItem.getProduct().getName(), orderItem.getQuantity(), orderItem.getPrice());
+    }
+}
@@ -0,0 +1,19 @@
+package com.gry.demo.dto;
+
+import com.gry.demo.entity.Order;
+import com.gry.demo.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单列表视图：用户只给出 id（取自外键列，不关联 users 表），不含明细。
+ */
+public record OrderSummary(Long id, Long userId, BigDecimal totalAmount, OrderStatus status,
+                           LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+    public static OrderSummary of(Order order) {
+        return new OrderSummary(order.getId(), order.getUser().getId(), order.getTotalAmount(), order.getStatus(),
+                order.getCreatedAt(), order.getUpdatedAt());
+    }
+}
@@ -0,0 +1,69 @@
+package com.gry.demo.dto;
+
+import com.gry.demo.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset 分页游标：记录上一页最后一行的排序键（id，或 createdAt + id），
+ * 对外以 Base64 编码的不透明字符串传递。
+ */
+public final class PageCursor {
+    
+    private static final String SEPARATOR = "|";
+    
+    private final LocalDateTime createdAt;
+    
+    private final long id;
+    
+    private PageCursor(LocalDateTime createdAt, long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+    
+    public static String encode(long id) {
+        return encode(String.valueOf(id));
+    }
+    
+    public static String encode(LocalDateTime createdAt, long id) {
+        return encode(createdAt + SEPARATOR + id);
+    }
+    
+    /**
+     * 解析游标，null 或空串表示从第一页开始，返回 null。
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0) {
+                return new PageCursor(null, Long.parseLong(value));
+            }
+            return new PageCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BusinessException("INVALID_CURSOR", "无效的分页游标");
+        }
+    }
+    
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        if (createdAt == null) {
+            throw new BusinessException("INVALID_CURSOR", "无效的分页游标");
+        }
+        return createdAt;
+    }
+    
+    public long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,18 @@
+package com.gry.demo.dto;
+
+import com.gry.demo.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 产品详情视图，不含 orderItems 集合。
+ */
+public record ProductDetail(Long id, String name, String description, BigDecimal price, Integer stockQuantity,
+                            LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+    public static ProductDetail of(Product product) {
+        return new ProductDetail(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getStockQuantity(), product.getCreatedAt(), product.getUpdatedAt());
+    }
+}
@@ -0,0 +1,7 @@
+package com.gry.demo.dto;
+
+/**
+ * 商品销量。累计销量为精确值；时间窗口内的销量来自 count-min sketch，是上界估计。
+ */
+public record ProductSales(long productId, long unitsSold) {
+}
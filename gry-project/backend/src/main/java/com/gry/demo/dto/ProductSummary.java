@@ -0,0 +1,9 @@
+package com.gry.demo.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * 产品列表视图：列表页不需要 description 等大字段。
+ */
+public record ProductSummary(Long id, String name, BigDecimal price, Integer stockQuantity) {
+}
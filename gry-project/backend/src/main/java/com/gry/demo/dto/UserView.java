@@ -0,0 +1,15 @@
+package com.gry.demo.dto;
+
+import com.gry.demo.entity.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户读取视图：只包含对外展示的列，不含密码和订单集合。
+ */
+public record UserView(Long id, String username, String email, LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+    public static UserView of(User user) {
+        return new UserView(user.getId(), user.getUsername(), user.getEmail(), user.getCreatedAt(), user.getUpdatedAt());
+    }
+}
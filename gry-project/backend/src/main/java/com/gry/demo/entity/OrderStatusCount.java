@@ -0,0 +1,78 @@
+package com.gry.demo.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * 按 (用户, 状态) 物化的订单数，随订单增删改在同一事务内增量维护。
+ */
+@Entity
+@Table(name = "order_status_counts")
+@IdClass(OrderStatusCount.Key.class)
+public class OrderStatusCount {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    public static class Key implements Serializable {
+        private Long userId;
+        private OrderStatus status;
+
+        public Key() {}
+
+        public Key(Long userId, OrderStatus status) {
+            this.userId = userId;
+            this.status = status;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return Objects.equals(userId, key.userId) && status == key.status;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, status);
+        }
+    }
+
+    public OrderStatusCount() {}
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+}
@@ -0,0 +1,152 @@
+package com.gry.demo.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "outbox", indexes = @Index(name = "idx_outbox_sent_at", columnList = "sent_at, id"))
+public class OutboxEvent {
+
+    public static final int SHARDS = 1024;
+
+    /**
+     * 容得下最大的 OrderEvent 编码（65535 条明细约 768KB），与 Kafka 默认的 1MB 消息上限一致；
+     * 超过 8000 字节后 SQL Server 映射为 varbinary(max)。
+     */
+    public static final int MAX_PAYLOAD_LENGTH = 1024 * 1024;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq")
+    @SequenceGenerator(name = "outbox_seq", sequenceName = "outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(name = "message_key")
+    private String messageKey;
+
+    /**
+     * 由 messageKey 哈希得到，shard % OutboxLane.LANES 决定投递通道，同一 key 的事件总在同一通道中按 id 顺序发送。
+     */
+    @Column(nullable = false)
+    private int shard;
+
+    @Column(name = "event_type", nullable = false)
+    private String eventType;
+
+    @Column(nullable = false, length = MAX_PAYLOAD_LENGTH)
+    private byte[] payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    /** 发送失败的次数。 */
+    @Column(nullable = false)
+    private int attempts;
+
+    /**
+     * 失败次数达到 gry.outbox.relay.max-attempts 的时间；不为空的事件不再投递，同一通道的后续事件照常发送。
+     * 排除故障后清空 failed_at 和 attempts 即可重新投递。
+     */
+    @Column(name = "failed_at")
+    private LocalDateTime failedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public OutboxEvent() {}
+
+    public OutboxEvent(String topic, String messageKey, String eventType, byte[] payload) {
+        this.topic = topic;
+        this.messageKey = messageKey;
+        this.shard = messageKey != null ? Math.floorMod(messageKey.hashCode(), SHARDS) : 0;
+        this.eventType = eventType;
+        this.payload = payload;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public String getMessageKey() {
+        return messageKey;
+    }
+
+    public void setMessageKey(String messageKey) {
+        this.messageKey = messageKey;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public void setShard(int shard) {
+        this.shard = shard;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(LocalDateTime sentAt) {
+        this.sentAt = sentAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getFailedAt() {
+        return failedAt;
+    }
+
+    public void setFailedAt(LocalDateTime failedAt) {
+        this.failedAt = failedAt;
+    }
+}
@@ -0,0 +1,35 @@
+package com.gry.demo.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Outbox 投递通道：shard % LANES 相同的事件属于同一通道。relay 在认领、发送、标记的整个事务中
+ * 持有通道行的行锁，所有线程和实例中同一通道同时只有一个发送者，同一 key 的事件按 id 顺序发出。
+ * 进程崩溃时事务回滚，锁随连接释放，不需要租约过期处理。
+ */
+@Entity
+@Table(name = "outbox_lanes")
+public class OutboxLane {
+
+    /**
+     * 全部实例共用的通道数，修改会改变事件与通道的对应关系，只能在 outbox 中没有待发送事件时修改。
+     */
+    public static final int LANES = 16;
+
+    @Id
+    private Integer lane;
+
+    public OutboxLane() {}
+
+    public OutboxLane(Integer lane) {
+        this.lane = lane;
+    }
+
+    public Integer getLane() {
+        return lane;
+    }
+
+    public void setLane(Integer lane) {
+        this.lane = lane;
+    }
+}
@@ -0,0 +1,53 @@
+package com.gry.demo.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 销量聚合器的状态快照：各分区已处理到的 offset、累计销量和窗口 sketch（压缩后的二进制）。
+ * 只保留最新一份，重启时从快照中的 offset 继续消费，不需要从头重放 order-events。
+ */
+@Entity
+@Table(name = "sales_snapshots")
+public class SalesSnapshot {
+    @Id
+    private Long id;
+
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+
+    @Column(nullable = false, length = 64 * 1024 * 1024)
+    private byte[] payload;
+
+    public SalesSnapshot() {}
+
+    public SalesSnapshot(Long id, LocalDateTime takenAt, byte[] payload) {
+        this.id = id;
+        this.takenAt = takenAt;
+        this.payload = payload;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getTakenAt() {
+        return takenAt;
+    }
+
+    public void setTakenAt(LocalDateTime takenAt) {
+        this.takenAt = takenAt;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+}
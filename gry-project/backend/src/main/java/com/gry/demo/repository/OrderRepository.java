@@ -1,29 +1,117 @@
 package com.gry.demo.repository;
 
+import com.gry.demo.dto.OrderDetail;
+import com.gry.demo.dto.OrderItemView;
+import com.gry.demo.dto.OrderSummary;
 import com.gry.demo.entity.Order;
 import com.gry.demo.entity.OrderStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     
+    String EXPORT_FETCH_SIZE = "1000";
+    
     Page<Order> findByUserId(Long userId, Pageable pageable);
     
     Page<Order> findByStatus(OrderStatus status, Pageable pageable);
     
     List<Order> findByUserIdAndStatus(Long userId, OrderStatus status);
     
-    @Query("SELECT o FROM Order o JOIN FETCH o.user u JOIN FETCH o.orderItems oi JOIN FETCH oi.product p " +
-           "WHERE o.user.id = :userId")
-    Page<Order> findOrdersByUserIdWithDetails(@Param("userId") Long userId, Pageable pageable);
+    @Query(value = "SELECT new com.gry.demo.dto.OrderSummary(o.id, o.user.id, o.totalAmount, o.status, o.createdAt, o.updatedAt) FROM Order o",
+           countQuery = "SELECT COUNT(o) FROM Order o")
+    Page<OrderSummary> findAllSummaries(Pageable pageable);
+    
+    @Query(value = "SELECT new com.gry.demo.dto.OrderSummary(o.id, o.user.id, o.totalAmount, o.status, o.createdAt, o.updatedAt) FROM Order o WHERE o.status = :status",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.status = :status")
+    Page<OrderSummary> findSummariesByStatus(@Param("status") OrderStatus status, Pageable pageable);
+    
+    @Query("SELECT new com.gry.demo.dto.OrderSummary(o.id, o.user.id, o.totalAmount, o.status, o.createdAt, o.updatedAt) FROM Order o WHERE o.id = :id")
+    Optional<OrderSummary> findSummaryById(@Param("id") Long id);
+    
+    @Query("SELECT new com.gry.demo.dto.OrderItemView(oi.id, oi.order.id, p.id, p.name, oi.quantity, oi.price) " +
+           "FROM OrderItem oi JOIN oi.product p WHERE oi.order.id IN :orderIds ORDER BY oi.order.id, oi.id")
+    List<OrderItemView> findItemViewsByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+    
+    /**
+     * Keyset 分页首页：按 (createdAt, id) 倒序，不做 count 查询。
+     * 按状态过滤与不过滤分成两组查询，各自对应一个索引，避免 (:status IS NULL OR ...) 使执行计划无法选定索引。
+     */
+    @Query("SELECT new com.gry.demo.dto.OrderSummary(o.id, o.user.id, o.totalAmount, o.status, o.createdAt, o.updatedAt) FROM Order o " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findLatestOrders(Pageable pageable);
+    
+    @Query("SELECT new com.gry.demo.dto.OrderSummary(o.id, o.user.id, o.totalAmount, o.status, o.createdAt, o.updatedAt) FROM Order o WHERE o.status = :status " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findLatestOrdersByStatus(@Param("status") OrderStatus status, Pageable pageable);
+    
+    /**
+     * Keyset 分页后续页：从游标 (createdAt, id) 之后继续，代价与页深无关。
+     * 先以 createdAt <= 游标 作为索引范围条件定位，再排除同一时刻已返回的行；
+     * 直接写成 a < x OR (a = x AND b < y) 时 H2 等数据库不会走索引范围扫描。
+     */
+    @Query("SELECT new com.gry.demo.dto.OrderSummary(o.id, o.user.id, o.totalAmount, o.status, o.createdAt, o.updatedAt) FROM Order o WHERE " +
+           "o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findOrdersBefore(@Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") Long id,
+                                        Pageable pageable);
+    
+    @Query("SELECT new com.gry.demo.dto.OrderSummary(o.id, o.user.id, o.totalAmount, o.status, o.createdAt, o.updatedAt) FROM Order o WHERE o.status = :status AND " +
+           "o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findOrdersByStatusBefore(@Param("status") OrderStatus status,
+                                                @Param("createdAt") LocalDateTime createdAt,
+                                                @Param("id") Long id,
+                                                Pageable pageable);
+    
+    /**
+     * 分两步加载用户订单及明细：先在数据库中对订单分页（只取订单列），再只为这一页的订单查询明细和产品名称。
+     * 集合 JOIN FETCH 直接配合分页时 Hibernate 会取回全部匹配行在内存中分页（HHH000104），
+     * 这里每页的取数量只与页大小有关，与用户的订单总数无关。
+     */
+    default Page<OrderDetail> findOrdersByUserIdWithDetails(Long userId, Pageable pageable) {
+        Page<OrderSummary> orders = findSummariesByUserId(userId, pageable);
+        if (orders.isEmpty()) {
+            return orders.map(order -> OrderDetail.of(order, List.of()));
+        }
+        
+        Map<Long, List<OrderItemView>> itemsByOrderId = new HashMap<>();
+        for (OrderItemView item : findItemViewsByOrderIds(orders.map(OrderSummary::id).getContent())) {
+            itemsByOrderId.computeIfAbsent(item.orderId(), id -> new ArrayList<>()).add(item);
+        }
+        return orders.map(order -> OrderDetail.of(order, itemsByOrderId.getOrDefault(order.id(), List.of())));
+    }
+    
+    @Query(value = "SELECT new com.gry.demo.dto.OrderSummary(o.id, o.user.id, o.totalAmount, o.status, o.createdAt, o.updatedAt) FROM Order o WHERE o.user.id = :userId ORDER BY o.createdAt DESC, o.id DESC",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.user.id = :userId")
+    Page<OrderSummary> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+    
+    /**
+     * 锁定订单行直到事务结束，状态修改和删除据此串行执行，读到的旧状态与状态计数的调整一致。
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
     
     @Query("SELECT o FROM Order o JOIN FETCH o.orderItems oi JOIN FETCH oi.product p " +
            "WHERE o.id = :orderId")
@@ -32,7 +120,17 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT COUNT(o) FROM Order o WHERE o.user.id = :userId AND o.status = :status")
     long countOrdersByUserIdAndStatus(@Param("userId") Long userId, @Param("status") OrderStatus status);
     
-    @Query("SELECT o FROM Order o WHERE o.createdAt BETWEEN :startDate AND :endDate")
-    List<Order> findOrdersByDateRange(@Param("startDate") LocalDateTime startDate, 
-                                     @Param("endDate") LocalDateTime endDate);
+    /**
+     * 按创建时间区间 [startDate, endDate) 流式读取订单：只读、只前进的游标，按 fetch size 分批从数据库取行。
+     * 结果是 DTO 投影，不进入持久化上下文，导出任意长的时间区间内存占用都不变。
+     * 调用方需在事务中消费并关闭 Stream。
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.gry.demo.dto.OrderSummary(o.id, o.user.id, o.totalAmount, o.status, o.createdAt, o.updatedAt) FROM Order o " +
+           "WHERE o.createdAt >= :startDate AND o.createdAt < :endDate ORDER BY o.createdAt, o.id")
+    Stream<OrderSummary> streamSummariesByDateRange(@Param("startDate") LocalDateTime startDate,
+                                                    @Param("endDate") LocalDateTime endDate);
 }
\ No newline at end of file
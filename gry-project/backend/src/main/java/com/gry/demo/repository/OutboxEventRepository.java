@@ -0,0 +1,65 @@
+package com.gry.demo.repository;
+
+import com.gry.demo.entity.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    
+    /**
+     * 认领通道 lane（shard % lanes == lane）的一批待发送事件，调用方须已持有该通道的锁（见 OutboxLaneRepository）。
+     * 已放弃投递（failed_at 不为空）的事件不再认领。
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.sentAt IS NULL AND e.failedAt IS NULL AND MOD(e.shard, :lanes) = :lane " +
+           "ORDER BY e.id")
+    List<OutboxEvent> claimPending(@Param("lane") int lane, @Param("lanes") int lanes, Pageable pageable);
+    
+    @Query("SELECT DISTINCT MOD(e.shard, :lanes) FROM OutboxEvent e WHERE e.sentAt IS NULL AND e.failedAt IS NULL")
+    List<Integer> findPendingLanes(@Param("lanes") int lanes);
+    
+    /**
+     * 有待发送事件已失败过的通道数，即正在重试、后续事件被挡住的通道。
+     */
+    @Query("SELECT COUNT(DISTINCT MOD(e.shard, :lanes)) FROM OutboxEvent e " +
+           "WHERE e.sentAt IS NULL AND e.failedAt IS NULL AND e.attempts > 0")
+    long countRetryingLanes(@Param("lanes") int lanes);
+    
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.sentAt = :sentAt WHERE e.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+    
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+    int incrementAttempts(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 失败次数达到 maxAttempts 的事件标记为放弃投递，返回标记的条数。
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.failedAt = :failedAt WHERE e.id IN :ids AND e.attempts >= :maxAttempts")
+    int markFailed(@Param("ids") Collection<Long> ids, @Param("maxAttempts") int maxAttempts,
+                   @Param("failedAt") LocalDateTime failedAt);
+    
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.sentAt < :cutoff")
+    int deleteSentBefore(@Param("cutoff") LocalDateTime cutoff);
+    
+    long countBySentAtIsNull();
+    
+    long countByFailedAtIsNotNull();
+}
@@ -0,0 +1,25 @@
+package com.gry.demo.repository;
+
+import com.gry.demo.entity.OutboxLane;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface OutboxLaneRepository extends JpaRepository<OutboxLane, Integer> {
+    
+    /**
+     * 锁定通道行直到事务结束：FOR UPDATE SKIP LOCKED，通道已被其他线程或实例持有时返回空。
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT l FROM OutboxLane l WHERE l.lane = :lane")
+    Optional<OutboxLane> tryLock(@Param("lane") int lane);
+}
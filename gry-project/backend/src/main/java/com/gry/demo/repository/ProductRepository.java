@@ -1,33 +1,99 @@
 package com.gry.demo.repository;
 
+import com.gry.demo.dto.ProductDetail;
+import com.gry.demo.dto.ProductSummary;
 import com.gry.demo.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+    
+    /**
+     * findAvailableProducts 的查询缓存区域。库存经 JDBC 写回时 Hibernate 感知不到，由 ProductCache.stockWritten 或 evictQueryResults 清空。
+     */
+    String AVAILABLE_PRODUCTS_REGION = "available-products";
     
     Page<Product> findByNameContainingIgnoreCase(String name, Pageable pageable);
     
+    @Query(value = "SELECT new com.gry.demo.dto.ProductSummary(p.id, p.name, p.price, p.stockQuantity) FROM Product p",
+           countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductSummary> findAllSummaries(Pageable pageable);
+    
+    /**
+     * Keyset 分页：按主键顺序取 id 之后的记录，不做 count 查询。
+     */
+    @Query("SELECT new com.gry.demo.dto.ProductSummary(p.id, p.name, p.price, p.stockQuantity) FROM Product p WHERE p.id > :id ORDER BY p.id")
+    List<ProductSummary> findSummariesAfter(@Param("id") Long id, Pageable pageable);
+    
+    /**
+     * 按 id 批量读取列表视图，供内存索引分页后取当前页。
+     */
+    @Query("SELECT new com.gry.demo.dto.ProductSummary(p.id, p.name, p.price, p.stockQuantity) FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<ProductSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.id, p.name FROM Product p WHERE p.id > :id ORDER BY p.id")
+    List<Object[]> findNamesAfter(@Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT new com.gry.demo.dto.ProductDetail(p.id, p.name, p.description, p.price, p.stockQuantity, p.createdAt, p.updatedAt) " +
+           "FROM Product p WHERE p.id = :id")
+    Optional<ProductDetail> findDetailById(@Param("id") Long id);
+    
+    @Query("SELECT p.name FROM Product p WHERE p.id = :id")
+    Optional<String> findNameById(@Param("id") Long id);
+    
     Page<Product> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable);
     
-    @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0")
-    Page<Product> findAvailableProducts(Pageable pageable);
-    
-    @Query("SELECT p FROM Product p WHERE " +
-           "(:name IS NULL OR p.name LIKE %:name%) AND " +
-           "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
-           "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
-           "(:inStock IS NULL OR (:inStock = true AND p.stockQuantity > 0) OR (:inStock = false))")
-    Page<Product> findProductsWithFilters(@Param("name") String name,
-                                         @Param("minPrice") BigDecimal minPrice,
-                                         @Param("maxPrice") BigDecimal maxPrice,
-                                         @Param("inStock") Boolean inStock,
-                                         Pageable pageable);
-}
\ No newline at end of file
+    @Query(value = "SELECT new com.gry.demo.dto.ProductSummary(p.id, p.name, p.price, p.stockQuantity) FROM Product p WHERE p.stockQuantity > 0",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.stockQuantity > 0")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = AVAILABLE_PRODUCTS_REGION)
+    })
+    Page<ProductSummary> findAvailableProducts(Pageable pageable);
+    
+    @Query(value = "SELECT new com.gry.demo.dto.ProductSummary(p.id, p.name, p.price, p.stockQuantity) FROM Product p WHERE " +
+                   "(:name IS NULL OR p.name LIKE %:name%) AND " +
+                   "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+                   "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
+                   "(:inStock IS NULL OR (:inStock = true AND p.stockQuantity > 0) OR (:inStock = false))",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE " +
+                        "(:name IS NULL OR p.name LIKE %:name%) AND " +
+                        "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+                        "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
+                        "(:inStock IS NULL OR (:inStock = true AND p.stockQuantity > 0) OR (:inStock = false))")
+    Page<ProductSummary> findProductsWithFilters(@Param("name") String name,
+                                                @Param("minPrice") BigDecimal minPrice,
+                                                @Param("maxPrice") BigDecimal maxPrice,
+                                                @Param("inStock") Boolean inStock,
+                                                Pageable pageable);
+    
+    @Query("SELECT COALESCE(p.stockQuantity, 0) FROM Product p WHERE p.id = :id")
+    Optional<Integer> findStockQuantityById(@Param("id") Long id);
+    
+    @Query("SELECT p.id, COALESCE(p.stockQuantity, 0) FROM Product p")
+    List<Object[]> findAllStockLevels();
+    
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id = :id AND p.stockQuantity >= :quantity")
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+    
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity, p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id = :id")
+    int incrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+}
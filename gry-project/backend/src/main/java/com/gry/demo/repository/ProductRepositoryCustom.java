@@ -0,0 +1,30 @@
+package com.gry.demo.repository;
+
+import com.gry.demo.dto.ProductDto;
+import com.gry.demo.entity.Product;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ProductRepositoryCustom {
+    
+    /**
+     * 按ID批量加载产品：先查持久化上下文和二级缓存，未命中的ID合并为一条 IN 查询。
+     * 不存在的ID不出现在结果中，结果顺序不保证。
+     */
+    List<Product> loadAllById(Collection<Long> ids);
+    
+    /**
+     * 以一个 JDBC batch 对多个产品执行条件扣减（stock_quantity >= quantity），
+     * 返回库存不足或不存在而未被扣减的产品ID。调用方需在事务中执行，以便整体回滚。
+     */
+    List<Long> decrementStock(Map<Long, Integer> quantities);
+    
+    void incrementStock(Map<Long, Integer> quantities);
+    
+    /**
+     * 以 JDBC batch 插入一批产品，不经过持久化上下文，也不取回生成的ID。
+     */
+    void insertAll(List<ProductDto> products);
+}
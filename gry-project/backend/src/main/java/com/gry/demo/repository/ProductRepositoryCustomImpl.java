@@ -0,0 +1,92 @@
+package com.gry.demo.repository;
+
+import com.gry.demo.dto.ProductDto;
+import com.gry.demo.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+    
+    private static final String DECREMENT_STOCK_SQL =
+        "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = CURRENT_TIMESTAMP " +
+        "WHERE id = ? AND stock_quantity >= ?";
+    
+    private static final String INCREMENT_STOCK_SQL =
+        "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+    
+    private static final String INSERT_SQL =
+        "INSERT INTO products (name, description, price, stock_quantity, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public List<Product> loadAllById(Collection<Long> ids) {
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(Product.class)
+                // 不显式指定缓存模式时 multiLoad 不查二级缓存
+                .with(CacheMode.NORMAL)
+                .enableSessionCheck(true)
+                .enableOrderedReturn(false)
+                .multiLoad(new ArrayList<>(ids))
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+    
+    @Override
+    public List<Long> decrementStock(Map<Long, Integer> quantities) {
+        // 按产品ID排序加锁，避免并发订单之间死锁
+        TreeMap<Long, Integer> ordered = new TreeMap<>(quantities);
+        List<Long> productIds = new ArrayList<>(ordered.keySet());
+        List<Object[]> batch = new ArrayList<>(ordered.size());
+        ordered.forEach((productId, quantity) -> batch.add(new Object[] {quantity, productId, quantity}));
+        
+        int[] counts = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, batch);
+        
+        List<Long> rejected = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                rejected.add(productIds.get(i));
+            }
+        }
+        return rejected;
+    }
+    
+    @Override
+    public void incrementStock(Map<Long, Integer> quantities) {
+        List<Object[]> batch = new ArrayList<>(quantities.size());
+        new TreeMap<>(quantities).forEach((productId, quantity) -> batch.add(new Object[] {quantity, productId}));
+        jdbcTemplate.batchUpdate(INCREMENT_STOCK_SQL, batch);
+    }
+    
+    @Override
+    public void insertAll(List<ProductDto> products) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, products, products.size(), (ps, product) -> {
+            ps.setString(1, product.getName());
+            ps.setString(2, product.getDescription());
+            ps.setBigDecimal(3, product.getPrice());
+            ps.setInt(4, product.getStockQuantity() != null ? product.getStockQuantity() : 0);
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, now);
+        });
+    }
+}
@@ -0,0 +1,9 @@
+package com.gry.demo.repository;
+
+import com.gry.demo.entity.SalesSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SalesSnapshotRepository extends JpaRepository<SalesSnapshot, Long> {
+}
@@ -1,5 +1,6 @@
 package com.gry.demo.repository;
 
+import com.gry.demo.dto.UserView;
 import com.gry.demo.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -8,10 +9,12 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     
     Optional<User> findByUsername(String username);
     
@@ -21,10 +24,36 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     boolean existsByEmail(String email);
     
-    @Query("SELECT u FROM User u WHERE " +
-           "(:username IS NULL OR u.username LIKE %:username%) AND " +
-           "(:email IS NULL OR u.email LIKE %:email%)")
-    Page<User> findUsersWithFilters(@Param("username") String username, 
-                                   @Param("email") String email, 
-                                   Pageable pageable);
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+    
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+    
+    @Query(value = "SELECT new com.gry.demo.dto.UserView(u.id, u.username, u.email, u.createdAt, u.updatedAt) " +
+                   "FROM User u",
+           countQuery = "SELECT COUNT(u) FROM User u")
+    Page<UserView> findAllViews(Pageable pageable);
+    
+    @Query("SELECT new com.gry.demo.dto.UserView(u.id, u.username, u.email, u.createdAt, u.updatedAt) " +
+           "FROM User u WHERE u.id = :id")
+    Optional<UserView> findViewById(@Param("id") Long id);
+    
+    /**
+     * Keyset 分页：按主键顺序取 id 之后的记录，不做 count 查询。
+     */
+    @Query("SELECT new com.gry.demo.dto.UserView(u.id, u.username, u.email, u.createdAt, u.updatedAt) " +
+           "FROM User u WHERE u.id > :id ORDER BY u.id")
+    List<UserView> findViewsAfter(@Param("id") Long id, Pageable pageable);
+    
+    @Query(value = "SELECT new com.gry.demo.dto.UserView(u.id, u.username, u.email, u.createdAt, u.updatedAt) " +
+                   "FROM User u WHERE " +
+                   "(:username IS NULL OR u.username LIKE %:username%) AND " +
+                   "(:email IS NULL OR u.email LIKE %:email%)",
+           countQuery = "SELECT COUNT(u) FROM User u WHERE " +
+                        "(:username IS NULL OR u.username LIKE %:username%) AND " +
+                        "(:email IS NULL OR u.email LIKE %:email%)")
+    Page<UserView> findUsersWithFilters(@Param("username") String username, 
+                                       @Param("email") String email, 
+                                       Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.gry.demo.repository;
+
+import com.gry.demo.dto.UserDto;
+
+import java.util.List;
+
+public interface UserRepositoryCustom {
+    
+    /**
+     * 以 JDBC batch 插入一批用户，不经过持久化上下文，也不取回生成的ID。
+     * 用户名、邮箱的唯一性由调用方预先检查，并发冲突时由唯一约束拒绝整批。
+     */
+    void insertAll(List<UserDto> users);
+}
@@ -0,0 +1,293 @@
+package com.gry.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.gry.demo.dto.BulkImportResult;
+import com.gry.demo.dto.BulkImportResult.ChunkResult;
+import com.gry.demo.dto.BulkImportResult.RowError;
+import com.gry.demo.dto.ProductDto;
+import com.gry.demo.dto.UserDto;
+import com.gry.demo.repository.ProductRepository;
+import com.gry.demo.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * NDJSON 批量导入产品和用户。
+ * 请求体按行流式读取，每 chunk-size 行为一块交给线程池并行解析、校验，
+ * 再以 JDBC batch 在各自的事务中插入，不经过持久化上下文。
+ * 同时在处理中的块数有上限，内存占用与请求体大小无关。
+ */
+@Service
+public class BulkImportService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportService.class);
+    
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ProductNameIndex productNameIndex;
+    
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    
+    @Autowired
+    private ProductCache productCache;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${gry.bulk-import.chunk-size:5000}")
+    private int chunkSize;
+    
+    @Value("${gry.bulk-import.threads:4}")
+    private int threads;
+    
+    @Value("${gry.bulk-import.max-errors-per-chunk:100}")
+    private int maxErrorsPerChunk;
+    
+    private ExecutorService executor;
+    
+    private TransactionTemplate transactionTemplate;
+    
+    /**
+     * 校验通过的一批行写入数据库，返回插入的行数；写入前发现的冲突行记入 errors 并跳过。
+     */
+    @FunctionalInterface
+    interface ChunkWriter<T> {
+        int write(List<Row<T>> rows, List<RowError> errors);
+    }
+    
+    record Row<T>(long line, T value) {
+    }
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-import-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * 导入产品。有产品插入时重建本实例的名称和分面索引，并通知其他实例重建。
+     */
+    public BulkImportResult importProducts(InputStream in) throws IOException {
+        BulkImportResult result = importNdjson(in, ProductDto.class, this::insertProducts);
+        if (result.inserted() > 0) {
+            productNameIndex.rebuild();
+            productFacetIndex.rebuild();
+            productCache.evictQueryResults();
+            productCache.publishReindex();
+        }
+        return result;
+    }
+    
+    public BulkImportResult importUsers(InputStream in) throws IOException {
+        return importNdjson(in, UserDto.class, this::insertUsers);
+    }
+    
+    private int insertProducts(List<Row<ProductDto>> rows, List<RowError> errors) {
+        productRepository.insertAll(rows.stream().map(Row::value).toList());
+        return rows.size();
+    }
+    
+    /**
+     * 跳过块内重复以及数据库中已存在的用户名、邮箱，其余行批量插入。
+     * 不同块之间的并发冲突由唯一约束拒绝，整块回滚并报告。
+     */
+    private int insertUsers(List<Row<UserDto>> rows, List<RowError> errors) {
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        List<Row<UserDto>> unique = new ArrayList<>(rows.size());
+        for (Row<UserDto> row : rows) {
+            if (!usernames.add(row.value().getUsername())) {
+                errors.add(new RowError(row.line(), "用户名在导入数据中重复: " + row.value().getUsername()));
+            } else if (!emails.add(row.value().getEmail())) {
+                usernames.remove(row.value().getUsername());
+                errors.add(new RowError(row.line(), "邮箱在导入数据中重复: " + row.value().getEmail()));
+            } else {
+                unique.add(row);
+            }
+        }
+        
+        Set<String> existingUsernames = new HashSet<>(userRepository.findExistingUsernames(usernames));
+        Set<String> existingEmails = new HashSet<>(userRepository.findExistingEmails(emails));
+        List<UserDto> accepted = new ArrayList<>(unique.size());
+        for (Row<UserDto> row : unique) {
+            if (existingUsernames.contains(row.value().getUsername())) {
+                errors.add(new RowError(row.line(), "用户名已存在: " + row.value().getUsername()));
+            } else if (existingEmails.contains(row.value().getEmail())) {
+                errors.add(new RowError(row.line(), "邮箱已存在: " + row.value().getEmail()));
+            } else {
+                accepted.add(row.value());
+            }
+        }
+        if (!accepted.isEmpty()) {
+            userRepository.insertAll(accepted);
+        }
+        return accepted.size();
+    }
+    
+    <T> BulkImportResult importNdjson(InputStream in, Class<T> type, ChunkWriter<T> writer) throws IOException {
+        long start = System.currentTimeMillis();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+        Semaphore inFlight = new Semaphore(threads * 2);
+        List<Future<ChunkResult>> chunks = new ArrayList<>();
+        List<String> lines = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String line;
+        try {
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                if (lines.size() == chunkSize) {
+                    chunks.add(submit(chunks.size(), lineNumber + 1, lines, type, writer, inFlight));
+                    lineNumber += lines.size();
+                    lines = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!lines.isEmpty()) {
+                chunks.add(submit(chunks.size(), lineNumber + 1, lines, type, writer, inFlight));
+            }
+            
+            long rows = 0;
+            long inserted = 0;
+            long rejected = 0;
+            List<ChunkResult> failed = new ArrayList<>();
+            for (Future<ChunkResult> future : chunks) {
+                ChunkResult chunk = future.get();
+                rows += chunk.rows();
+                inserted += chunk.inserted();
+                rejected += chunk.rejected();
+                if (chunk.rejected() > 0) {
+                    failed.add(chunk);
+                }
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            logger.info("Imported {} of {} {} rows in {} chunks in {} ms", inserted, rows,
+                    type.getSimpleName(), chunks.size(), elapsed);
+            return new BulkImportResult(rows, inserted, rejected, elapsed, failed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bulk import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Bulk import chunk failed", e.getCause());
+        }
+    }
+    
+    private <T> Future<ChunkResult> submit(int chunk, long firstLine, List<String> lines, Class<T> type,
+                                           ChunkWriter<T> writer, Semaphore inFlight) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            return executor.submit(() -> {
+                try {
+                    return processChunk(chunk, firstLine, lines, type, writer);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+    
+    private <T> ChunkResult processChunk(int chunk, long firstLine, List<String> lines, Class<T> type,
+                                         ChunkWriter<T> writer) {
+        ObjectReader reader = objectMapper.readerFor(type);
+        List<RowError> errors = new ArrayList<>();
+        List<Row<T>> rows = new ArrayList<>(lines.size());
+        int received = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            received++;
+            long lineNumber = firstLine + i;
+            T value;
+            try {
+                value = reader.readValue(line);
+            } catch (JsonProcessingException e) {
+                errors.add(new RowError(lineNumber, "JSON 格式错误: " + e.getOriginalMessage()));
+                continue;
+            }
+            Set<ConstraintViolation<T>> violations = validator.validate(value);
+            if (!violations.isEmpty()) {
+                errors.add(new RowError(lineNumber, violations.stream()
+                        .map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "))));
+                continue;
+            }
+            rows.add(new Row<>(lineNumber, value));
+        }
+        
+        int inserted = 0;
+        String error = null;
+        if (!rows.isEmpty()) {
+            try {
+                inserted = transactionTemplate.execute(status -> writer.write(rows, errors));
+            } catch (DataAccessException e) {
+                error = "数据库写入失败，整块已回滚: " + e.getMostSpecificCause().getMessage();
+                logger.warn("Bulk import chunk {} starting at line {} rolled back", chunk, firstLine, e);
+            }
+        }
+        
+        errors.sort(Comparator.comparingLong(RowError::line));
+        int rejected = received - inserted;
+        List<RowError> reported = errors.size() > maxErrorsPerChunk
+                ? List.copyOf(errors.subList(0, maxErrorsPerChunk))
+                : errors;
+        return new ChunkResult(chunk, firstLine, received, inserted, rejected, error, reported);
+    }
+}
@@ -1,84 +1,222 @@
 package com.gry.demo.service;
 
+import com.gry.demo.config.KafkaConfig;
+import com.gry.demo.config.SqlStatistics;
+import com.gry.demo.dto.OrderEvent;
+import com.gry.demo.entity.OrderStatus;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.log.LogAccessor;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.annotation.RetryableTopic;
-import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class KafkaConsumerService {
     
     private static final Logger logger = LoggerFactory.getLogger(KafkaConsumerService.class);
     
-    @RetryableTopic(
-        attempts = "3",
-        backoff = @Backoff(delay = 1000, multiplier = 2.0),
-        topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE
-    )
-    @KafkaListener(topics = "order-events", groupId = "order-processing-group")
-    public void handleOrderEvents(@Payload Map<String, Object> orderEvent,
-                                 @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-                                 @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
-                                 @Header(KafkaHeaders.OFFSET) long offset,
+    private static final LogAccessor headerLogger = new LogAccessor(KafkaConsumerService.class);
+    
+    @Autowired
+    private ProductCache productCache;
+    
+    @Autowired
+    private ProductNameIndex productNameIndex;
+    
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    
+    @Value("${gry.kafka.consumer.order-events.workers:4}")
+    private int workers;
+    
+    private ExecutorService[] workerLanes;
+    
+    @PostConstruct
+    public void startWorkers() {
+        workerLanes = new ExecutorService[workers];
+        for (int i = 0; i < workers; i++) {
+            String name = "order-event-worker-" + (i + 1);
+            workerLanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    @PreDestroy
+    public void stopWorkers() throws InterruptedException {
+        for (ExecutorService lane : workerLanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : workerLanes) {
+            lane.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+    
+    /**
+     * 批量消费 order-events。记录按 key（orderId）哈希分配到固定的单线程 worker，
+     * 不同订单并行处理，同一订单始终在同一个 worker 上按 offset 顺序处理；
+     * worker 内连续的同类型事件合并为一次批量调用，整批处理完后一次性确认 offset。
+     * 批量调用失败时逐条重试以定位失败记录，该 worker 在失败处停止，保证同一订单的后续事件不会越过它；
+     * 最靠前的失败记录通过 BatchListenerFailedException 交给错误处理器重试 / 转入 DLT，
+     * 它之前的记录被提交，之后的记录会重新投递。
+     */
+    @KafkaListener(id = "order-events", topics = KafkaConfig.ORDER_EVENTS_TOPIC,
+                   groupId = "order-processing-group",
+                   containerFactory = "orderEventListenerContainerFactory")
+    public void handleOrderEvents(List<ConsumerRecord<String, OrderEvent>> records,
                                  Acknowledgment acknowledgment) {
-        try {
-            logger.info("Received order event from topic: {}, partition: {}, offset: {}", topic, partition, offset);
-            logger.info("Order event: {}", orderEvent);
-            
-            String eventType = (String) orderEvent.get("eventType");
-            Long orderId = Long.valueOf(orderEvent.get("orderId").toString());
+        List<List<Integer>> lanes = new ArrayList<>(workerLanes.length);
+        for (int i = 0; i < workerLanes.length; i++) {
+            lanes.add(new ArrayList<>());
+        }
+        for (int i = 0; i < records.size(); i++) {
+            lanes.get(laneOf(records.get(i))).add(i);
+        }
+        
+        BatchFailure failure = new BatchFailure();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(workerLanes.length);
+        for (int i = 0; i < workerLanes.length; i++) {
+            List<Integer> indices = lanes.get(i);
+            if (!indices.isEmpty()) {
+                futures.add(CompletableFuture.runAsync(
+                        SqlStatistics.wrap(() -> processLane(indices, records, failure)), workerLanes[i]));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        
+        if (failure.index >= 0) {
+            ConsumerRecord<String, OrderEvent> failed = records.get(failure.index);
+            logger.error("Failed to process order event at partition {} offset {}",
+                    failed.partition(), failed.offset(), failure.cause);
+            throw new BatchListenerFailedException("Failed to process order event", failure.cause, failure.index);
+        }
+        
+        acknowledgment.acknowledge();
+        logger.info("Processed {} order events from partition(s) {}", records.size(),
+                records.stream().map(ConsumerRecord::partition).distinct().toList());
+    }
+    
+    private int laneOf(ConsumerRecord<String, OrderEvent> record) {
+        Object key = record.key() != null ? record.key()
+                : record.value() != null ? String.valueOf(record.value().orderId()) : null;
+        return key != null ? Math.floorMod(key.hashCode(), workerLanes.length) : 0;
+    }
+    
+    private void processLane(List<Integer> indices, List<ConsumerRecord<String, OrderEvent>> records,
+                             BatchFailure failure) {
+        int position = 0;
+        while (position < indices.size()) {
+            int runStart = position;
+            ConsumerRecord<String, OrderEvent> first = records.get(indices.get(runStart));
+            if (first.value() == null) {
+                DeserializationException cause = SerializationUtils.getExceptionFromHeader(
+                        first, SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, headerLogger);
+                failure.record(indices.get(runStart),
+                        cause != null ? cause : new IllegalStateException("Order event has no payload"));
+                return;
+            }
             
-            switch (eventType) {
-                case "ORDER_CREATED":
-                    processOrderCreated(orderEvent);
-                    break;
-                case "ORDER_STATUS_CHANGED":
-                    processOrderStatusChanged(orderEvent);
+            OrderEvent.Type type = first.value().eventType();
+            List<OrderEvent> events = new ArrayList<>();
+            while (position < indices.size()) {
+                OrderEvent event = records.get(indices.get(position)).value();
+                if (event == null || event.eventType() != type) {
                     break;
-                case "ORDER_DELETED":
-                    processOrderDeleted(orderEvent);
-                    break;
-                default:
-                    logger.warn("Unknown event type: {}", eventType);
+                }
+                events.add(event);
+                position++;
             }
             
-            acknowledgment.acknowledge();
-            logger.info("Successfully processed order event for order: {}", orderId);
-            
-        } catch (Exception e) {
-            logger.error("Error processing order event: {}", orderEvent, e);
-            throw e;
+            try {
+                process(type, events);
+            } catch (RuntimeException e) {
+                logger.warn("Bulk processing of {} {} events failed, retrying individually", events.size(), type, e);
+                for (int i = runStart; i < position; i++) {
+                    try {
+                        process(type, List.of(records.get(indices.get(i)).value()));
+                    } catch (RuntimeException recordFailure) {
+                        failure.record(indices.get(i), recordFailure);
+                        return;
+                    }
+                }
+            }
         }
     }
     
-    private void processOrderCreated(Map<String, Object> orderEvent) {
-        logger.info("Processing order created event: {}", orderEvent);
+    private void process(OrderEvent.Type type, List<OrderEvent> events) {
+        switch (type) {
+            case ORDER_CREATED:
+                processOrdersCreated(events);
+                break;
+            case ORDER_STATUS_CHANGED:
+                processOrderStatusChanges(events);
+                break;
+            case ORDER_DELETED:
+                processOrdersDeleted(events);
+                break;
+            default:
+                logger.warn("Unknown event type: {}", type);
+        }
     }
     
-    private void processOrderStatusChanged(Map<String, Object> orderEvent) {
-        String oldStatus = (String) orderEvent.get("oldStatus");
-        String newStatus = (String) orderEvent.get("newStatus");
-        logger.info("Processing order status change from {} to {}", oldStatus, newStatus);
-        
-        if ("DELIVERED".equals(newStatus)) {
-            logger.info("Order delivered, sending completion notification");
+    private void processOrdersCreated(List<OrderEvent> events) {
+        logger.debug("Processing {} order created events", events.size());
+    }
+    
+    private void processOrderStatusChanges(List<OrderEvent> events) {
+        for (OrderEvent orderEvent : events) {
+            logger.debug("Processing order {} status change from {} to {}",
+                    orderEvent.orderId(), orderEvent.oldStatus(), orderEvent.newStatus());
+            
+            if (orderEvent.newStatus() == OrderStatus.DELIVERED) {
+                logger.info("Order {} delivered, sending completion notification", orderEvent.orderId());
+            }
         }
     }
     
-    private void processOrderDeleted(Map<String, Object> orderEvent) {
-        logger.info("Processing order deleted event: {}", orderEvent);
+    private void processOrdersDeleted(List<OrderEvent> events) {
+        logger.debug("Processing {} order deleted events", events.size());
     }
     
-    @KafkaListener(topics = "notification-events", groupId = "notification-group")
+    /**
+     * 记录一批中最靠前的失败位置。
+     */
+    private static final class BatchFailure {
+        
+        private volatile int index = -1;
+        
+        private volatile Exception cause;
+        
+        private synchronized void record(int index, Exception cause) {
+            if (this.index < 0 || index < this.index) {
+                this.index = index;
+                this.cause = cause;
+            }
+        }
+    }
+    
+    @KafkaListener(id = "notification-events", topics = "notification-events", groupId = "notification-group")
     public void handleNotificationEvents(@Payload Map<String, Object> notificationEvent,
                                        Acknowledgment acknowledgment) {
         try {
@@ -93,7 +231,7 @@ public class KafkaConsumerService {
         }
     }
     
-    @KafkaListener(topics = "inventory-events", groupId = "inventory-group")
+    @KafkaListener(id = "inventory-events", topics = "inventory-events", groupId = "inventory-group")
     public void handleInventoryEvents(@Payload Map<String, Object> inventoryEvent,
                                     Acknowledgment acknowledgment) {
         try {
@@ -107,4 +245,37 @@ public class KafkaConsumerService {
             throw e;
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 每个实例都要收到全部失效消息：不加入消费组，手动分配唯一的分区并从最新位置开始，也不提交 offset。
+     * 启动前的失效消息无需处理，本地缓存启动时为空。
+     */
+    @KafkaListener(id = "product-cache-invalidation", containerFactory = "broadcastListenerContainerFactory",
+                   topicPartitions = @TopicPartition(topic = ProductCache.INVALIDATION_TOPIC, partitions = "0"),
+                   properties = "auto.offset.reset=latest")
+    public void handleProductCacheInvalidation(@Payload Map<String, Object> invalidationEvent) {
+        if (invalidationEvent.containsKey("reindex")) {
+            if (!ProductCache.INSTANCE_ID.equals(invalidationEvent.get("origin"))) {
+                productNameIndex.rebuild();
+                productFacetIndex.rebuild();
+                productCache.evictQueryResults();
+            }
+            return;
+        }
+        if (invalidationEvent.containsKey("stockChanged")) {
+            if (!ProductCache.INSTANCE_ID.equals(invalidationEvent.get("origin"))) {
+                List<Long> productIds = ((List<?>) invalidationEvent.get("stockChanged")).stream()
+                        .map(id -> Long.valueOf(id.toString()))
+                        .toList();
+                productCache.evictStock(productIds);
+                productFacetIndex.stockChanged(productIds);
+            }
+            return;
+        }
+        Long productId = Long.valueOf(invalidationEvent.get("productId").toString());
+        productCache.evict(productId);
+        productNameIndex.reload(productId);
+        productFacetIndex.reload(productId);
+        logger.debug("Evicted product {} from cache", productId);
+    }
+}
@@ -0,0 +1,170 @@
+package com.gry.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 非阻塞 Kafka 发布器。事件先进入有界队列，由专用线程批量取出异步发送，
+ * 请求线程不再等待 broker；队列满时最多等待 enqueue-timeout，仍然满则在调用线程上同步发送，
+ * 等待 broker 确认（最多 send-timeout），事件不会因队列满被丢弃。
+ * 同步发送的事件可能先于队列中的事件到达，只适合与顺序无关的消息（如缓存失效）。
+ */
+@Component
+public class KafkaEventPublisher {
+    
+    private static final Logger logger = LoggerFactory.getLogger(KafkaEventPublisher.class);
+    
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${gry.kafka.publisher.queue-capacity:10000}")
+    private int queueCapacity;
+    
+    @Value("${gry.kafka.publisher.max-batch:500}")
+    private int maxBatch;
+    
+    @Value("${gry.kafka.publisher.enqueue-timeout:PT0.1S}")
+    private Duration enqueueTimeout;
+    
+    @Value("${gry.kafka.publisher.send-timeout:PT5S}")
+    private Duration sendTimeout;
+    
+    private BlockingQueue<PendingEvent> queue;
+    
+    private Thread drainer;
+    
+    private volatile boolean running;
+    
+    private Timer sendLatency;
+    
+    private Counter sendFailures;
+    
+    private Counter synchronousSends;
+    
+    record PendingEvent(String topic, String key, Object payload) {
+    }
+    
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        sendLatency = Timer.builder("gry.kafka.publish.latency")
+                .description("Time from send to broker acknowledgement")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        sendFailures = Counter.builder("gry.kafka.publish.failures").register(meterRegistry);
+        synchronousSends = Counter.builder("gry.kafka.publish.synchronous")
+                .description("Events sent on the caller thread because the publish queue was full")
+                .register(meterRegistry);
+        Gauge.builder("gry.kafka.publish.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        
+        running = true;
+        drainer = new Thread(this::drainLoop, "kafka-event-publisher");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+    
+    /**
+     * 入队后立即返回；队列满时同步发送。只有同步发送失败时返回 false。
+     */
+    public boolean publish(String topic, String key, Object payload) {
+        try {
+            if (queue.offer(new PendingEvent(topic, key, payload), enqueueTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronousSends.increment();
+        logger.warn("Publish queue full, sending event for topic: {}, key: {} synchronously", topic, key);
+        long start = System.nanoTime();
+        try {
+            kafkaTemplate.send(topic, key, payload).get(sendTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            sendLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Failed to send event to topic: {}, key: {}", topic, key, e);
+        }
+        sendFailures.increment();
+        return false;
+    }
+    
+    public int getQueueDepth() {
+        return queue.size();
+    }
+    
+    private void drainLoop() {
+        List<PendingEvent> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                PendingEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                sendAll(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in Kafka publish loop", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void sendAll(List<PendingEvent> batch) {
+        for (PendingEvent event : batch) {
+            long start = System.nanoTime();
+            try {
+                kafkaTemplate.send(event.topic(), event.key(), event.payload())
+                        .whenComplete((result, ex) -> {
+                            if (ex == null) {
+                                sendLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                            } else {
+                                sendFailures.increment();
+                                logger.error("Failed to send event to topic: {}, key: {}", 
+                                           event.topic(), event.key(), ex);
+                            }
+                        });
+            } catch (Exception e) {
+                sendFailures.increment();
+                logger.error("Failed to send event to topic: {}, key: {}", event.topic(), event.key(), e);
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        drainer.join(TimeUnit.SECONDS.toMillis(5));
+        
+        List<PendingEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        sendAll(remaining);
+        kafkaTemplate.flush();
+    }
+}
@@ -1,64 +1,79 @@
 package com.gry.demo.service;
 
+import com.gry.demo.config.KafkaConfig;
+import com.gry.demo.config.OrderEventSerializer;
+import com.gry.demo.dto.OrderEvent;
 import com.gry.demo.entity.Order;
+import com.gry.demo.entity.OrderItem;
 import com.gry.demo.entity.OrderStatus;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
+@Timed(value = "gry.service", histogram = true)
 public class NotificationService {
     
     private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
     
     @Autowired
-    private KafkaTemplate<String, Object> kafkaTemplate;
+    private OutboxService outboxService;
     
-    private static final String ORDER_EVENTS_TOPIC = "order-events";
+    private final OrderEventSerializer orderEventSerializer = new OrderEventSerializer();
     
     public void sendOrderCreatedNotification(Order order) {
-        Map<String, Object> event = createOrderEvent(order, "ORDER_CREATED", null, order.getStatus());
-        sendNotification(ORDER_EVENTS_TOPIC, event);
-        logger.info("Order created notification sent for order: {}", order.getId());
+        OrderEvent event = createOrderEvent(order, OrderEvent.Type.ORDER_CREATED, null, order.getStatus());
+        sendNotification(event);
+        logger.info("Order created notification recorded for order: {}", order.getId());
     }
     
     public void sendOrderStatusChangedNotification(Order order, OrderStatus oldStatus, OrderStatus newStatus) {
-        Map<String, Object> event = createOrderEvent(order, "ORDER_STATUS_CHANGED", oldStatus, newStatus);
-        sendNotification(ORDER_EVENTS_TOPIC, event);
-        logger.info("Order status changed notification sent for order: {} from {} to {}", 
+        OrderEvent event = createOrderEvent(order, OrderEvent.Type.ORDER_STATUS_CHANGED, oldStatus, newStatus);
+        sendNotification(event);
+        logger.info("Order status changed notification recorded for order: {} from {} to {}", 
                    order.getId(), oldStatus, newStatus);
     }
     
     public void sendOrderDeletedNotification(Order order) {
-        Map<String, Object> event = createOrderEvent(order, "ORDER_DELETED", order.getStatus(), null);
-        sendNotification(ORDER_EVENTS_TOPIC, event);
-        logger.info("Order deleted notification sent for order: {}", order.getId());
+        OrderEvent event = createOrderEvent(order, OrderEvent.Type.ORDER_DELETED, order.getStatus(), null);
+        sendNotification(event);
+        logger.info("Order deleted notification recorded for order: {}", order.getId());
     }
     
-    private Map<String, Object> createOrderEvent(Order order, String eventType, 
-                                                OrderStatus oldStatus, OrderStatus newStatus) {
-        Map<String, Object> event = new HashMap<>();
-        event.put("orderId", order.getId());
-        event.put("userId", order.getUser().getId());
-        event.put("eventType", eventType);
-        event.put("oldStatus", oldStatus != null ? oldStatus.name() : null);
-        event.put("newStatus", newStatus != null ? newStatus.name() : null);
-        event.put("timestamp", LocalDateTime.now().toString());
-        event.put("totalAmount", order.getTotalAmount());
-        return event;
+    public OrderEvent createOrderEvent(Order order, OrderEvent.Type eventType, 
+                                       OrderStatus oldStatus, OrderStatus newStatus) {
+        return new OrderEvent(
+            eventType,
+            order.getId(),
+            order.getUser().getId(),
+            oldStatus,
+            newStatus,
+            Instant.now(),
+            order.getTotalAmount(),
+            eventType == OrderEvent.Type.ORDER_STATUS_CHANGED ? List.of() : lines(order)
+        );
     }
     
-    private void sendNotification(String topic, Object message) {
-        try {
-            kafkaTemplate.send(topic, message);
-        } catch (Exception e) {
-            logger.error("Failed to send notification to topic: {}", topic, e);
+    private List<OrderEvent.Line> lines(Order order) {
+        if (order.getOrderItems() == null) {
+            return List.of();
         }
+        List<OrderEvent.Line> lines = new ArrayList<>(order.getOrderItems().size());
+        for (OrderItem item : order.getOrderItems()) {
+            lines.add(new OrderEvent.Line(item.getProduct().getId(), item.getQuantity()));
+        }
+        return lines;
+    }
+    
+    private void sendNotification(OrderEvent event) {
+        byte[] payload = orderEventSerializer.serialize(KafkaConfig.ORDER_EVENTS_TOPIC, event);
+        outboxService.append(KafkaConfig.ORDER_EVENTS_TOPIC, String.valueOf(event.orderId()), 
+                             event.eventType().name(), payload);
     }
-}
\ No newline at end of file
+}
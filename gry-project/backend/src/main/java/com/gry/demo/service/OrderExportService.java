@@ -0,0 +1,110 @@
+package com.gry.demo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gry.demo.dto.ExportFormat;
+import com.gry.demo.dto.OrderSummary;
+import com.gry.demo.exception.BusinessException;
+import com.gry.demo.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 订单导出：从只前进的数据库游标逐行读取，边读边写到输出流，不在内存中汇总结果。
+ */
+@Service
+public class OrderExportService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrderExportService.class);
+    
+    private static final String CSV_HEADER = "id,user_id,total_amount,status,created_at,updated_at\n";
+    
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    public void checkDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        if (!startDate.isBefore(endDate)) {
+            throw new BusinessException("INVALID_DATE_RANGE", "开始时间必须早于结束时间");
+        }
+    }
+    
+    /**
+     * 导出创建时间在 [startDate, endDate) 内的订单，按创建时间升序写出，返回导出的行数。
+     * 输出流由调用方关闭。
+     */
+    @Transactional(readOnly = true)
+    public long exportOrders(LocalDateTime startDate, LocalDateTime endDate, ExportFormat format,
+                             OutputStream out) throws IOException {
+        checkDateRange(startDate, endDate);
+        long start = System.currentTimeMillis();
+        long rows;
+        try (Stream<OrderSummary> orders = orderRepository.streamSummariesByDateRange(startDate, endDate)) {
+            rows = format == ExportFormat.CSV ? writeCsv(orders.iterator(), out) : writeNdjson(orders.iterator(), out);
+        }
+        logger.info("Exported {} orders created between {} and {} as {} in {} ms",
+                rows, startDate, endDate, format, System.currentTimeMillis() - start);
+        return rows;
+    }
+    
+    private long writeNdjson(Iterator<OrderSummary> orders, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(OrderSummary.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+        long rows = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (orders.hasNext()) {
+                writer.writeValue(generator, orders.next());
+                rows++;
+            }
+            if (rows > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        return rows;
+    }
+    
+    private long writeCsv(Iterator<OrderSummary> orders, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        writer.write(CSV_HEADER);
+        long rows = 0;
+        while (orders.hasNext()) {
+            OrderSummary order = orders.next();
+            writer.write(String.valueOf(order.id()));
+            writer.write(',');
+            writer.write(String.valueOf(order.userId()));
+            writer.write(',');
+            writer.write(order.totalAmount().toPlainString());
+            writer.write(',');
+            writer.write(order.status().name());
+            writer.write(',');
+            writer.write(order.createdAt() != null ? order.createdAt().toString() : "");
+            writer.write(',');
+            writer.write(order.updatedAt() != null ? order.updatedAt().toString() : "");
+            writer.write('\n');
+            rows++;
+        }
+        writer.flush();
+        return rows;
+    }
+}
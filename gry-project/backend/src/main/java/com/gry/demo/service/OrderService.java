@@ -1,11 +1,16 @@
 package com.gry.demo.service;
 
+import com.gry.demo.dto.CursorSlice;
+import com.gry.demo.dto.OrderDetail;
 import com.gry.demo.dto.OrderDto;
 import com.gry.demo.dto.OrderItemDto;
+import com.gry.demo.dto.OrderSummary;
+import com.gry.demo.dto.PageCursor;
 import com.gry.demo.entity.*;
 import com.gry.demo.exception.ResourceNotFoundException;
 import com.gry.demo.repository.OrderRepository;
 import com.gry.demo.repository.OrderItemRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -14,9 +19,12 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
+@Timed(value = "gry.service", histogram = true)
 @Transactional
 public class OrderService {
     
@@ -32,9 +40,18 @@ public class OrderService {
     @Autowired
     private ProductService productService;
     
+    @Autowired
+    private StockLedger stockLedger;
+    
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+    
     public Order createOrder(OrderDto orderDto) {
         User user = userService.getUserById(orderDto.getUserId());
         
@@ -43,17 +60,29 @@ public class OrderService {
         
         List<OrderItem> orderItems = new ArrayList<>();
         
-        if (orderDto.getOrderItems() != null) {
+        if (orderDto.getOrderItems() != null && !orderDto.getOrderItems().isEmpty()) {
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
             for (OrderItemDto itemDto : orderDto.getOrderItems()) {
-                Product product = productService.getProductById(itemDto.getProductId());
-                productService.updateStock(product.getId(), itemDto.getQuantity());
-                
-                OrderItem orderItem = new OrderItem(order, product, itemDto.getQuantity(), itemDto.getPrice());
-                orderItems.add(orderItemRepository.save(orderItem));
+                quantities.merge(itemDto.getProductId(), itemDto.getQuantity(), Integer::sum);
             }
+            
+            Map<Long, Product> products = productService.getProductsByIds(quantities.keySet());
+            if (stockLedger.isEnabled()) {
+                stockLedger.reserve(quantities);
+                productFacetIndex.stockChanged(quantities.keySet());
+            } else {
+                productService.reserveStock(quantities);
+            }
+            
+            for (OrderItemDto itemDto : orderDto.getOrderItems()) {
+                Product product = products.get(itemDto.getProductId());
+                orderItems.add(new OrderItem(order, product, itemDto.getQuantity(), itemDto.getPrice()));
+            }
+            orderItems = orderItemRepository.saveAll(orderItems);
         }
         
         order.setOrderItems(orderItems);
+        orderStatusCounter.increment(user.getId(), order.getStatus());
         
         notificationService.sendOrderCreatedNotification(order);
         
@@ -75,27 +104,59 @@ public class OrderService {
         return order;
     }
     
+    /**
+     * 订单详情读取：订单列与明细各一条投影查询，不加载实体。
+     */
+    @Transactional(readOnly = true)
+    public OrderDetail getOrderDetail(Long id) {
+        OrderSummary order = orderRepository.findSummaryById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Order", "id", id));
+        return OrderDetail.of(order, orderRepository.findItemViewsByOrderIds(List.of(id)));
+    }
+    
+    @Transactional(readOnly = true)
+    public Page<OrderSummary> getAllOrders(Pageable pageable) {
+        return orderRepository.findAllSummaries(pageable);
+    }
+    
+    /**
+     * Keyset 分页：按创建时间倒序，cursor 为上一页返回的 nextCursor，首页传 null；status 可选。
+     */
     @Transactional(readOnly = true)
-    public Page<Order> getAllOrders(Pageable pageable) {
-        return orderRepository.findAll(pageable);
+    public CursorSlice<OrderSummary> scrollOrders(OrderStatus status, String cursor, int size) {
+        PageCursor pageCursor = PageCursor.decode(cursor);
+        Pageable limit = CursorSlice.fetchLimit(size);
+        List<OrderSummary> rows;
+        if (pageCursor == null) {
+            rows = status == null
+                    ? orderRepository.findLatestOrders(limit)
+                    : orderRepository.findLatestOrdersByStatus(status, limit);
+        } else if (status == null) {
+            rows = orderRepository.findOrdersBefore(pageCursor.getCreatedAt(), pageCursor.getId(), limit);
+        } else {
+            rows = orderRepository.findOrdersByStatusBefore(status, pageCursor.getCreatedAt(), pageCursor.getId(),
+                    limit);
+        }
+        return CursorSlice.of(rows, size, order -> PageCursor.encode(order.createdAt(), order.id()));
     }
     
     @Transactional(readOnly = true)
-    public Page<Order> getOrdersByUserId(Long userId, Pageable pageable) {
+    public Page<OrderDetail> getOrdersByUserId(Long userId, Pageable pageable) {
         userService.getUserById(userId);
         return orderRepository.findOrdersByUserIdWithDetails(userId, pageable);
     }
     
     @Transactional(readOnly = true)
-    public Page<Order> getOrdersByStatus(OrderStatus status, Pageable pageable) {
-        return orderRepository.findByStatus(status, pageable);
+    public Page<OrderSummary> getOrdersByStatus(OrderStatus status, Pageable pageable) {
+        return orderRepository.findSummariesByStatus(status, pageable);
     }
     
     public Order updateOrderStatus(Long id, OrderStatus newStatus) {
-        Order order = getOrderById(id);
+        Order order = lockOrder(id);
         OrderStatus oldStatus = order.getStatus();
         order.setStatus(newStatus);
         order = orderRepository.save(order);
+        orderStatusCounter.move(order.getUser().getId(), oldStatus, newStatus);
         
         notificationService.sendOrderStatusChangedNotification(order, oldStatus, newStatus);
         
@@ -103,19 +164,41 @@ public class OrderService {
     }
     
     public void deleteOrder(Long id) {
+        lockOrder(id);
         Order order = getOrderWithDetails(id);
         
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
         for (OrderItem item : order.getOrderItems()) {
-            productService.restoreStock(item.getProduct().getId(), item.getQuantity());
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        if (!quantities.isEmpty()) {
+            if (stockLedger.isEnabled()) {
+                stockLedger.release(quantities);
+                productFacetIndex.stockChanged(quantities.keySet());
+            } else {
+                productService.restoreStock(quantities);
+            }
         }
         
         orderRepository.delete(order);
+        orderStatusCounter.decrement(order.getUser().getId(), order.getStatus());
         
         notificationService.sendOrderDeletedNotification(order);
     }
     
+    /**
+     * 读取物化的计数表，不再对 orders 做 COUNT。
+     */
     @Transactional(readOnly = true)
     public long countOrdersByUserIdAndStatus(Long userId, OrderStatus status) {
-        return orderRepository.countOrdersByUserIdAndStatus(userId, status);
+        return orderStatusCounter.count(userId, status);
+    }
+    
+    /**
+     * 状态修改和删除先锁定订单行：并发修改同一订单时后到者读到的是前者提交后的状态，状态计数不会重复扣减。
+     */
+    private Order lockOrder(Long id) {
+        return orderRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Order", "id", id));
     }
 }
\ No newline at end of file
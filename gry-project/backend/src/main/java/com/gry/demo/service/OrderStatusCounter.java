@@ -0,0 +1,185 @@
+package com.gry.demo.service;
+
+import com.gry.demo.entity.OrderStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按 (用户, 状态) 维护的订单计数表 order_status_counts。
+ * 增减与订单修改在同一事务内执行，提交即可见，多实例下也保持一致；读取是一次主键查询。
+ * rebuild 按用户 id 区间分块，在多个线程中各自用一个事务从 orders 重新汇总。
+ */
+@Component
+public class OrderStatusCounter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatusCounter.class);
+    
+    private static final String ADJUST_SQL =
+        "UPDATE order_status_counts SET order_count = order_count + ? WHERE user_id = ? AND status = ?";
+    
+    private static final String INSERT_SQL =
+        "INSERT INTO order_status_counts (user_id, status, order_count) VALUES (?, ?, ?)";
+    
+    private static final String COUNT_SQL =
+        "SELECT order_count FROM order_status_counts WHERE user_id = ? AND status = ?";
+    
+    private static final String DELETE_RANGE_SQL =
+        "DELETE FROM order_status_counts WHERE user_id BETWEEN ? AND ?";
+    
+    private static final String REBUILD_RANGE_SQL =
+        "INSERT INTO order_status_counts (user_id, status, order_count) " +
+        "SELECT user_id, status, COUNT(*) FROM orders WHERE user_id BETWEEN ? AND ? GROUP BY user_id, status";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${gry.orders.status-counts.rebuild-threads:4}")
+    private int rebuildThreads;
+    
+    @Value("${gry.orders.status-counts.rebuild-chunk-size:10000}")
+    private int rebuildChunkSize;
+    
+    @Value("${gry.orders.status-counts.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+    
+    public record Rebuild(int chunks, int rows, long elapsedMillis) {
+    }
+    
+    public void increment(Long userId, OrderStatus status) {
+        adjust(userId, status, 1);
+    }
+    
+    public void decrement(Long userId, OrderStatus status) {
+        adjust(userId, status, -1);
+    }
+    
+    /**
+     * 订单状态变更：按枚举顺序更新两行，反向的两个状态变更不会互相等待对方的行锁。
+     */
+    public void move(Long userId, OrderStatus from, OrderStatus to) {
+        if (from == to) {
+            return;
+        }
+        if (from.ordinal() < to.ordinal()) {
+            adjust(userId, from, -1);
+            adjust(userId, to, 1);
+        } else {
+            adjust(userId, to, 1);
+            adjust(userId, from, -1);
+        }
+    }
+    
+    public long count(Long userId, OrderStatus status) {
+        List<Long> counts = jdbcTemplate.queryForList(COUNT_SQL, Long.class, userId, status.name());
+        return counts.isEmpty() ? 0L : counts.get(0);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * 从 orders 全量重算。每个用户 id 区间在一个事务里先删后插；
+     * 重算某区间的同时该区间有订单写入时，计数以两者中后提交的为准，应在低峰期执行。
+     */
+    public Rebuild rebuild() {
+        long start = System.nanoTime();
+        Long maxUserId = jdbcTemplate.queryForObject("SELECT MAX(user_id) FROM orders", Long.class);
+        long upper = maxUserId != null ? maxUserId : 0L;
+        jdbcTemplate.update("DELETE FROM order_status_counts WHERE user_id > ?", upper);
+        
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(rebuildThreads,
+                runnable -> new Thread(runnable, "order-status-count-rebuild-" + threadIndex.incrementAndGet()));
+        try {
+            List<Future<Integer>> chunks = new ArrayList<>();
+            for (long from = 0; from <= upper; from += rebuildChunkSize) {
+                long lower = from;
+                long to = from + rebuildChunkSize - 1;
+                chunks.add(executor.submit(() -> transactionTemplate.execute(status -> {
+                    jdbcTemplate.update(DELETE_RANGE_SQL, lower, to);
+                    return jdbcTemplate.update(REBUILD_RANGE_SQL, lower, to);
+                })));
+            }
+            int rows = 0;
+            for (Future<Integer> chunk : chunks) {
+                rows += chunk.get();
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            logger.info("Rebuilt {} order status counts in {} chunks in {} ms", rows, chunks.size(), elapsedMillis);
+            return new Rebuild(chunks.size(), rows, elapsedMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Order status count rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Order status count rebuild failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * 先更新，行不存在时在保存点内插入计数为 0 的行后再更新；
+     * 并发插入同一行的唯一键冲突只回滚到保存点，不会让 PostgreSQL 中止订单事务。
+     * 保存点与订单事务共用一个连接，不会像独立事务那样在连接池耗尽时互相等待。
+     */
+    private void adjust(Long userId, OrderStatus status, int delta) {
+        if (jdbcTemplate.update(ADJUST_SQL, delta, userId, status.name()) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> insertZeroRow(connection, userId, status));
+        } catch (DuplicateKeyException e) {
+            logger.debug("Order status count row for user {} status {} created concurrently", userId, status);
+        }
+        jdbcTemplate.update(ADJUST_SQL, delta, userId, status.name());
+    }
+    
+    /**
+     * 用的是订单事务所绑定的连接；不在事务中（自动提交）时直接插入。
+     * 保存点不显式释放，随事务结束释放，SQL Server 驱动不支持 releaseSavepoint。
+     */
+    private int insertZeroRow(Connection connection, Long userId, OrderStatus status) throws SQLException {
+        Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            statement.setLong(1, userId);
+            statement.setString(2, status.name());
+            statement.setLong(3, 0L);
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            if (savepoint != null) {
+                connection.rollback(savepoint);
+            }
+            throw e;
+        }
+    }
+}
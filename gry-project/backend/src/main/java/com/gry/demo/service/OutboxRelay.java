@@ -0,0 +1,271 @@
+package com.gry.demo.service;
+
+import com.gry.demo.entity.OutboxEvent;
+import com.gry.demo.entity.OutboxLane;
+import com.gry.demo.repository.OutboxEventRepository;
+import com.gry.demo.repository.OutboxLaneRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outbox 投递器。事件按 shard 分到 OutboxLane.LANES 个通道，relay 线程轮流处理有待发送事件的通道：
+ * 在独立事务中先以 SKIP LOCKED 锁定通道行，再认领该通道的一批事件批量发送到 Kafka，
+ * 全部确认后批量标记为已发送。发送失败时仍在持有通道锁的事务中把已确认的事件标记为已发送、
+ * 失败的事件记一次失败，失败达到 max-attempts 次的事件放弃投递（failed_at），通道随后继续发送后面的事件。
+ * 通道锁在事务结束前一直持有，所有线程和实例中同一通道同时只有一个发送者，
+ * 同一 key（orderId）的事件按写入顺序进入同一分区；吞吐随线程数和实例数扩展，上限为通道数。
+ */
+@Component
+public class OutboxRelay {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+    
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    
+    @Autowired
+    private OutboxLaneRepository outboxLaneRepository;
+    
+    @Autowired
+    private KafkaTemplate<String, byte[]> outboxKafkaTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${gry.outbox.relay.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${gry.outbox.relay.threads:2}")
+    private int threads;
+    
+    @Value("${gry.outbox.relay.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${gry.outbox.relay.poll-interval:PT0.2S}")
+    private Duration pollInterval;
+    
+    @Value("${gry.outbox.relay.send-timeout:PT30S}")
+    private Duration sendTimeout;
+    
+    @Value("${gry.outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+    
+    @Value("${gry.outbox.retention:P1D}")
+    private Duration retention;
+    
+    private ExecutorService executor;
+    
+    private volatile boolean running;
+    
+    private Counter relayed;
+    
+    private Counter failures;
+    
+    private Counter parked;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        relayed = Counter.builder("gry.outbox.relayed").register(meterRegistry);
+        failures = Counter.builder("gry.outbox.relay.failures").register(meterRegistry);
+        parked = Counter.builder("gry.outbox.relay.parked")
+                .description("Outbox events given up after max-attempts failed sends")
+                .register(meterRegistry);
+        Gauge.builder("gry.outbox.lanes.retrying", outboxEventRepository,
+                        repository -> repository.countRetryingLanes(OutboxLane.LANES))
+                .description("Lanes whose next events are blocked behind a failing event")
+                .register(meterRegistry);
+        Gauge.builder("gry.outbox.failed", outboxEventRepository, OutboxEventRepository::countByFailedAtIsNotNull)
+                .description("Outbox events not relayed because they reached max-attempts")
+                .register(meterRegistry);
+        if (!enabled) {
+            logger.info("Outbox relay disabled");
+            return;
+        }
+        createLanes();
+        running = true;
+        AtomicInteger index = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            int worker = i;
+            executor.submit(() -> relayLoop(worker));
+        }
+        logger.info("Outbox relay started with {} threads, batch size {}", threads, batchSize);
+    }
+    
+    /**
+     * 补齐缺少的通道行。多个实例同时启动时插入可能冲突，冲突说明行已由其他实例创建。
+     */
+    private void createLanes() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int lane = 0; lane < OutboxLane.LANES; lane++) {
+            int id = lane;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (!outboxLaneRepository.existsById(id)) {
+                        outboxLaneRepository.save(new OutboxLane(id));
+                    }
+                });
+            } catch (DataIntegrityViolationException e) {
+                logger.debug("Outbox lane {} created concurrently", id);
+            }
+        }
+    }
+    
+    /**
+     * 依次尝试有待发送事件的通道，各线程从不同的通道开始，一轮没有发送任何事件时等待 poll-interval。
+     */
+    private void relayLoop(int worker) {
+        while (running) {
+            try {
+                List<Integer> lanes = outboxEventRepository.findPendingLanes(OutboxLane.LANES);
+                int relayedCount = 0;
+                for (int i = 0; i < lanes.size() && running; i++) {
+                    relayedCount += relayBatch(lanes.get((worker + i) % lanes.size()));
+                }
+                if (relayedCount == 0) {
+                    Thread.sleep(pollInterval.toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failures.increment();
+                logger.error("Outbox relay batch failed, will retry", e);
+                try {
+                    Thread.sleep(pollInterval.toMillis() * 5);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * 锁定通道 lane，认领、发送并标记其中的一批事件，返回本批处理的条数；通道正被其他线程或实例处理时返回 0。
+     * 有事件发送失败时记录失败次数后提交，再抛出异常让调用方退避。
+     */
+    public int relayBatch(int lane) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger failed = new AtomicInteger();
+        Integer count = transactionTemplate.execute(status -> {
+            if (outboxLaneRepository.tryLock(lane).isEmpty()) {
+                return 0;
+            }
+            List<OutboxEvent> events = outboxEventRepository.claimPending(lane, OutboxLane.LANES,
+                    PageRequest.of(0, batchSize));
+            if (events.isEmpty()) {
+                return 0;
+            }
+            
+            List<CompletableFuture<?>> futures = new ArrayList<>(events.size());
+            for (OutboxEvent event : events) {
+                futures.add(send(event));
+            }
+            
+            Exception cause = null;
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                        .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while relaying outbox events", e);
+            } catch (Exception e) {
+                cause = e;
+            }
+            
+            List<Long> sentIds = new ArrayList<>(events.size());
+            List<Long> failedIds = new ArrayList<>();
+            for (int i = 0; i < events.size(); i++) {
+                CompletableFuture<?> future = futures.get(i);
+                if (future.isDone() && !future.isCompletedExceptionally()) {
+                    sentIds.add(events.get(i).getId());
+                } else {
+                    failedIds.add(events.get(i).getId());
+                }
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (!sentIds.isEmpty()) {
+                outboxEventRepository.markSent(sentIds, now);
+            }
+            if (!failedIds.isEmpty()) {
+                outboxEventRepository.incrementAttempts(failedIds);
+                int given = outboxEventRepository.markFailed(failedIds, maxAttempts, now);
+                if (given > 0) {
+                    parked.increment(given);
+                    logger.error("Gave up {} outbox events in lane {} after {} failed attempts",
+                            given, lane, maxAttempts, cause);
+                }
+                failed.set(failedIds.size());
+            }
+            return sentIds.size();
+        });
+        if (count != null && count > 0) {
+            relayed.increment(count);
+            logger.debug("Relayed {} outbox events", count);
+        }
+        if (failed.get() > 0) {
+            throw new IllegalStateException("Failed to relay " + failed.get() + " outbox events in lane " + lane);
+        }
+        return count != null ? count : 0;
+    }
+    
+    private CompletableFuture<?> send(OutboxEvent event) {
+        try {
+            return outboxKafkaTemplate.send(event.getTopic(), event.getMessageKey(), event.getPayload());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${gry.outbox.cleanup-interval-ms:3600000}")
+    public void purgeSentEvents() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteSentBefore(LocalDateTime.now().minus(retention)));
+        if (deleted != null && deleted > 0) {
+            logger.info("Purged {} relayed outbox events", deleted);
+        }
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.gry.demo.service;
+
+import com.gry.demo.entity.OutboxEvent;
+import com.gry.demo.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class OutboxService {
+    
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    
+    /**
+     * 在调用方事务内写入已编码的消息体，与业务数据一同提交或回滚，由 OutboxRelay 负责投递。
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent append(String topic, String key, String eventType, byte[] payload) {
+        return outboxEventRepository.save(new OutboxEvent(topic, key, eventType, payload));
+    }
+}
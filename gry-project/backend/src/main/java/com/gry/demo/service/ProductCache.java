@@ -0,0 +1,206 @@
+package com.gry.demo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gry.demo.dto.ProductDetail;
+import com.gry.demo.entity.Product;
+import com.gry.demo.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * 产品读穿缓存。快照含库存，启用库存台账时以台账为准。
+ * 产品新增、修改、删除以及库存变化提交后，通过 Kafka 通知所有实例失效对应条目并刷新名称索引和分面索引。
+ * 失效时一并清除本实例 Hibernate 二级缓存中的该产品和产品查询结果；经 JDBC 写入的库存同样清除对应实体数据。
+ */
+@Component
+public class ProductCache {
+    
+    public static final String INVALIDATION_TOPIC = "product-cache-invalidation";
+    
+    /** 本实例标识，批量导入的重建通知据此跳过发出通知的实例自身。 */
+    public static final String INSTANCE_ID = UUID.randomUUID().toString();
+    
+    @Autowired
+    private KafkaEventPublisher eventPublisher;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Value("${gry.product-cache.maximum-size:10000}")
+    private long maximumSize;
+    
+    @Value("${gry.product-cache.ttl:PT5M}")
+    private Duration ttl;
+    
+    private Cache<Long, Snapshot> cache;
+    
+    public record Snapshot(Long id, String name, String description, BigDecimal price, int stockQuantity,
+                           LocalDateTime createdAt, LocalDateTime updatedAt) {
+        
+        public static Snapshot of(ProductDetail detail) {
+            return new Snapshot(detail.id(), detail.name(), detail.description(), detail.price(),
+                    detail.stockQuantity() != null ? detail.stockQuantity() : 0,
+                    detail.createdAt(), detail.updatedAt());
+        }
+        
+        public ProductDetail toDetail(int stockQuantity) {
+            return new ProductDetail(id, name, description, price, stockQuantity, createdAt, updatedAt);
+        }
+    }
+    
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "products");
+    }
+    
+    public Snapshot get(Long productId, Supplier<Snapshot> loader) {
+        return cache.get(productId, id -> loader.get());
+    }
+    
+    public void evict(Long productId) {
+        cache.invalidate(productId);
+        entityManagerFactory.getCache().evict(Product.class, productId);
+        evictQueryRegion();
+    }
+    
+    /**
+     * 库存经条件更新改变后调用：提交后失效本地快照，并广播给其他实例失效快照、二级缓存和有库存位图；
+     * 本实例收到自己发出的通知时跳过。
+     */
+    public void stockChanged(Collection<Long> productIds) {
+        List<Long> ids = List.copyOf(productIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateStockAndPublish(ids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidateStockAndPublish(ids);
+            }
+        });
+    }
+    
+    /**
+     * 处理其他实例的库存变更通知：失效快照以及二级缓存中的实体数据和产品查询结果。
+     */
+    public void evictStock(Collection<Long> productIds) {
+        cache.invalidateAll(productIds);
+        evictStockData(List.copyOf(productIds));
+    }
+    
+    /**
+     * 产品表经 JDBC 写入（库存回写、批量导入）后调用，Hibernate 感知不到这些写入，需清空查询缓存中的产品结果；
+     * 在事务中时等到提交后再清，避免清空后又被并发读到的旧数据填回。
+     */
+    public void evictQueryResults() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictQueryRegion();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictQueryRegion();
+            }
+        });
+    }
+    
+    /**
+     * 库存经 JDBC 条件更新或台账回写后调用：这些写入绕过了 Hibernate，提交后清除二级缓存中这些产品的实体数据
+     * 和产品查询结果，否则按 id 读取的产品会一直停留在旧库存。
+     */
+    public void stockWritten(Collection<Long> productIds) {
+        List<Long> ids = List.copyOf(productIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictStockData(ids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictStockData(ids);
+            }
+        });
+    }
+    
+    /**
+     * 事务提交后失效本地条目并广播给其他实例；回滚时不做任何事。
+     */
+    public void invalidate(Long productId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictAndPublish(productId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictAndPublish(productId);
+            }
+        });
+    }
+    
+    /**
+     * 批量导入后通知其他实例重建产品名称索引和分面索引。
+     * 新产品不在任何缓存中，无需逐条失效；发出通知的实例已自行重建。
+     */
+    public void publishReindex() {
+        Map<String, Object> event = new HashMap<>();
+        event.put("reindex", true);
+        event.put("origin", INSTANCE_ID);
+        eventPublisher.publish(INVALIDATION_TOPIC, "reindex", event);
+    }
+    
+    private void evictQueryRegion() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache()
+                .evictQueryRegion(ProductRepository.AVAILABLE_PRODUCTS_REGION);
+    }
+    
+    private void evictStockData(List<Long> productIds) {
+        org.hibernate.Cache secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        productIds.forEach(productId -> secondLevelCache.evictEntityData(Product.class, productId));
+        secondLevelCache.evictQueryRegion(ProductRepository.AVAILABLE_PRODUCTS_REGION);
+    }
+    
+    private void invalidateStockAndPublish(List<Long> productIds) {
+        cache.invalidateAll(productIds);
+        Map<String, Object> event = new HashMap<>();
+        event.put("stockChanged", productIds);
+        event.put("origin", INSTANCE_ID);
+        eventPublisher.publish(INVALIDATION_TOPIC, "stock", event);
+    }
+    
+    private void evictAndPublish(Long productId) {
+        evict(productId);
+        Map<String, Object> event = new HashMap<>();
+        event.put("productId", productId);
+        eventPublisher.publish(INVALIDATION_TOPIC, String.valueOf(productId), event);
+    }
+}
@@ -0,0 +1,370 @@
+package com.gry.demo.service;
+
+import com.gry.demo.dto.ProductSummary;
+import com.gry.demo.exception.ResourceNotFoundException;
+import com.gry.demo.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 产品列表的位图分面索引：全部产品、每个价格区间和有库存各一个 RoaringBitmap。
+ * 价格和库存过滤通过位图求交得到 id 集合，分页直接在结果位图上按 id 顺序截取，
+ * 只有当前页的行需要再查数据库。
+ * 价格区间边界上的产品用按 id 存放的价格（分）逐个比对，结果是精确的。
+ * 启动时和按 refresh-interval 定期全量重建，期间的修改在重建完成后重放；
+ * 库存变化在事务提交后从库存台账（或数据库）读取最新值更新有库存位图。
+ */
+@Component
+public class ProductFacetIndex {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private StockLedger stockLedger;
+    
+    @Value("${gry.search.facets.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${gry.search.facets.price-buckets:0,10,50,100,200,500,1000,5000}")
+    private BigDecimal[] priceBuckets;
+    
+    @Value("${gry.search.facets.load-batch-size:10000}")
+    private int loadBatchSize;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    /** 各价格区间下界（分），升序，第一个区间从 0 开始，最后一个区间没有上界。 */
+    private long[] bucketFloors;
+    
+    private Facets facets;
+    
+    /** 重建期间提交的修改，重建完成后按顺序重放到新索引上。 */
+    private List<Consumer<Facets>> deferred;
+    
+    private volatile boolean ready;
+    
+    static final class Facets {
+        final RoaringBitmap all = new RoaringBitmap();
+        final RoaringBitmap inStock = new RoaringBitmap();
+        final RoaringBitmap[] buckets;
+        /** 以 id 为下标的价格（分）。 */
+        long[] prices;
+        
+        Facets(int buckets, int ids) {
+            this.buckets = new RoaringBitmap[buckets];
+            for (int i = 0; i < buckets; i++) {
+                this.buckets[i] = new RoaringBitmap();
+            }
+            this.prices = new long[ids];
+        }
+    }
+    
+    @PostConstruct
+    public void init() {
+        BigDecimal[] floors = priceBuckets.clone();
+        Arrays.sort(floors);
+        bucketFloors = new long[floors.length];
+        for (int i = 0; i < floors.length; i++) {
+            bucketFloors[i] = toCents(floors[i], RoundingMode.HALF_UP);
+        }
+        bucketFloors[0] = 0L;
+        facets = new Facets(bucketFloors.length, 0);
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${gry.search.facets.refresh-interval:PT5M}",
+               fixedDelayString = "${gry.search.facets.refresh-interval:PT5M}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            deferred = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        List<ProductSummary> rows = new ArrayList<>();
+        List<ProductSummary> batch;
+        long lastId = 0L;
+        do {
+            batch = productRepository.findSummariesAfter(lastId, PageRequest.of(0, loadBatchSize));
+            rows.addAll(batch);
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).id();
+            }
+        } while (batch.size() == loadBatchSize);
+        if (lastId > Integer.MAX_VALUE) {
+            logger.warn("Product id {} exceeds int range, facet index disabled", lastId);
+            lock.writeLock().lock();
+            try {
+                deferred = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+        
+        boolean ledgerEnabled = stockLedger.isEnabled();
+        Facets built = new Facets(bucketFloors.length, (int) lastId + 1);
+        for (ProductSummary row : rows) {
+            Integer available = ledgerEnabled ? stockLedger.peekAvailable(row.id()) : null;
+            int stock = available != null ? available : row.stockQuantity() != null ? row.stockQuantity() : 0;
+            set(built, row.id().intValue(), toCents(row.price(), RoundingMode.HALF_UP), stock > 0);
+        }
+        built.all.runOptimize();
+        built.inStock.runOptimize();
+        for (RoaringBitmap bucket : built.buckets) {
+            bucket.runOptimize();
+        }
+        
+        lock.writeLock().lock();
+        try {
+            deferred.forEach(change -> change.accept(built));
+            deferred = null;
+            facets = built;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product facet index rebuilt with {} products ({} in stock) in {} ms",
+                rows.size(), built.inStock.getCardinality(), (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    /**
+     * 返回全部产品 id 的副本；索引未就绪时返回 null，调用方应回退到数据库查询。
+     */
+    public RoaringBitmap all() {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            return facets.all.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 价格闭区间 [minPrice, maxPrice]（任一端为 null 表示不限）与有库存条件的交集；
+     * 索引未就绪时返回 null。
+     */
+    public RoaringBitmap filter(BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly) {
+        if (!ready) {
+            return null;
+        }
+        long min = minPrice != null ? toCents(minPrice, RoundingMode.CEILING) : Long.MIN_VALUE;
+        long max = maxPrice != null ? toCents(maxPrice, RoundingMode.FLOOR) : Long.MAX_VALUE;
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result;
+            if (minPrice == null && maxPrice == null) {
+                result = facets.all.clone();
+            } else {
+                result = new RoaringBitmap();
+                for (int i = 0; i < bucketFloors.length; i++) {
+                    long floor = bucketFloors[i];
+                    long ceiling = i + 1 < bucketFloors.length ? bucketFloors[i + 1] - 1 : Long.MAX_VALUE;
+                    if (ceiling < min || floor > max) {
+                        continue;
+                    }
+                    if (floor >= min && ceiling <= max) {
+                        result.or(facets.buckets[i]);
+                        continue;
+                    }
+                    int[] matched = new int[facets.buckets[i].getCardinality()];
+                    int count = 0;
+                    PeekableIntIterator ids = facets.buckets[i].getIntIterator();
+                    while (ids.hasNext()) {
+                        int id = ids.next();
+                        long price = facets.prices[id];
+                        if (price >= min && price <= max) {
+                            matched[count++] = id;
+                        }
+                    }
+                    result.addN(matched, 0, count);
+                }
+            }
+            if (inStockOnly) {
+                result.and(facets.inStock);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 按 id 升序取结果位图中 [offset, offset + size) 的 id。
+     */
+    public static List<Long> slice(RoaringBitmap ids, long offset, int size) {
+        if (offset >= ids.getLongCardinality()) {
+            return List.of();
+        }
+        List<Long> page = new ArrayList<>(size);
+        PeekableIntIterator iterator = ids.getIntIterator();
+        iterator.advanceIfNeeded(ids.select((int) offset));
+        while (iterator.hasNext() && page.size() < size) {
+            page.add((long) iterator.next());
+        }
+        return page;
+    }
+    
+    public void put(Long productId, BigDecimal price, Integer stockQuantity) {
+        long cents = toCents(price, RoundingMode.HALF_UP);
+        boolean inStock = stockQuantity != null && stockQuantity > 0;
+        afterCommit(() -> apply(productId, target -> set(target, productId.intValue(), cents, inStock)));
+    }
+    
+    public void remove(Long productId) {
+        afterCommit(() -> removeNow(productId));
+    }
+    
+    /**
+     * 事务提交后按最新库存更新有库存位图：启用库存台账时读台账，否则读数据库。
+     */
+    public void stockChanged(Collection<Long> productIds) {
+        afterCommit(() -> {
+            if (!enabled) {
+                return;
+            }
+            if (stockLedger.isEnabled()) {
+                for (Long productId : productIds) {
+                    try {
+                        setInStock(productId, stockLedger.getAvailable(productId) > 0);
+                    } catch (ResourceNotFoundException e) {
+                        removeNow(productId);
+                    }
+                }
+                return;
+            }
+            for (ProductSummary row : productRepository.findSummariesByIdIn(productIds)) {
+                setInStock(row.id(), row.stockQuantity() != null && row.stockQuantity() > 0);
+            }
+        });
+    }
+    
+    /**
+     * 从数据库重新读取单个产品，用于同步其他实例的修改。
+     */
+    public void reload(Long productId) {
+        List<ProductSummary> rows = productRepository.findSummariesByIdIn(List.of(productId));
+        if (rows.isEmpty()) {
+            remove(productId);
+        } else {
+            ProductSummary row = rows.get(0);
+            Integer available = stockLedger.isEnabled() ? stockLedger.peekAvailable(row.id()) : null;
+            put(row.id(), row.price(), available != null ? available : row.stockQuantity());
+        }
+    }
+    
+    private void removeNow(Long productId) {
+        apply(productId, target -> {
+            int id = productId.intValue();
+            target.all.remove(id);
+            target.inStock.remove(id);
+            for (RoaringBitmap bucket : target.buckets) {
+                bucket.remove(id);
+            }
+        });
+    }
+    
+    private void setInStock(Long productId, boolean inStock) {
+        apply(productId, target -> {
+            int id = productId.intValue();
+            if (!target.all.contains(id)) {
+                return;
+            }
+            if (inStock) {
+                target.inStock.add(id);
+            } else {
+                target.inStock.remove(id);
+            }
+        });
+    }
+    
+    private void apply(Long productId, Consumer<Facets> change) {
+        if (!enabled || productId > Integer.MAX_VALUE) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (deferred != null) {
+                deferred.add(change);
+            }
+            change.accept(facets);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void set(Facets target, int id, long cents, boolean inStock) {
+        if (id >= target.prices.length) {
+            target.prices = Arrays.copyOf(target.prices, Math.max(id + 1, target.prices.length + (target.prices.length >> 1)));
+        }
+        if (target.all.contains(id)) {
+            target.buckets[bucketOf(target.prices[id])].remove(id);
+        }
+        target.prices[id] = cents;
+        target.all.add(id);
+        target.buckets[bucketOf(cents)].add(id);
+        if (inStock) {
+            target.inStock.add(id);
+        } else {
+            target.inStock.remove(id);
+        }
+    }
+    
+    private int bucketOf(long cents) {
+        int pos = Arrays.binarySearch(bucketFloors, cents);
+        return pos >= 0 ? pos : Math.max(0, -pos - 2);
+    }
+    
+    private static long toCents(BigDecimal price, RoundingMode roundingMode) {
+        return price.setScale(2, roundingMode).unscaledValue().longValue();
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
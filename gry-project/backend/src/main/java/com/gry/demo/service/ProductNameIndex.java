@@ -0,0 +1,468 @@
+package com.gry.demo.service;
+
+import com.gry.demo.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * 产品名称的 n-gram 倒排索引，替代 name LIKE %x% 的全表扫描。
+ * 每个 gram 对应一个按 id 升序的 int 倒排表；查询取各 gram 倒排表的交集，
+ * 再用小写后的名称做一次 contains 校验，结果与大小写不敏感的子串匹配一致。
+ * 短于 gram 长度的查询直接扫描内存中的名称表。
+ * 启动时从数据库并行重建，之后随 ProductService 的增删改在事务提交后增量维护；
+ * 其他实例的修改通过产品缓存失效消息同步。
+ */
+@Component
+public class ProductNameIndex {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ProductNameIndex.class);
+    
+    private static final int[] EMPTY = new int[0];
+    
+    /**
+     * 只与最短的几个倒排表求交，其余 gram 交给 contains 校验：
+     * 候选已经很少时，继续在长倒排表上查找比直接比对名称更慢。
+     */
+    private static final int MAX_INTERSECTED_GRAMS = 2;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Value("${gry.search.name-index.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${gry.search.name-index.gram-size:3}")
+    private int gramSize;
+    
+    @Value("${gry.search.name-index.load-batch-size:10000}")
+    private int loadBatchSize;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private Map<String, Postings> postings = new HashMap<>();
+    
+    private NameStore names = new NameStore(0, 0);
+    
+    /** 重建期间提交的修改，重建完成后按顺序重放；值为 null 表示删除。 */
+    private Map<Integer, String> deferred;
+    
+    private volatile boolean ready;
+    
+    /**
+     * 按 id 升序的 int 数组，追加是常见情况，乱序插入和删除走二分查找。
+     */
+    static final class Postings {
+        int[] ids = new int[4];
+        int size;
+        
+        void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int pos = Arrays.binarySearch(ids, 0, size, id);
+                if (pos >= 0) {
+                    return;
+                }
+                pos = -pos - 1;
+                ensureCapacity(size + 1);
+                System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+                ids[pos] = id;
+                size++;
+                return;
+            }
+            ensureCapacity(size + 1);
+            ids[size++] = id;
+        }
+        
+        void remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+                size--;
+            }
+        }
+        
+        private void ensureCapacity(int capacity) {
+            if (capacity > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(capacity, ids.length * 2));
+            }
+        }
+    }
+    
+    /**
+     * 以 id 为下标的小写名称，连续存放在一个 char 数组里，用于校验候选和短查询扫描。
+     * 候选按 id 升序校验时基本是顺序访问内存。产品 id 由自增主键分配，下标数组基本是稠密的；
+     * 修改只在末尾追加，旧名称占用的空间在下次重建时回收。
+     */
+    static final class NameStore {
+        char[] chars;
+        int used;
+        int[] offsets;
+        /** 名称长度加一，0 表示该 id 没有产品。 */
+        int[] lengths;
+        
+        NameStore(int ids, int chars) {
+            this.chars = new char[chars];
+            this.offsets = new int[ids];
+            this.lengths = new int[ids];
+        }
+        
+        int capacity() {
+            return lengths.length;
+        }
+        
+        String get(int id) {
+            if (id >= lengths.length || lengths[id] == 0) {
+                return null;
+            }
+            return new String(chars, offsets[id], lengths[id] - 1);
+        }
+        
+        void put(int id, String name) {
+            if (id >= lengths.length) {
+                int capacity = Math.max(id + 1, lengths.length + (lengths.length >> 1));
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+            if (used + name.length() > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(used + name.length(), chars.length + (chars.length >> 1)));
+            }
+            name.getChars(0, name.length(), chars, used);
+            offsets[id] = used;
+            lengths[id] = name.length() + 1;
+            used += name.length();
+        }
+        
+        void remove(int id) {
+            if (id < lengths.length) {
+                lengths[id] = 0;
+            }
+        }
+        
+        boolean contains(int id, String query) {
+            int length = lengths[id] - 1;
+            int start = offsets[id];
+            int last = start + length - query.length();
+            char first = query.charAt(0);
+            for (int i = start; i <= last; i++) {
+                if (chars[i] != first) {
+                    continue;
+                }
+                int j = 1;
+                while (j < query.length() && chars[i + j] == query.charAt(j)) {
+                    j++;
+                }
+                if (j == query.length()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            deferred = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        List<Integer> ids = new ArrayList<>();
+        List<String> loaded = new ArrayList<>();
+        long lastId = 0L;
+        List<Object[]> rows;
+        do {
+            rows = productRepository.findNamesAfter(lastId, PageRequest.of(0, loadBatchSize));
+            for (Object[] row : rows) {
+                lastId = (Long) row[0];
+                if (lastId > Integer.MAX_VALUE) {
+                    logger.warn("Product id {} exceeds int range, name index disabled", lastId);
+                    lock.writeLock().lock();
+                    try {
+                        deferred = null;
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                    return;
+                }
+                ids.add((int) lastId);
+                loaded.add((String) row[1]);
+            }
+        } while (rows.size() == loadBatchSize);
+        
+        rebuild(ids.stream().mapToInt(Integer::intValue).toArray(), loaded.toArray(new String[0]));
+    }
+    
+    /**
+     * 按 id 分段并行构建各段的倒排表，段内 id 有序，按段顺序拼接后整体仍有序。
+     * ids 必须升序。
+     */
+    public void rebuild(int[] ids, String[] productNames) {
+        long start = System.nanoTime();
+        int parts = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), ids.length / 1024));
+        List<Map<String, Postings>> partials = IntStream.range(0, parts).parallel()
+                .mapToObj(part -> {
+                    Map<String, Postings> partial = new HashMap<>();
+                    int from = (int) ((long) ids.length * part / parts);
+                    int to = (int) ((long) ids.length * (part + 1) / parts);
+                    for (int i = from; i < to; i++) {
+                        String name = normalize(productNames[i]);
+                        for (String gram : grams(name)) {
+                            partial.computeIfAbsent(gram, g -> new Postings()).add(ids[i]);
+                        }
+                    }
+                    return partial;
+                })
+                .toList();
+        
+        Map<String, Postings> built = new HashMap<>(partials.get(0).size() * 2);
+        for (Map<String, Postings> partial : partials) {
+            partial.forEach((gram, part) -> {
+                Postings target = built.get(gram);
+                if (target == null) {
+                    built.put(gram, part);
+                    return;
+                }
+                target.ensureCapacity(target.size + part.size);
+                System.arraycopy(part.ids, 0, target.ids, target.size, part.size);
+                target.size += part.size;
+            });
+        }
+        long totalChars = 0;
+        for (String name : productNames) {
+            totalChars += name.length();
+        }
+        NameStore builtNames = new NameStore(ids.length > 0 ? ids[ids.length - 1] + 1 : 0, (int) totalChars);
+        for (int i = 0; i < ids.length; i++) {
+            builtNames.put(ids[i], normalize(productNames[i]));
+        }
+        
+        lock.writeLock().lock();
+        try {
+            postings = built;
+            names = builtNames;
+            if (deferred != null) {
+                deferred.forEach(this::applyLocked);
+                deferred = null;
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product name index rebuilt with {} products and {} grams in {} ms",
+                ids.length, built.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    /**
+     * 返回名称包含 query（大小写不敏感）的产品 id，升序；索引未就绪时返回 null，调用方应回退到数据库查询。
+     */
+    public int[] search(String query) {
+        if (!ready) {
+            return null;
+        }
+        String normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (normalized.length() < gramSize) {
+                return scan(normalized);
+            }
+            
+            List<Postings> lists = new ArrayList<>();
+            for (String gram : grams(normalized)) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    return EMPTY;
+                }
+                lists.add(list);
+            }
+            lists.sort((a, b) -> Integer.compare(a.size, b.size));
+            
+            int[] result = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+            int count = result.length;
+            for (int i = 1; i < Math.min(lists.size(), MAX_INTERSECTED_GRAMS) && count > 0; i++) {
+                count = intersect(result, count, lists.get(i));
+            }
+            if (normalized.length() > gramSize) {
+                int verified = 0;
+                for (int i = 0; i < count; i++) {
+                    if (names.contains(result[i], normalized)) {
+                        result[verified++] = result[i];
+                    }
+                }
+                count = verified;
+            }
+            return count == result.length ? result : Arrays.copyOf(result, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public void put(Long productId, String name) {
+        afterCommit(() -> apply(productId, name != null ? normalize(name) : null));
+    }
+    
+    public void remove(Long productId) {
+        afterCommit(() -> apply(productId, null));
+    }
+    
+    /**
+     * 从数据库重新读取单个产品的名称，用于同步其他实例的修改。
+     */
+    public void reload(Long productId) {
+        String name = productRepository.findNameById(productId).orElse(null);
+        apply(productId, name != null ? normalize(name) : null);
+    }
+    
+    private void apply(Long productId, String normalizedName) {
+        if (!enabled || productId > Integer.MAX_VALUE) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (deferred != null) {
+                deferred.put(productId.intValue(), normalizedName);
+            } else {
+                applyLocked(productId.intValue(), normalizedName);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void applyLocked(int id, String normalizedName) {
+        String old = names.get(id);
+        if (normalizedName != null) {
+            if (!normalizedName.equals(old)) {
+                names.put(id, normalizedName);
+            }
+        } else {
+            names.remove(id);
+        }
+        if (old != null) {
+            if (old.equals(normalizedName)) {
+                return;
+            }
+            for (String gram : grams(old)) {
+                Postings list = postings.get(gram);
+                if (list != null) {
+                    list.remove(id);
+                    if (list.size == 0) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+        if (normalizedName != null) {
+            for (String gram : grams(normalizedName)) {
+                postings.computeIfAbsent(gram, g -> new Postings()).add(id);
+            }
+        }
+    }
+    
+    private int[] scan(String normalized) {
+        int[] result = new int[16];
+        int count = 0;
+        for (int id = 0; id < names.capacity(); id++) {
+            if (names.lengths[id] != 0 && (normalized.isEmpty() || names.contains(id, normalized))) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = id;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+    
+    /**
+     * 原地求交：result 前 count 个元素与 other 的交集，在 other 上用倍增查找推进游标。
+     */
+    private static int intersect(int[] result, int count, Postings other) {
+        int[] ids = other.ids;
+        int kept = 0;
+        int pos = 0;
+        for (int i = 0; i < count; i++) {
+            int id = result[i];
+            if (ids[pos] < id) {
+                pos = gallop(ids, pos, other.size, id);
+                if (pos == other.size) {
+                    break;
+                }
+            }
+            if (ids[pos] == id) {
+                result[kept++] = id;
+                if (++pos == other.size) {
+                    break;
+                }
+            }
+        }
+        return kept;
+    }
+    
+    /**
+     * 返回 ids[from, to) 中第一个不小于 target 的位置。
+     */
+    private static int gallop(int[] ids, int from, int to, int target) {
+        int bound = 1;
+        while (from + bound < to && ids[from + bound] < target) {
+            bound <<= 1;
+        }
+        int pos = Arrays.binarySearch(ids, from + (bound >> 1), Math.min(from + bound + 1, to), target);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+    
+    private List<String> grams(String normalized) {
+        if (normalized.length() < gramSize) {
+            return List.of();
+        }
+        List<String> grams = new ArrayList<>(normalized.length() - gramSize + 1);
+        for (int i = 0; i + gramSize <= normalized.length(); i++) {
+            String gram = normalized.substring(i, i + gramSize);
+            if (!grams.contains(gram)) {
+                grams.add(gram);
+            }
+        }
+        return grams;
+    }
+    
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,25 +1,49 @@
 package com.gry.demo.service;
 
+import com.gry.demo.dto.CursorSlice;
+import com.gry.demo.dto.PageCursor;
 import com.gry.demo.dto.ProductDto;
+import com.gry.demo.dto.ProductDetail;
+import com.gry.demo.dto.ProductSummary;
 import com.gry.demo.entity.Product;
 import com.gry.demo.exception.BusinessException;
 import com.gry.demo.exception.ResourceNotFoundException;
 import com.gry.demo.repository.ProductRepository;
+import io.micrometer.core.annotation.Timed;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
+@Timed(value = "gry.service", histogram = true)
 @Transactional
 public class ProductService {
     
     @Autowired
     private ProductRepository productRepository;
     
+    @Autowired
+    private StockLedger stockLedger;
+    
+    @Autowired
+    private ProductCache productCache;
+    
+    @Autowired
+    private ProductNameIndex productNameIndex;
+    
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    
     public Product createProduct(ProductDto productDto) {
         Product product = new Product(
             productDto.getName(),
@@ -27,62 +51,181 @@ public class ProductService {
             productDto.getPrice(),
             productDto.getStockQuantity()
         );
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        productNameIndex.put(savedProduct.getId(), savedProduct.getName());
+        productFacetIndex.put(savedProduct.getId(), savedProduct.getPrice(), savedProduct.getStockQuantity());
+        productCache.invalidate(savedProduct.getId());
+        return savedProduct;
     }
     
+    /**
+     * 产品详情：缓存未命中时只查询详情投影，不加载 Product 实体。
+     */
     @Transactional(readOnly = true)
-    public Product getProductById(Long id) {
-        return productRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
+    public ProductDetail getProductDetail(Long id) {
+        ProductCache.Snapshot snapshot = productCache.get(id, () -> ProductCache.Snapshot.of(
+                productRepository.findDetailById(id)
+                        .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id))));
+        return snapshot.toDetail(stockLedger.isEnabled() ? stockLedger.getAvailable(id) : snapshot.stockQuantity());
     }
     
     @Transactional(readOnly = true)
-    public Page<Product> getAllProducts(Pageable pageable) {
-        return productRepository.findAll(pageable);
+    public Map<Long, Product> getProductsByIds(Collection<Long> ids) {
+        List<Product> products = productRepository.loadAllById(ids);
+        Map<Long, Product> productsById = new HashMap<>(products.size() * 2);
+        for (Product product : products) {
+            productsById.put(product.getId(), product);
+        }
+        for (Long id : ids) {
+            if (!productsById.containsKey(id)) {
+                throw new ResourceNotFoundException("Product", "id", id);
+            }
+        }
+        return productsById;
+    }
+    
+    @Transactional(readOnly = true)
+    public Page<ProductSummary> getAllProducts(Pageable pageable) {
+        RoaringBitmap ids = pageable.getSort().isUnsorted() ? productFacetIndex.all() : null;
+        if (ids == null) {
+            return productRepository.findAllSummaries(pageable);
+        }
+        return page(ids, pageable);
     }
     
+    /**
+     * Keyset 分页：cursor 为上一页返回的 nextCursor，首页传 null。
+     */
     @Transactional(readOnly = true)
-    public Page<Product> searchProducts(String name, BigDecimal minPrice, BigDecimal maxPrice, 
-                                       Boolean inStock, Pageable pageable) {
-        return productRepository.findProductsWithFilters(name, minPrice, maxPrice, inStock, pageable);
+    public CursorSlice<ProductSummary> scrollProducts(String cursor, int size) {
+        PageCursor pageCursor = PageCursor.decode(cursor);
+        long afterId = pageCursor != null ? pageCursor.getId() : 0L;
+        List<ProductSummary> rows = productRepository.findSummariesAfter(afterId, CursorSlice.fetchLimit(size));
+        return CursorSlice.of(rows, size, product -> PageCursor.encode(product.id()));
+    }
+    
+    /**
+     * 名称条件由名称索引、价格和库存条件由分面位图求出 id 集合，求交后在结果位图上分页，
+     * 只查询当前页的行；任一索引未就绪或需要排序时回退到数据库的组合条件查询。
+     */
+    @Transactional(readOnly = true)
+    public Page<ProductSummary> searchProducts(String name, BigDecimal minPrice, BigDecimal maxPrice, 
+                                              Boolean inStock, Pageable pageable) {
+        boolean stockFilter = Boolean.TRUE.equals(inStock);
+        if (pageable.getSort().isSorted()) {
+            return productRepository.findProductsWithFilters(name, minPrice, maxPrice, inStock, pageable);
+        }
+        
+        RoaringBitmap ids = null;
+        if (name != null && !name.isEmpty()) {
+            int[] candidates = productNameIndex.search(name);
+            if (candidates == null) {
+                return productRepository.findProductsWithFilters(name, minPrice, maxPrice, inStock, pageable);
+            }
+            ids = RoaringBitmap.bitmapOf(candidates);
+        }
+        if (ids == null || minPrice != null || maxPrice != null || stockFilter) {
+            RoaringBitmap facets = productFacetIndex.filter(minPrice, maxPrice, stockFilter);
+            if (facets == null) {
+                return productRepository.findProductsWithFilters(name, minPrice, maxPrice, inStock, pageable);
+            }
+            ids = ids == null ? facets : RoaringBitmap.and(ids, facets);
+        }
+        return page(ids, pageable);
     }
     
     @Transactional(readOnly = true)
-    public Page<Product> getAvailableProducts(Pageable pageable) {
-        return productRepository.findAvailableProducts(pageable);
+    public Page<ProductSummary> getAvailableProducts(Pageable pageable) {
+        RoaringBitmap ids = pageable.getSort().isUnsorted() ? productFacetIndex.filter(null, null, true) : null;
+        if (ids == null) {
+            return productRepository.findAvailableProducts(pageable);
+        }
+        return page(ids, pageable);
     }
     
     public Product updateProduct(Long id, ProductDto productDto) {
-        Product existingProduct = getProductById(id);
+        Product existingProduct = findProduct(id);
         
         existingProduct.setName(productDto.getName());
         existingProduct.setDescription(productDto.getDescription());
         existingProduct.setPrice(productDto.getPrice());
         existingProduct.setStockQuantity(productDto.getStockQuantity());
         
-        return productRepository.save(existingProduct);
+        Product savedProduct = productRepository.save(existingProduct);
+        productNameIndex.put(id, savedProduct.getName());
+        productFacetIndex.put(id, savedProduct.getPrice(), savedProduct.getStockQuantity());
+        stockLedger.reset(id, savedProduct.getStockQuantity() != null ? savedProduct.getStockQuantity() : 0);
+        productCache.invalidate(id);
+        return savedProduct;
     }
     
     public void deleteProduct(Long id) {
-        Product product = getProductById(id);
+        Product product = findProduct(id);
         productRepository.delete(product);
+        stockLedger.remove(id);
+        productNameIndex.remove(id);
+        productFacetIndex.remove(id);
+        productCache.invalidate(id);
     }
     
     public Product updateStock(Long productId, Integer quantity) {
-        Product product = getProductById(productId);
-        
-        if (product.getStockQuantity() < quantity) {
-            throw new BusinessException("INSUFFICIENT_STOCK", 
-                String.format("库存不足，当前库存: %d, 需要: %d", product.getStockQuantity(), quantity));
+        if (productRepository.decrementStock(productId, quantity) == 0) {
+            throw insufficientStock(productId, quantity);
         }
-        
-        product.setStockQuantity(product.getStockQuantity() - quantity);
-        return productRepository.save(product);
+        stockLedger.applyExternal(productId, -quantity);
+        productFacetIndex.stockChanged(List.of(productId));
+        productCache.stockChanged(List.of(productId));
+        return findProduct(productId);
     }
     
     public Product restoreStock(Long productId, Integer quantity) {
-        Product product = getProductById(productId);
-        product.setStockQuantity(product.getStockQuantity() + quantity);
-        return productRepository.save(product);
+        if (productRepository.incrementStock(productId, quantity) == 0) {
+            throw new ResourceNotFoundException("Product", "id", productId);
+        }
+        stockLedger.applyExternal(productId, quantity);
+        productFacetIndex.stockChanged(List.of(productId));
+        productCache.stockChanged(List.of(productId));
+        return findProduct(productId);
+    }
+    
+    public void reserveStock(Map<Long, Integer> quantities) {
+        List<Long> rejected = productRepository.decrementStock(quantities);
+        if (!rejected.isEmpty()) {
+            Long productId = rejected.get(0);
+            throw insufficientStock(productId, quantities.get(productId));
+        }
+        quantities.forEach((productId, quantity) -> stockLedger.applyExternal(productId, -quantity));
+        productFacetIndex.stockChanged(quantities.keySet());
+        productCache.stockChanged(quantities.keySet());
+        productCache.stockWritten(quantities.keySet());
+    }
+    
+    public void restoreStock(Map<Long, Integer> quantities) {
+        productRepository.incrementStock(quantities);
+        quantities.forEach(stockLedger::applyExternal);
+        productFacetIndex.stockChanged(quantities.keySet());
+        productCache.stockChanged(quantities.keySet());
+        productCache.stockWritten(quantities.keySet());
+    }
+    
+    /**
+     * 在按 id 升序的结果位图上分页，只查询当前页的行。
+     */
+    private Page<ProductSummary> page(RoaringBitmap ids, Pageable pageable) {
+        List<Long> pageIds = ProductFacetIndex.slice(ids, pageable.getOffset(), pageable.getPageSize());
+        List<ProductSummary> content = pageIds.isEmpty() ? List.of() : productRepository.findSummariesByIdIn(pageIds);
+        return new PageImpl<>(content, pageable, ids.getLongCardinality());
+    }
+    
+    private Product findProduct(Long id) {
+        return productRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
+    }
+    
+    private RuntimeException insufficientStock(Long productId, Integer quantity) {
+        Integer stock = productRepository.findStockQuantityById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
+        return new BusinessException("INSUFFICIENT_STOCK", 
+            String.format("库存不足，当前库存: %d, 需要: %d", stock, quantity));
     }
-}
\ No newline at end of file
+}
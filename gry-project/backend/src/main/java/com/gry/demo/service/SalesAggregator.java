@@ -0,0 +1,362 @@
+package com.gry.demo.service;
+
+import com.gry.demo.config.KafkaConfig;
+import com.gry.demo.dto.OrderEvent;
+import com.gry.demo.dto.ProductSales;
+import com.gry.demo.entity.SalesSnapshot;
+import com.gry.demo.exception.BusinessException;
+import com.gry.demo.repository.SalesSnapshotRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 从 order-events 流式聚合商品销量，替代按需执行的 SUM(order_items.quantity)。
+ * <ul>
+ *   <li>累计销量：按商品存放在原始类型的 long → long 哈希表中，ORDER_CREATED 加、ORDER_DELETED 减，
+ *       与订单明细表的合计一致，是精确值；</li>
+ *   <li>时间窗口（默认 5 分钟、1 小时、24 小时）：每个窗口一组按时间桶滚动的 count-min sketch
+ *       加候选小顶堆，给出窗口内下单量的近似 Top-K，只统计 ORDER_CREATED；</li>
+ *   <li>快照：定期把状态和各分区已处理到的 offset 写入数据库，
+ *       重启后从快照 offset 继续消费，offset 之前的重复投递被跳过。</li>
+ * </ul>
+ * 每个实例不加入消费组，手动分配全部分区，各自持有完整的聚合结果；位置只保存在快照中，不向 Kafka 提交 offset。
+ */
+@Service
+public class SalesAggregator implements ConsumerSeekAware {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SalesAggregator.class);
+    
+    private static final long SNAPSHOT_ID = 1L;
+    
+    private static final int SNAPSHOT_VERSION = 1;
+    
+    @Autowired
+    private SalesSnapshotRepository salesSnapshotRepository;
+    
+    @Value("${gry.sales.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${gry.sales.windows:PT5M,PT1H,PT24H}")
+    private Duration[] windowDurations;
+    
+    @Value("${gry.sales.buckets-per-window:12}")
+    private int bucketsPerWindow;
+    
+    @Value("${gry.sales.sketch-depth:4}")
+    private int sketchDepth;
+    
+    @Value("${gry.sales.sketch-width:2048}")
+    private int sketchWidth;
+    
+    @Value("${gry.sales.top-k:100}")
+    private int topK;
+    
+    private Clock clock = Clock.systemUTC();
+    
+    private final LongLongMap totals = new LongLongMap(1 << 12);
+    
+    private final Map<Integer, Long> nextOffsets = new HashMap<>();
+    
+    private SlidingTopK[] windows;
+    
+    @PostConstruct
+    public void init() {
+        windows = new SlidingTopK[windowDurations.length];
+        for (int i = 0; i < windowDurations.length; i++) {
+            windows[i] = new SlidingTopK(windowDurations[i], bucketsPerWindow, sketchDepth, sketchWidth, topK);
+        }
+        if (enabled) {
+            restore();
+        }
+    }
+    
+    /**
+     * 分区分配后跳到快照中记录的下一个 offset；没有快照的分区按 auto.offset.reset 从头消费。
+     */
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        synchronized (this) {
+            for (TopicPartition partition : assignments.keySet()) {
+                Long next = nextOffsets.get(partition.partition());
+                if (next != null && KafkaConfig.ORDER_EVENTS_TOPIC.equals(partition.topic())) {
+                    callback.seek(partition.topic(), partition.partition(), next);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 累加一批记录。offset 小于已处理位置的记录（重试后的重复投递）被跳过；
+     * 反序列化失败的记录没有 payload，同样跳过。
+     */
+    @KafkaListener(id = "order-sales", containerFactory = "salesAggregatorContainerFactory",
+                   topicPartitions = @org.springframework.kafka.annotation.TopicPartition(
+                           topic = KafkaConfig.ORDER_EVENTS_TOPIC,
+                           partitions = "#{'0-' + (${gry.kafka.topics.order-events.partitions:3} - 1)}"),
+                   properties = "auto.offset.reset=earliest")
+    public void record(List<ConsumerRecord<String, OrderEvent>> records) {
+        synchronized (this) {
+            for (ConsumerRecord<String, OrderEvent> record : records) {
+                Long next = nextOffsets.get(record.partition());
+                if (next != null && record.offset() < next) {
+                    continue;
+                }
+                nextOffsets.put(record.partition(), record.offset() + 1);
+                if (record.value() != null) {
+                    apply(record.value());
+                }
+            }
+        }
+        logger.debug("Aggregated sales from {} order events", records.size());
+    }
+    
+    private void apply(OrderEvent event) {
+        int sign = switch (event.eventType()) {
+            case ORDER_CREATED -> 1;
+            case ORDER_DELETED -> -1;
+            default -> 0;
+        };
+        if (sign == 0) {
+            return;
+        }
+        long eventMillis = event.timestamp().toEpochMilli();
+        for (OrderEvent.Line item : event.items()) {
+            if (totals.addTo(item.productId(), (long) sign * item.quantity()) == 0) {
+                totals.remove(item.productId());
+            }
+            if (sign > 0) {
+                for (SlidingTopK window : windows) {
+                    window.add(item.productId(), item.quantity(), eventMillis);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 商品累计销量。
+     */
+    public long getUnitsSold(Long productId) {
+        synchronized (this) {
+            return totals.get(productId, 0);
+        }
+    }
+    
+    /**
+     * 累计销量前 limit 名，精确值。
+     */
+    public List<ProductSales> getTopSelling(int limit) {
+        checkLimit(limit);
+        PriorityQueue<ProductSales> top = new PriorityQueue<>(Comparator.comparingLong(ProductSales::unitsSold)
+                .thenComparing(Comparator.comparingLong(ProductSales::productId).reversed()));
+        synchronized (this) {
+            totals.forEach((productId, unitsSold) -> {
+                if (unitsSold <= 0) {
+                    return;
+                }
+                if (top.size() < limit) {
+                    top.add(new ProductSales(productId, unitsSold));
+                } else if (unitsSold > top.peek().unitsSold()) {
+                    top.poll();
+                    top.add(new ProductSales(productId, unitsSold));
+                }
+            });
+        }
+        List<ProductSales> result = new ArrayList<>(top);
+        result.sort(Comparator.comparingLong(ProductSales::unitsSold).reversed()
+                .thenComparingLong(ProductSales::productId));
+        return result;
+    }
+    
+    /**
+     * 最近 window 时间内下单量前 limit 名，估计值（只会高估）。window 必须是配置的窗口之一。
+     */
+    public List<ProductSales> getTopSelling(Duration window, int limit) {
+        SlidingTopK sliding = window(window);
+        checkLimit(limit);
+        if (limit > sliding.capacity()) {
+            throw new BusinessException("INVALID_LIMIT", "窗口销量排行最多返回 " + sliding.capacity() + " 条");
+        }
+        synchronized (this) {
+            return sliding.top(limit, clock.millis());
+        }
+    }
+    
+    /**
+     * 商品在最近 window 时间内的下单量估计值。
+     */
+    public long getUnitsSold(Long productId, Duration window) {
+        SlidingTopK sliding = window(window);
+        synchronized (this) {
+            return sliding.estimate(productId, clock.millis());
+        }
+    }
+    
+    private void checkLimit(int limit) {
+        if (limit < 1) {
+            throw new BusinessException("INVALID_LIMIT", "返回条数必须大于 0");
+        }
+    }
+    
+    private SlidingTopK window(Duration window) {
+        for (SlidingTopK sliding : windows) {
+            if (sliding.window().equals(window)) {
+                return sliding;
+            }
+        }
+        throw new BusinessException("INVALID_WINDOW", "不支持的统计窗口: " + window);
+    }
+    
+    @Scheduled(initialDelayString = "${gry.sales.snapshot-interval:PT1M}",
+               fixedDelayString = "${gry.sales.snapshot-interval:PT1M}")
+    public void snapshot() {
+        if (!enabled) {
+            return;
+        }
+        byte[] state;
+        synchronized (this) {
+            state = encode();
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(state.length / 4);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+            out.write(state);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to compress sales snapshot", e);
+        }
+        salesSnapshotRepository.save(new SalesSnapshot(SNAPSHOT_ID, LocalDateTime.now(), compressed.toByteArray()));
+        logger.debug("Saved sales snapshot of {} bytes ({} raw)", compressed.size(), state.length);
+    }
+    
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to save sales snapshot on shutdown", e);
+        }
+    }
+    
+    private byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(nextOffsets.size());
+            for (Map.Entry<Integer, Long> entry : nextOffsets.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            out.writeInt(totals.size());
+            IOException[] failure = new IOException[1];
+            totals.forEach((productId, unitsSold) -> {
+                try {
+                    out.writeLong(productId);
+                    out.writeLong(unitsSold);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            out.writeInt(windows.length);
+            for (SlidingTopK window : windows) {
+                ByteArrayOutputStream windowBytes = new ByteArrayOutputStream();
+                try (DataOutputStream windowOut = new DataOutputStream(windowBytes)) {
+                    window.writeTo(windowOut);
+                }
+                out.writeUTF(window.layout());
+                out.writeInt(windowBytes.size());
+                windowBytes.writeTo(out);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode sales snapshot", e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * 从最新快照恢复。快照损坏时从空状态开始（消费从头重放）；
+     * 窗口配置变化后对应窗口从空开始，累计销量和 offset 照常恢复。
+     */
+    private void restore() {
+        SalesSnapshot snapshot = salesSnapshotRepository.findById(SNAPSHOT_ID).orElse(null);
+        if (snapshot == null) {
+            logger.info("No sales snapshot found, order events will be replayed from the beginning");
+            return;
+        }
+        synchronized (this) {
+            try (DataInputStream in = new DataInputStream(
+                    new InflaterInputStream(new ByteArrayInputStream(snapshot.getPayload())))) {
+                decode(in);
+                logger.info("Restored sales snapshot taken at {}: {} products, offsets {}",
+                        snapshot.getTakenAt(), totals.size(), nextOffsets);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Discarding unreadable sales snapshot taken at {}", snapshot.getTakenAt(), e);
+                nextOffsets.clear();
+                totals.clear();
+                for (SlidingTopK window : windows) {
+                    window.clear();
+                }
+            }
+        }
+    }
+    
+    private void decode(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported sales snapshot version: " + version);
+        }
+        int partitions = in.readInt();
+        for (int i = 0; i < partitions; i++) {
+            nextOffsets.put(in.readInt(), in.readLong());
+        }
+        int products = in.readInt();
+        for (int i = 0; i < products; i++) {
+            totals.put(in.readLong(), in.readLong());
+        }
+        Map<String, byte[]> saved = new HashMap<>();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String layout = in.readUTF();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            saved.put(layout, bytes);
+        }
+        for (SlidingTopK window : windows) {
+            byte[] bytes = saved.get(window.layout());
+            if (bytes == null) {
+                logger.warn("Sales window {} not found in snapshot, starting it empty", window.layout());
+                continue;
+            }
+            try (DataInputStream windowIn = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                window.readFrom(windowIn);
+            }
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.gry.demo.service;
+
+import com.gry.demo.dto.ProductSales;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 滑动时间窗口内的近似 Top-K。
+ * 窗口按事件时间切成若干个时间桶，每个桶一个 count-min sketch，窗口 sketch 是未过期桶的逐格累加，
+ * 桶过期时整体减去；估计值取各行最小值，只会高估，误差上限约为 e / width × 窗口总量（概率 1 - e^-depth）。
+ * 候选商品放在按估计值排序的小顶堆中，新增销量时更新，桶过期后重新估计。
+ * 窗口与桶边界对齐，实际覆盖 (window - bucket, window] 的时间。非线程安全，由调用方加锁。
+ */
+final class SlidingTopK {
+    
+    private static final long EMPTY = Long.MIN_VALUE;
+    
+    private static final long[] SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+        0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L
+    };
+    
+    private final Duration window;
+    
+    private final long bucketMillis;
+    
+    private final int depth;
+    
+    private final int width;
+    
+    private final long[][] bucketCells;
+    
+    private final long[] bucketEpochs;
+    
+    private final long[] windowCells;
+    
+    private long head = EMPTY;
+    
+    private final int capacity;
+    
+    private final long[] heapIds;
+    
+    private final long[] heapCounts;
+    
+    private final LongLongMap heapPositions;
+    
+    private int heapSize;
+    
+    SlidingTopK(Duration window, int buckets, int depth, int width, int capacity) {
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("Sketch depth must be between 1 and " + SEEDS.length);
+        }
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Sketch width must be a power of two: " + width);
+        }
+        this.window = window;
+        this.bucketMillis = Math.max(1, window.toMillis() / buckets);
+        this.depth = depth;
+        this.width = width;
+        this.bucketCells = new long[buckets][depth * width];
+        this.bucketEpochs = new long[buckets];
+        Arrays.fill(bucketEpochs, EMPTY);
+        this.windowCells = new long[depth * width];
+        this.capacity = capacity;
+        this.heapIds = new long[capacity];
+        this.heapCounts = new long[capacity];
+        this.heapPositions = new LongLongMap(capacity);
+    }
+    
+    Duration window() {
+        return window;
+    }
+    
+    int capacity() {
+        return capacity;
+    }
+    
+    void add(long productId, long quantity, long eventMillis) {
+        long epoch = Math.floorDiv(eventMillis, bucketMillis);
+        advance(epoch);
+        if (epoch <= head - bucketEpochs.length) {
+            return;
+        }
+        int bucket = (int) Math.floorMod(epoch, (long) bucketEpochs.length);
+        bucketEpochs[bucket] = epoch;
+        long[] cells = bucketCells[bucket];
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int cell = cell(row, productId);
+            cells[cell] += quantity;
+            windowCells[cell] += quantity;
+            estimate = Math.min(estimate, windowCells[cell]);
+        }
+        offer(productId, estimate);
+    }
+    
+    long estimate(long productId, long nowMillis) {
+        advance(Math.floorDiv(nowMillis, bucketMillis));
+        return estimate(productId);
+    }
+    
+    /**
+     * 按估计销量降序返回窗口内的前 limit 个商品，limit 不超过候选容量。
+     */
+    List<ProductSales> top(int limit, long nowMillis) {
+        advance(Math.floorDiv(nowMillis, bucketMillis));
+        Integer[] order = new Integer[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> heapCounts[i]).reversed()
+                .thenComparingLong(i -> heapIds[i]));
+        List<ProductSales> top = new ArrayList<>(Math.min(limit, heapSize));
+        for (int i = 0; i < order.length && top.size() < limit; i++) {
+            top.add(new ProductSales(heapIds[order[i]], heapCounts[order[i]]));
+        }
+        return top;
+    }
+    
+    /**
+     * 写出桶和候选堆；窗口 sketch 可由桶累加得到，不单独保存。
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(head);
+        for (int bucket = 0; bucket < bucketEpochs.length; bucket++) {
+            out.writeLong(bucketEpochs[bucket]);
+            if (bucketEpochs[bucket] != EMPTY) {
+                for (long cell : bucketCells[bucket]) {
+                    out.writeLong(cell);
+                }
+            }
+        }
+        out.writeInt(heapSize);
+        for (int i = 0; i < heapSize; i++) {
+            out.writeLong(heapIds[i]);
+        }
+    }
+    
+    void readFrom(DataInputStream in) throws IOException {
+        clear();
+        head = in.readLong();
+        for (int bucket = 0; bucket < bucketEpochs.length; bucket++) {
+            bucketEpochs[bucket] = in.readLong();
+            if (bucketEpochs[bucket] != EMPTY) {
+                long[] cells = bucketCells[bucket];
+                for (int cell = 0; cell < cells.length; cell++) {
+                    cells[cell] = in.readLong();
+                    windowCells[cell] += cells[cell];
+                }
+            }
+        }
+        int candidates = Math.min(in.readInt(), capacity);
+        for (int i = 0; i < candidates; i++) {
+            long productId = in.readLong();
+            offer(productId, estimate(productId));
+        }
+    }
+    
+    /**
+     * 快照中描述窗口结构的参数，结构不一致的快照不能直接恢复。
+     */
+    String layout() {
+        return window + "/" + bucketEpochs.length + "x" + bucketMillis + "ms/" + depth + "x" + width;
+    }
+    
+    void clear() {
+        for (long[] cells : bucketCells) {
+            Arrays.fill(cells, 0);
+        }
+        Arrays.fill(bucketEpochs, EMPTY);
+        Arrays.fill(windowCells, 0);
+        head = EMPTY;
+        heapSize = 0;
+        heapPositions.clear();
+    }
+    
+    private long estimate(long productId) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, windowCells[cell(row, productId)]);
+        }
+        return estimate;
+    }
+    
+    private int cell(int row, long productId) {
+        return row * width + ((int) LongLongMap.mix(productId ^ SEEDS[row]) & (width - 1));
+    }
+    
+    /**
+     * 推进到新的时间桶，把落出窗口的桶从窗口 sketch 中减去。
+     */
+    private void advance(long epoch) {
+        if (head != EMPTY && epoch <= head) {
+            return;
+        }
+        head = epoch;
+        boolean expired = false;
+        for (int bucket = 0; bucket < bucketEpochs.length; bucket++) {
+            if (bucketEpochs[bucket] != EMPTY && bucketEpochs[bucket] <= epoch - bucketEpochs.length) {
+                long[] cells = bucketCells[bucket];
+                for (int cell = 0; cell < cells.length; cell++) {
+                    windowCells[cell] -= cells[cell];
+                }
+                Arrays.fill(cells, 0);
+                bucketEpochs[bucket] = EMPTY;
+                expired = true;
+            }
+        }
+        if (expired) {
+            refreshCandidates();
+        }
+    }
+    
+    private void refreshCandidates() {
+        int kept = 0;
+        heapPositions.clear();
+        for (int i = 0; i < heapSize; i++) {
+            long count = estimate(heapIds[i]);
+            if (count > 0) {
+                heapIds[kept] = heapIds[i];
+                heapCounts[kept] = count;
+                kept++;
+            }
+        }
+        heapSize = kept;
+        for (int i = 0; i < heapSize; i++) {
+            heapPositions.put(heapIds[i], i);
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+    
+    private void offer(long productId, long count) {
+        int position = (int) heapPositions.get(productId, -1);
+        if (position >= 0) {
+            heapCounts[position] = count;
+            siftDown(position);
+        } else if (heapSize < capacity) {
+            heapIds[heapSize] = productId;
+            heapCounts[heapSize] = count;
+            heapPositions.put(productId, heapSize);
+            siftUp(heapSize++);
+        } else if (count > heapCounts[0]) {
+            heapPositions.remove(heapIds[0]);
+            heapIds[0] = productId;
+            heapCounts[0] = count;
+            heapPositions.put(productId, 0);
+            siftDown(0);
+        }
+    }
+    
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heapCounts[parent] <= heapCounts[position]) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+    
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < heapSize && heapCounts[left] < heapCounts[smallest]) {
+                smallest = left;
+            }
+            if (right < heapSize && heapCounts[right] < heapCounts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(smallest, position);
+            position = smallest;
+        }
+    }
+    
+    private void swap(int a, int b) {
+        long id = heapIds[a];
+        long count = heapCounts[a];
+        heapIds[a] = heapIds[b];
+        heapCounts[a] = heapCounts[b];
+        heapIds[b] = id;
+        heapCounts[b] = count;
+        heapPositions.put(heapIds[a], a);
+        heapPositions.put(heapIds[b], b);
+    }
+}
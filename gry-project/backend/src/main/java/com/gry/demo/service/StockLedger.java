@@ -0,0 +1,258 @@
+package com.gry.demo.service;
+
+import com.gry.demo.exception.BusinessException;
+import com.gry.demo.exception.ResourceNotFoundException;
+import com.gry.demo.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内库存台账。每个产品对应一组原子计数器：available 为当前可售库存，
+ * pending 为已提交但尚未写回 products.stock_quantity 的净变化量。
+ * 预留与释放只做 CAS，不访问数据库；pending 由定时任务批量写回。
+ * 台账假定本实例是库存的唯一写入者：多实例部署会超卖，进程崩溃时尚未写回的 pending 丢失，
+ * 因此默认关闭（gry.stock.ledger.enabled），此时下单走 ProductService 的条件更新。
+ */
+@Component
+public class StockLedger {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StockLedger.class);
+    
+    private static final String ADJUST_STOCK_SQL =
+        "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+    
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ProductCache productCache;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${gry.stock.ledger.enabled:false}")
+    private boolean enabled;
+    
+    static final class Entry {
+        final AtomicInteger available;
+        final AtomicInteger pending = new AtomicInteger();
+        
+        Entry(int available) {
+            this.available = new AtomicInteger(available);
+        }
+        
+        boolean tryReserve(int quantity) {
+            int current;
+            do {
+                current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - quantity));
+            return true;
+        }
+    }
+    
+    /**
+     * 启动后按数据库库存预加载台账。此时已经可能有请求在预留库存，已加载的条目由台账自身维护
+     * （含尚未提交的预留），只补入缺少的条目，与 entry() 懒加载一样用 putIfAbsent，不覆盖已有计数。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        int loaded = 0;
+        for (Object[] row : productRepository.findAllStockLevels()) {
+            if (entries.putIfAbsent((Long) row[0], new Entry((Integer) row[1])) == null) {
+                loaded++;
+            }
+        }
+        logger.info("Stock ledger reconciled, loaded {} products", loaded);
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public int getAvailable(Long productId) {
+        return entry(productId).available.get();
+    }
+    
+    /**
+     * 只读已加载的台账，未加载时返回 null，不触发数据库查询。
+     */
+    public Integer peekAvailable(Long productId) {
+        Entry entry = entries.get(productId);
+        return entry != null ? entry.available.get() : null;
+    }
+    
+    /**
+     * 按整单预留库存，任一产品不足时回滚本次已预留的部分并抛出 INSUFFICIENT_STOCK。
+     * 处于事务中时，提交后才记入 pending，回滚则归还可售库存。
+     */
+    public void reserve(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> reserved = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> item : quantities.entrySet()) {
+            Entry entry = entry(item.getKey());
+            if (!entry.tryReserve(item.getValue())) {
+                for (Map.Entry<Long, Integer> done : reserved) {
+                    entry(done.getKey()).available.addAndGet(done.getValue());
+                }
+                throw new BusinessException("INSUFFICIENT_STOCK", 
+                    String.format("库存不足，产品ID: %d, 当前库存: %d, 需要: %d", 
+                        item.getKey(), entry.available.get(), item.getValue()));
+            }
+            reserved.add(item);
+        }
+        
+        afterCompletion(committed -> {
+            for (Map.Entry<Long, Integer> item : quantities.entrySet()) {
+                Entry entry = entry(item.getKey());
+                if (committed) {
+                    entry.pending.addAndGet(-item.getValue());
+                } else {
+                    entry.available.addAndGet(item.getValue());
+                }
+            }
+        });
+    }
+    
+    public void release(Map<Long, Integer> quantities) {
+        afterCompletion(committed -> {
+            if (!committed) {
+                return;
+            }
+            for (Map.Entry<Long, Integer> item : quantities.entrySet()) {
+                Entry entry = entry(item.getKey());
+                entry.available.addAndGet(item.getValue());
+                entry.pending.addAndGet(item.getValue());
+            }
+        });
+    }
+    
+    /**
+     * 同步已直接写入数据库的库存变化（如 ProductService.updateStock），不产生 pending。
+     */
+    public void applyExternal(Long productId, int delta) {
+        afterCompletion(committed -> {
+            if (committed) {
+                entries.computeIfPresent(productId, (id, entry) -> {
+                    entry.available.addAndGet(delta);
+                    return entry;
+                });
+            }
+        });
+    }
+    
+    public void reset(Long productId, int stock) {
+        afterCompletion(committed -> {
+            if (committed) {
+                entries.put(productId, new Entry(stock));
+            }
+        });
+    }
+    
+    public void remove(Long productId) {
+        afterCompletion(committed -> {
+            if (committed) {
+                entries.remove(productId);
+            }
+        });
+    }
+    
+    @Scheduled(fixedDelayString = "${gry.stock.ledger.flush-interval-ms:200}")
+    public void flush() {
+        List<Long> productIds = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        entries.forEach((productId, entry) -> {
+            int delta = entry.pending.getAndSet(0);
+            if (delta != 0) {
+                productIds.add(productId);
+                batch.add(new Object[] {delta, productId});
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        try {
+            // 整批在一个事务中写回，失败时没有任何一行生效，全部归还 pending 不会重复累加
+            int[] counts = new TransactionTemplate(transactionManager)
+                    .execute(status -> jdbcTemplate.batchUpdate(ADJUST_STOCK_SQL, batch));
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    entries.remove(productIds.get(i));
+                }
+            }
+            logger.debug("Flushed stock deltas for {} products", batch.size());
+        } catch (RuntimeException e) {
+            for (Object[] row : batch) {
+                Entry entry = entries.get((Long) row[1]);
+                if (entry != null) {
+                    entry.pending.addAndGet((Integer) row[0]);
+                }
+            }
+            logger.error("Failed to flush stock deltas for {} products, will retry", batch.size(), e);
+            return;
+        }
+        productCache.stockWritten(productIds);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+    
+    private Entry entry(Long productId) {
+        Entry entry = entries.get(productId);
+        if (entry != null) {
+            return entry;
+        }
+        int stock = productRepository.findStockQuantityById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
+        Entry loaded = new Entry(stock);
+        Entry existing = entries.putIfAbsent(productId, loaded);
+        return existing != null ? existing : loaded;
+    }
+    
+    private interface CompletionCallback {
+        void run(boolean committed);
+    }
+    
+    private static void afterCompletion(CompletionCallback callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.run(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.run(status == STATUS_COMMITTED);
+            }
+        });
+    }
+}
@@ -1,17 +1,24 @@
 package com.gry.demo.service;
 
+import com.gry.demo.dto.CursorSlice;
+import com.gry.demo.dto.PageCursor;
 import com.gry.demo.dto.UserDto;
+import com.gry.demo.dto.UserView;
 import com.gry.demo.entity.User;
 import com.gry.demo.exception.BusinessException;
 import com.gry.demo.exception.ResourceNotFoundException;
 import com.gry.demo.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 @Service
+@Timed(value = "gry.service", histogram = true)
 @Transactional
 public class UserService {
     
@@ -44,12 +51,29 @@ public class UserService {
     }
     
     @Transactional(readOnly = true)
-    public Page<User> getAllUsers(Pageable pageable) {
-        return userRepository.findAll(pageable);
+    public UserView getUserView(Long id) {
+        return userRepository.findViewById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
+    }
+    
+    @Transactional(readOnly = true)
+    public Page<UserView> getAllUsers(Pageable pageable) {
+        return userRepository.findAllViews(pageable);
+    }
+    
+    /**
+     * Keyset 分页：cursor 为上一页返回的 nextCursor，首页传 null。
+     */
+    @Transactional(readOnly = true)
+    public CursorSlice<UserView> scrollUsers(String cursor, int size) {
+        PageCursor pageCursor = PageCursor.decode(cursor);
+        long afterId = pageCursor != null ? pageCursor.getId() : 0L;
+        List<UserView> rows = userRepository.findViewsAfter(afterId, CursorSlice.fetchLimit(size));
+        return CursorSlice.of(rows, size, user -> PageCursor.encode(user.id()));
     }
     
     @Transactional(readOnly = true)
-    public Page<User> searchUsers(String username, String email, Pageable pageable) {
+    public Page<UserView> searchUsers(String username, String email, Pageable pageable) {
         return userRepository.findUsersWithFilters(username, email, pageable);
     }
     
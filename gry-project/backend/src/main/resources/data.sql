@@ -11,14 +11,18 @@ INSERT INTO products (name, description, price, stock_quantity, created_at, upda
 ('显示器', '27寸4K显示器', 1999.00, 30, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP),
 ('耳机', '降噪无线耳机', 899.00, 60, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
 
-INSERT INTO orders (user_id, total_amount, status, created_at, updated_at) VALUES 
-(1, 6198.00, 'PENDING', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP),
-(2, 1098.00, 'PROCESSING', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP),
-(1, 299.00, 'DELIVERED', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
+INSERT INTO orders (id, user_id, total_amount, status, created_at, updated_at) VALUES 
+(1, 1, 6198.00, 'PENDING', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP),
+(2, 2, 1098.00, 'PROCESSING', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP),
+(3, 1, 299.00, 'DELIVERED', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
 
-INSERT INTO order_items (order_id, product_id, quantity, price) VALUES 
-(1, 1, 1, 5999.00),
-(1, 2, 1, 199.00),
-(2, 4, 1, 1999.00),
-(2, 5, 1, 899.00),
-(3, 3, 1, 299.00);
\ No newline at end of file
+INSERT INTO order_items (id, order_id, product_id, quantity, price) VALUES 
+(1, 1, 1, 1, 5999.00),
+(2, 1, 2, 1, 199.00),
+(3, 2, 4, 1, 1999.00),
+(4, 2, 5, 1, 899.00),
+(5, 3, 3, 1, 299.00);
+
+-- orders and order_items use pooled sequences (allocationSize = 50); skip the block used by the seed rows
+ALTER SEQUENCE orders_seq RESTART WITH 101;
+ALTER SEQUENCE order_items_seq RESTART WITH 101;
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.gry.demo.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionLimitingDataSourceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DriverManagerDataSource target;
+
+    @BeforeEach
+    void setUp() {
+        target = new DriverManagerDataSource("jdbc:h2:mem:connection-limit;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    @Test
+    void permitIsReturnedOnceWhenConnectionCloses() throws Exception {
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 1, 0,
+                Duration.ofMillis(50), meterRegistry);
+
+        Connection connection = dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        connection.close();
+        connection.close();
+
+        try (Connection again = dataSource.getConnection()) {
+            assertTrue(again.isValid(1));
+        }
+        assertEquals(1, meterRegistry.get("gry.datasource.connection.limit.available").gauge().value());
+    }
+
+    @Test
+    void waiterTimesOutWhenNoPermitIsReturned() throws Exception {
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 1, 10,
+                Duration.ofMillis(50), meterRegistry);
+
+        try (Connection held = dataSource.getConnection()) {
+            assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        }
+
+        assertEquals(1, meterRegistry.get("gry.datasource.connection.limit.rejected")
+                .tag("reason", "timeout").counter().count());
+    }
+
+    @Test
+    void waiterGetsPermitReleasedByAnotherThread() throws Exception {
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 1, 10,
+                Duration.ofSeconds(5), meterRegistry);
+        Connection held = dataSource.getConnection();
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread waiter = new Thread(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                assertTrue(connection.isValid(1));
+            } catch (Throwable e) {
+                failure.set(e);
+            } finally {
+                done.countDown();
+            }
+        });
+        waiter.start();
+        while (meterRegistry.get("gry.datasource.connection.limit.waiting").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+        held.close();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNull(failure.get());
+    }
+
+    @Test
+    void callersBeyondMaxWaitingFailImmediately() throws Exception {
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 1, 1,
+                Duration.ofSeconds(5), meterRegistry);
+        Connection held = dataSource.getConnection();
+        Thread waiter = new Thread(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.isValid(1);
+            } catch (Exception e) {
+                // 只用来占住唯一的排队位置
+            }
+        });
+        waiter.start();
+        while (meterRegistry.get("gry.datasource.connection.limit.waiting").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+
+        long start = System.nanoTime();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1, meterRegistry.get("gry.datasource.connection.limit.rejected")
+                .tag("reason", "queue-full").counter().count());
+
+        held.close();
+        waiter.join(5000);
+    }
+}
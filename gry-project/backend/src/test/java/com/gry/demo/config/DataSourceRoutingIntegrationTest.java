@@ -0,0 +1,66 @@
+package com.gry.demo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * 副本指向与主库同一个内存库，验证 JPA 在读写分离下的路由；后台任务关闭，连接计数只来自测试本身。
+ */
+@SpringBootTest(properties = {
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "gry.datasource.routing.enabled=true",
+    "gry.datasource.routing.replica-urls=jdbc:h2:mem:testdb,jdbc:h2:mem:testdb",
+    "gry.outbox.relay.enabled=false",
+    "gry.sales.enabled=false",
+    "gry.stock.ledger.enabled=false"
+})
+@AutoConfigureMockMvc
+@EmbeddedKafka(partitions = 1)
+class DataSourceRoutingIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void readOnlyRequests_UseReplicas() throws Exception {
+        double primary = connections("primary");
+        double replica = connections("replica");
+
+        mockMvc.perform(get("/api/orders/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/users").param("size", "10")).andExpect(status().isOk());
+
+        assertEquals(primary, connections("primary"));
+        assertEquals(replica + 2, connections("replica"));
+    }
+
+    @Test
+    void writeRequests_UsePrimary() throws Exception {
+        double primary = connections("primary");
+        double replica = connections("replica");
+
+        mockMvc.perform(put("/api/users/3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"admin\",\"email\":\"admin@example.com\",\"password\":\"admin123\"}"))
+                .andExpect(status().isOk());
+
+        assertTrue(connections("primary") > primary);
+        assertEquals(replica, connections("replica"));
+    }
+
+    private double connections(String route) {
+        return meterRegistry.get("gry.datasource.connections").tag("route", route).counter().count();
+    }
+}
@@ -0,0 +1,62 @@
+package com.gry.demo.config;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 无法反序列化的 order-events 记录重试耗尽后转入 order-events-dlt 的同一分区。
+ */
+@SpringBootTest(properties = {
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "spring.kafka.consumer.auto-offset-reset=earliest",
+    "gry.outbox.relay.enabled=false",
+    "gry.sales.enabled=false",
+    "gry.stock.ledger.enabled=false"
+})
+@EmbeddedKafka(partitions = 3, topics = {KafkaConfig.ORDER_EVENTS_TOPIC, KafkaConfig.ORDER_EVENTS_DLT_TOPIC})
+class OrderEventDeadLetterIntegrationTest {
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Test
+    void malformedOrderEvent_IsPublishedToDeadLetterTopic() throws Exception {
+        try (Producer<String, byte[]> producer = new DefaultKafkaProducerFactory<>(
+                KafkaTestUtils.producerProps(embeddedKafka), new StringSerializer(), new ByteArraySerializer())
+                .createProducer()) {
+            producer.send(new ProducerRecord<>(KafkaConfig.ORDER_EVENTS_TOPIC, 2, "42", new byte[] {99}))
+                    .get(10, TimeUnit.SECONDS);
+        }
+
+        try (Consumer<String, byte[]> consumer = new DefaultKafkaConsumerFactory<>(
+                KafkaTestUtils.consumerProps("dlt-test", "false", embeddedKafka),
+                new StringDeserializer(), new ByteArrayDeserializer()).createConsumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, KafkaConfig.ORDER_EVENTS_DLT_TOPIC);
+            ConsumerRecord<String, byte[]> record = KafkaTestUtils.getSingleRecord(consumer,
+                    KafkaConfig.ORDER_EVENTS_DLT_TOPIC, Duration.ofSeconds(30));
+
+            assertEquals(2, record.partition());
+            assertEquals("42", record.key());
+            assertArrayEquals(new byte[] {99}, record.value());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.gry.demo.config;
+
+import com.gry.demo.dto.OrderEvent;
+import com.gry.demo.entity.OrderStatus;
+import com.gry.demo.entity.OutboxEvent;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderEventSerializerTest {
+
+    private final OrderEventSerializer serializer = new OrderEventSerializer();
+
+    private final OrderEventDeserializer deserializer = new OrderEventDeserializer();
+
+    @Test
+    void roundTrip_PreservesAllFields() {
+        OrderEvent event = new OrderEvent(OrderEvent.Type.ORDER_STATUS_CHANGED, 42L, 7L,
+                OrderStatus.PROCESSING, OrderStatus.DELIVERED,
+                Instant.ofEpochMilli(1_700_000_000_123L), new BigDecimal("6198.00"));
+
+        byte[] bytes = serializer.serialize("order-events", event);
+        OrderEvent decoded = deserializer.deserialize("order-events", bytes);
+
+        assertEquals(event, decoded);
+        assertTrue(bytes.length < 40, "encoded size was " + bytes.length);
+    }
+
+    @Test
+    void roundTrip_NullStatusesAndAmount() {
+        OrderEvent event = new OrderEvent(OrderEvent.Type.ORDER_CREATED, 1L, 2L,
+                null, OrderStatus.PENDING, Instant.ofEpochMilli(0), null);
+
+        OrderEvent decoded = deserializer.deserialize("order-events", serializer.serialize("order-events", event));
+
+        assertEquals(event, decoded);
+    }
+
+    @Test
+    void roundTrip_NegativeAndLargeAmounts() {
+        for (String amount : new String[] {"-0.01", "0", "99999999.99", "123456789012345678901234567890.5"}) {
+            OrderEvent event = new OrderEvent(OrderEvent.Type.ORDER_DELETED, 1L, 2L,
+                    OrderStatus.CANCELLED, null, Instant.ofEpochMilli(5), new BigDecimal(amount));
+
+            assertEquals(event, deserializer.deserialize("order-events", serializer.serialize("order-events", event)));
+        }
+    }
+
+    @Test
+    void roundTrip_PreservesItems() {
+        OrderEvent event = new OrderEvent(OrderEvent.Type.ORDER_CREATED, 3L, 4L,
+                null, OrderStatus.PENDING, Instant.ofEpochMilli(1_700_000_000_000L), new BigDecimal("398.00"),
+                List.of(new OrderEvent.Line(10L, 2), new OrderEvent.Line(Long.MAX_VALUE, 1)));
+
+        byte[] bytes = serializer.serialize("order-events", event);
+
+        assertEquals(event, deserializer.deserialize("order-events", bytes));
+        assertEquals(OrderEventSerializer.FIXED_LENGTH + 3 + 2 + 2 * OrderEventSerializer.ITEM_LENGTH, bytes.length);
+    }
+
+    @Test
+    void deserialize_VersionWithoutItems_StillSupported() {
+        OrderEvent event = new OrderEvent(OrderEvent.Type.ORDER_CREATED, 1L, 2L,
+                null, OrderStatus.PENDING, Instant.ofEpochMilli(0), new BigDecimal("10.00"));
+        byte[] bytes = serializer.serialize("order-events", event);
+        byte[] legacy = Arrays.copyOf(bytes, bytes.length - 2);
+        legacy[0] = OrderEventSerializer.VERSION_WITHOUT_ITEMS;
+
+        OrderEvent decoded = deserializer.deserialize("order-events", legacy);
+
+        assertEquals(event, decoded);
+        assertEquals(List.of(), decoded.items());
+    }
+
+    @Test
+    void deserialize_TruncatedPayload_ThrowsSerializationException() {
+        OrderEvent event = new OrderEvent(OrderEvent.Type.ORDER_CREATED, 1L, 2L,
+                null, OrderStatus.PENDING, Instant.ofEpochMilli(0), new BigDecimal("10.00"));
+        byte[] bytes = serializer.serialize("order-events", event);
+
+        assertThrows(SerializationException.class,
+            () -> deserializer.deserialize("order-events", Arrays.copyOf(bytes, bytes.length - 3)));
+    }
+
+    @Test
+    void deserialize_UnknownVersion_ThrowsSerializationException() {
+        byte[] bytes = new byte[OrderEventSerializer.FIXED_LENGTH];
+        bytes[0] = 99;
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("order-events", bytes));
+    }
+
+    @Test
+    void serialize_WritesStableCodesForTypeAndStatuses() {
+        OrderEvent event = new OrderEvent(OrderEvent.Type.ORDER_DELETED, 1L, 2L,
+                OrderStatus.SHIPPED, OrderStatus.CANCELLED, Instant.ofEpochMilli(0), null);
+
+        byte[] bytes = serializer.serialize("order-events", event);
+
+        assertEquals(2, bytes[1]);
+        assertEquals(2, bytes[18]);
+        assertEquals(4, bytes[19]);
+    }
+
+    @Test
+    void deserialize_UnknownStatusCode_ThrowsSerializationException() {
+        OrderEvent event = new OrderEvent(OrderEvent.Type.ORDER_CREATED, 1L, 2L,
+                null, OrderStatus.PENDING, Instant.ofEpochMilli(0), null);
+        byte[] bytes = serializer.serialize("order-events", event);
+        bytes[19] = 42;
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("order-events", bytes));
+    }
+
+    @Test
+    void serialize_MaxItems_FitsOutboxPayload() {
+        OrderEvent event = new OrderEvent(OrderEvent.Type.ORDER_CREATED, 1L, 2L,
+                null, OrderStatus.PENDING, Instant.ofEpochMilli(0), new BigDecimal("10.00"),
+                Collections.nCopies(OrderEventSerializer.MAX_ITEMS, new OrderEvent.Line(1L, 1)));
+
+        byte[] bytes = serializer.serialize("order-events", event);
+
+        assertTrue(bytes.length <= OrderEventSerializer.MAX_LENGTH);
+        assertTrue(OrderEventSerializer.MAX_LENGTH <= OutboxEvent.MAX_PAYLOAD_LENGTH);
+    }
+}
@@ -0,0 +1,138 @@
+package com.gry.demo.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReadWriteRoutingDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readWrite;
+
+    private TransactionTemplate readOnly;
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    private void setUp(ReadWriteRoutingDataSource.Selection selection, HikariDataSource... replicas) {
+        dataSource = new ReadWriteRoutingDataSource(node("primary"), List.of(replicas), selection,
+                Duration.ofSeconds(30), meterRegistry);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @Test
+    void readOnlyTransactions_AlternateBetweenReplicas() {
+        setUp(ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, node("replica-1"), node("replica-2"));
+
+        Set<String> nodes = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            nodes.add(readOnly.execute(status -> currentNode()));
+        }
+
+        assertEquals(Set.of("replica-1", "replica-2"), nodes);
+    }
+
+    @Test
+    void writesAndNonTransactionalReads_UsePrimary() {
+        setUp(ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, node("replica-1"));
+
+        assertEquals("primary", readWrite.execute(status -> currentNode()));
+        assertEquals("primary", currentNode());
+        assertEquals("replica-1", readOnly.execute(status -> currentNode()));
+    }
+
+    @Test
+    void leastConnections_PrefersIdleReplica() throws Exception {
+        HikariDataSource busy = node("replica-1");
+        setUp(ReadWriteRoutingDataSource.Selection.LEAST_CONNECTIONS, busy, node("replica-2"));
+
+        try (Connection ignored = busy.getConnection()) {
+            for (int i = 0; i < 3; i++) {
+                assertEquals("replica-2", readOnly.execute(status -> currentNode()));
+            }
+        }
+    }
+
+    @Test
+    void unavailableReplica_FallsBackToPrimary() {
+        setUp(ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, unreachable());
+
+        assertEquals("primary", readOnly.execute(status -> currentNode()));
+        assertEquals("primary", readOnly.execute(status -> currentNode()));
+        assertEquals(2, meterRegistry.get("gry.datasource.connections").tag("route", "fallback").counter().count());
+    }
+
+    @Test
+    void unavailableReplica_IsSkippedForOtherReplicas() {
+        setUp(ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, unreachable(), node("replica-2"));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("replica-2", readOnly.execute(status -> currentNode()));
+        }
+    }
+
+    @Test
+    void readsAfterWriteInSession_StayOnPrimary() {
+        setUp(ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, node("replica-1"));
+
+        try (ReadYourWrites.Session session = ReadYourWrites.open()) {
+            assertEquals("replica-1", readOnly.execute(status -> currentNode()));
+            readWrite.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET name = name"));
+            assertTrue(session.hasWritten());
+            assertEquals("primary", readOnly.execute(status -> currentNode()));
+        }
+        assertEquals("replica-1", readOnly.execute(status -> currentNode()));
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static HikariDataSource node(String name) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setMaximumPoolSize(2);
+        config.setPoolName(name);
+        HikariDataSource pool = new HikariDataSource(config);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(pool);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20))");
+        jdbcTemplate.execute("DELETE FROM node");
+        jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+        return pool;
+    }
+
+    private static HikariDataSource unreachable() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:tcp://localhost:1/mem:routing-unreachable");
+        config.setUsername("sa");
+        config.setConnectionTimeout(250);
+        config.setInitializationFailTimeout(-1);
+        config.setPoolName("unreachable");
+        return new HikariDataSource(config);
+    }
+}
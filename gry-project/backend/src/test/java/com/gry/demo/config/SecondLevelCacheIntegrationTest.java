@@ -0,0 +1,127 @@
+package com.gry.demo.config;
+
+import com.gry.demo.dto.OrderDto;
+import com.gry.demo.dto.OrderItemDto;
+import com.gry.demo.dto.ProductSummary;
+import com.gry.demo.dto.UserDto;
+import com.gry.demo.entity.Product;
+import com.gry.demo.entity.User;
+import com.gry.demo.repository.ProductRepository;
+import com.gry.demo.service.OrderService;
+import com.gry.demo.service.ProductCache;
+import com.gry.demo.service.ProductService;
+import com.gry.demo.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.gry.demo.config.SqlStatisticsAssertions.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 实体、查询结果二级缓存的命中与失效；后台任务关闭，避免与其他测试上下文争用同一个内存库中的发件箱事件。
+ */
+@SpringBootTest(properties = {
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "gry.outbox.relay.enabled=false",
+    "gry.sales.enabled=false",
+    "gry.stock.ledger.enabled=false"
+})
+@EmbeddedKafka(partitions = 1)
+class SecondLevelCacheIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void userLookups_AreServedFromCache() throws Exception {
+        userService.getUserById(2L);
+
+        AtomicReference<User> cached = new AtomicReference<>();
+        assertMaxStatements(0, () -> cached.set(userService.getUserById(2L)));
+        assertEquals("testuser2", cached.get().getUsername());
+        assertTrue(meterRegistry.get("hibernate.second.level.cache.requests")
+                .tags("region", SecondLevelCacheConfig.USERS_REGION, "result", "hit")
+                .functionCounter().count() > 0);
+    }
+
+    @Test
+    void updatedUser_ReplacesCachedEntry() throws Exception {
+        userService.getUserById(3L);
+        UserDto update = new UserDto();
+        update.setUsername("admin");
+        update.setEmail("admin@example.org");
+        update.setPassword("admin123");
+        userService.updateUser(3L, update);
+
+        AtomicReference<User> cached = new AtomicReference<>();
+        assertMaxStatements(0, () -> cached.set(userService.getUserById(3L)));
+        assertEquals("admin@example.org", cached.get().getEmail());
+    }
+
+    @Test
+    void productBatchLoads_OnlyQueryMissingIds() throws Exception {
+        productService.getProductsByIds(List.of(1L, 2L));
+
+        AtomicReference<Map<Long, Product>> products = new AtomicReference<>();
+        assertMaxStatements(1, () -> products.set(productService.getProductsByIds(List.of(1L, 2L, 3L))));
+        assertEquals(3, products.get().size());
+        assertMaxStatements(0, () -> productService.getProductsByIds(List.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    void cachedProduct_ReflectsStockReservedByOrder() {
+        productService.getProductsByIds(List.of(5L));
+        int before = productService.getProductsByIds(List.of(5L)).get(5L).getStockQuantity();
+
+        OrderDto orderDto = new OrderDto(1L, new BigDecimal("1798.00"));
+        orderDto.setOrderItems(List.of(new OrderItemDto(5L, 2, new BigDecimal("899.00"))));
+        orderService.createOrder(orderDto);
+
+        assertEquals(before - 2, productService.getProductsByIds(List.of(5L)).get(5L).getStockQuantity());
+        assertEquals(before - 2, productRepository.findById(5L).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void availableProductsQuery_IsCachedUntilEvicted() throws Exception {
+        PageRequest byPrice = PageRequest.of(0, 3, Sort.by("price"));
+        Page<ProductSummary> first = productRepository.findAvailableProducts(byPrice);
+
+        AtomicReference<Page<ProductSummary>> cached = new AtomicReference<>();
+        assertMaxStatements(0, () -> cached.set(productRepository.findAvailableProducts(byPrice)));
+        assertEquals(first.getContent(), cached.get().getContent());
+        assertEquals(first.getTotalElements(), cached.get().getTotalElements());
+
+        productCache.evictQueryResults();
+        SqlStatistics.Snapshot reloaded = capture(() -> productRepository.findAvailableProducts(byPrice));
+        assertEquals(2, reloaded.statements());
+        assertTrue(meterRegistry.get("gry.hibernate.query.cache.requests")
+                .tags("region", ProductRepository.AVAILABLE_PRODUCTS_REGION, "result", "hit")
+                .functionCounter().count() > 0);
+    }
+}
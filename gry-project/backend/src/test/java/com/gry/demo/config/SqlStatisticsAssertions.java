@@ -0,0 +1,44 @@
+package com.gry.demo.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 测试中卡住一段代码执行的 SQL 语句数，越界时报出实际语句数和重复最多的 SQL。
+ */
+public final class SqlStatisticsAssertions {
+
+    @FunctionalInterface
+    public interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+    private SqlStatisticsAssertions() {
+    }
+
+    public static SqlStatistics.Snapshot capture(ThrowingRunnable action) throws Exception {
+        SqlStatistics.Scope scope = SqlStatistics.open();
+        try {
+            action.run();
+        } finally {
+            scope.close();
+        }
+        return scope.snapshot();
+    }
+
+    public static SqlStatistics.Snapshot assertMaxStatements(int max, ThrowingRunnable action) throws Exception {
+        SqlStatistics.Snapshot snapshot = capture(action);
+        assertTrue(snapshot.statements() <= max, () -> String.format(
+                "expected at most %d SQL statements but %d were executed (%d rows); most repeated (%dx): %s",
+                max, snapshot.statements(), snapshot.rows(), snapshot.mostRepeatedCount(),
+                snapshot.mostRepeatedSql()));
+        return snapshot;
+    }
+
+    public static SqlStatistics.Snapshot assertMaxRepeats(int max, ThrowingRunnable action) throws Exception {
+        SqlStatistics.Snapshot snapshot = capture(action);
+        assertTrue(snapshot.mostRepeatedCount() <= max, () -> String.format(
+                "expected no SQL statement to run more than %d times but %s ran %d times",
+                max, snapshot.mostRepeatedSql(), snapshot.mostRepeatedCount()));
+        return snapshot;
+    }
+}
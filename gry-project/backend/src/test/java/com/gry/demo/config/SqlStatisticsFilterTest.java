@@ -0,0 +1,62 @@
+package com.gry.demo.config;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SqlStatisticsFilterTest {
+
+    private final SqlStatisticsFilter filter = new SqlStatisticsFilter();
+
+    private final SqlStatementMonitor sqlStatementMonitor = mock(SqlStatementMonitor.class);
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders/export");
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(filter, "sqlStatementMonitor", sqlStatementMonitor);
+        ReflectionTestUtils.setField(filter, "responseHeader", true);
+    }
+
+    @Test
+    void streamingResponse_IsWrittenThroughWithoutBuffering() throws Exception {
+        FilterChain chain = (req, res) -> {
+            SqlStatisticsFilter.streaming(request);
+            res.getOutputStream().write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            res.getOutputStream().flush();
+            // 过滤器返回前，已写出的部分就到达底层响应
+            assertEquals("{\"id\":1}\n", response.getContentAsString());
+            res.getOutputStream().write("{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+        };
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals("{\"id\":1}\n{\"id\":2}\n", response.getContentAsString());
+        assertNull(response.getHeader(SqlStatisticsFilter.HEADER));
+        verify(sqlStatementMonitor).record(eq("http"), anyString(), eq(1), any());
+    }
+
+    @Test
+    void bufferedResponse_CarriesStatisticsHeader() throws Exception {
+        FilterChain chain = (req, res) -> {
+            res.getOutputStream().write("{}".getBytes(StandardCharsets.UTF_8));
+            assertEquals("", response.getContentAsString());
+        };
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals("{}", response.getContentAsString());
+        assertTrue(response.getHeader(SqlStatisticsFilter.HEADER).startsWith("statements=0;"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.gry.demo.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementCountingDataSourceTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        StatementCountingDataSource dataSource = new StatementCountingDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:statement-counting;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS items (id INT PRIMARY KEY)");
+        jdbcTemplate.execute("DELETE FROM items");
+    }
+
+    @Test
+    void countsPlainAndPreparedStatements() {
+        SqlStatistics.Snapshot snapshot;
+        try (SqlStatistics.Scope scope = SqlStatistics.open()) {
+            jdbcTemplate.update("INSERT INTO items VALUES (?)", 1);
+            jdbcTemplate.update("INSERT INTO items VALUES (?)", 2);
+            jdbcTemplate.queryForList("SELECT id FROM items", Integer.class);
+            jdbcTemplate.execute("DELETE FROM items");
+            snapshot = scope.snapshot();
+        }
+
+        assertEquals(4, snapshot.statements());
+        // 2 inserted + 2 read + 2 deleted
+        assertEquals(6, snapshot.rows());
+        assertEquals("INSERT INTO items VALUES (?)", snapshot.mostRepeatedSql());
+        assertEquals(2, snapshot.mostRepeatedCount());
+    }
+
+    @Test
+    void countsBatchAsOneStatement() {
+        SqlStatistics.Snapshot snapshot;
+        try (SqlStatistics.Scope scope = SqlStatistics.open()) {
+            jdbcTemplate.batchUpdate("INSERT INTO items VALUES (?)", List.of(new Object[] {1}, new Object[] {2},
+                    new Object[] {3}));
+            snapshot = scope.snapshot();
+        }
+
+        assertEquals(1, snapshot.statements());
+        assertEquals(3, snapshot.rows());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class));
+    }
+
+    @Test
+    void nestedScopesAlsoCountInOuterScope() {
+        try (SqlStatistics.Scope outer = SqlStatistics.open()) {
+            jdbcTemplate.update("INSERT INTO items VALUES (?)", 1);
+            try (SqlStatistics.Scope inner = SqlStatistics.open()) {
+                jdbcTemplate.update("INSERT INTO items VALUES (?)", 2);
+                assertEquals(1, inner.snapshot().statements());
+            }
+            jdbcTemplate.update("INSERT INTO items VALUES (?)", 3);
+            assertEquals(3, outer.snapshot().statements());
+        }
+    }
+
+    @Test
+    void countsOnlyCurrentThreadUnlessWrapped() throws InterruptedException {
+        try (SqlStatistics.Scope scope = SqlStatistics.open()) {
+            Thread other = new Thread(() -> jdbcTemplate.update("INSERT INTO items VALUES (?)", 1));
+            other.start();
+            other.join();
+            assertEquals(0, scope.snapshot().statements());
+
+            Thread wrapped = new Thread(SqlStatistics.wrap(() -> jdbcTemplate.update("INSERT INTO items VALUES (?)", 2)));
+            wrapped.start();
+            wrapped.join();
+            assertEquals(1, scope.snapshot().statements());
+        }
+    }
+
+    @Test
+    void assertionReportsMostRepeatedStatement() {
+        AssertionError error = assertThrows(AssertionError.class, () -> SqlStatisticsAssertions.assertMaxStatements(2,
+                () -> {
+                    for (int i = 0; i < 3; i++) {
+                        jdbcTemplate.queryForList("SELECT id FROM items WHERE id = ?", Integer.class, i);
+                    }
+                }));
+
+        assertTrue(error.getMessage().contains("3 were executed"));
+        assertTrue(error.getMessage().contains("SELECT id FROM items WHERE id = ?"));
+    }
+}
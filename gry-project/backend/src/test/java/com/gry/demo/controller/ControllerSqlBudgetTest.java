@@ -0,0 +1,117 @@
+package com.gry.demo.controller;
+
+import com.gry.demo.config.SqlStatisticsFilter;
+import com.gry.demo.dto.OrderDto;
+import com.gry.demo.dto.OrderItemDto;
+import com.gry.demo.service.OrderService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static com.gry.demo.config.SqlStatisticsAssertions.*;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * 每个接口执行的 SQL 语句数上限；列表接口的上限与页大小无关，超出通常意味着引入了 N+1。
+ */
+@SpringBootTest(properties = "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}")
+@AutoConfigureMockMvc
+@EmbeddedKafka(partitions = 1)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ControllerSqlBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderService orderService;
+
+    @BeforeAll
+    void createOrders() {
+        for (int i = 0; i < 12; i++) {
+            OrderDto orderDto = new OrderDto(1L, new BigDecimal("398.00"));
+            orderDto.setOrderItems(List.of(new OrderItemDto(2L, 1, new BigDecimal("199.00")),
+                    new OrderItemDto(3L, 1, new BigDecimal("199.00"))));
+            orderService.createOrder(orderDto);
+        }
+    }
+
+    @Test
+    void orderReads_StayWithinBudget() throws Exception {
+        assertMaxStatements(2, () -> mockMvc.perform(get("/api/orders/1")).andExpect(status().isOk()));
+        // 一页订单的明细一次批量加载
+        assertMaxStatements(2, () -> mockMvc.perform(get("/api/orders").param("size", "10"))
+                .andExpect(status().isOk()));
+        assertMaxStatements(2, () -> mockMvc.perform(get("/api/orders").param("size", "10").param("status", "PENDING"))
+                .andExpect(status().isOk()));
+        assertMaxStatements(4, () -> mockMvc.perform(get("/api/orders/user/1").param("size", "10"))
+                .andExpect(status().isOk()));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/orders/scroll").param("size", "10"))
+                .andExpect(status().isOk()));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/orders/user/1/count").param("status", "PENDING"))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    void orderWrites_StayWithinBudget() throws Exception {
+        String order = "{\"userId\":1,\"totalAmount\":199.00,"
+                + "\"orderItems\":[{\"productId\":2,\"quantity\":1,\"price\":199.00}]}";
+        assertMaxStatements(8, () -> mockMvc.perform(post("/api/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(order))
+                .andExpect(status().isCreated()));
+        assertMaxStatements(8, () -> mockMvc.perform(put("/api/orders/2/status").param("status", "SHIPPED"))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    void productReads_StayWithinBudget() throws Exception {
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/products/1")).andExpect(status().isOk()));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/products").param("size", "10"))
+                .andExpect(status().isOk()));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/products/scroll").param("size", "10"))
+                .andExpect(status().isOk()));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/products/available").param("size", "10"))
+                .andExpect(status().isOk()));
+        // 条件更新、读回产品，库存台账关闭时分面索引再读一次库存摘要
+        assertMaxStatements(3, () -> mockMvc.perform(put("/api/products/4/stock").param("quantity", "20"))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    void userReads_StayWithinBudget() throws Exception {
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/users/1")).andExpect(status().isOk()));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/users").param("size", "10"))
+                .andExpect(status().isOk()));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/users/scroll").param("size", "10"))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    void responseHeader_ReportsStatementCount() throws Exception {
+        mockMvc.perform(get("/api/orders/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SqlStatisticsFilter.HEADER, startsWith("statements=2; rows=3;")));
+    }
+
+    @Test
+    void export_IsStreamedWithoutStatisticsHeader() throws Exception {
+        mockMvc.perform(get("/api/orders/export")
+                        .param("from", "2000-01-01T00:00:00")
+                        .param("to", "2100-01-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(SqlStatisticsFilter.HEADER))
+                .andExpect(content().string(startsWith("{")));
+    }
+}
@@ -0,0 +1,91 @@
+package com.gry.demo.controller;
+
+import com.gry.demo.dto.CursorSlice;
+import com.gry.demo.exception.GlobalExceptionHandler;
+import com.gry.demo.service.OrderExportService;
+import com.gry.demo.service.OrderService;
+import com.gry.demo.service.ProductService;
+import com.gry.demo.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * 三个 /scroll 接口的 size 必须在 [1, CursorSlice.MAX_SIZE] 内，越界返回 400 且不查询。
+ */
+@ExtendWith(MockitoExtension.class)
+class ScrollSizeValidationTest {
+
+    private static final List<String> ENDPOINTS = List.of("/api/orders/scroll", "/api/products/scroll",
+            "/api/users/scroll");
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private OrderExportService orderExportService;
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private UserService userService;
+
+    @InjectMocks
+    private OrderController orderController;
+
+    @InjectMocks
+    private ProductController productController;
+
+    @InjectMocks
+    private UserController userController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(orderController, productController, userController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void scroll_SizeOutOfRange_ReturnsBadRequest() throws Exception {
+        for (int size : new int[] {0, -1, CursorSlice.MAX_SIZE + 1, Integer.MAX_VALUE}) {
+            for (String endpoint : ENDPOINTS) {
+                mockMvc.perform(get(endpoint).param("size", String.valueOf(size)))
+                        .andExpect(status().isBadRequest())
+                        .andExpect(jsonPath("$.code").value("1001"));
+            }
+        }
+
+        verifyNoInteractions(orderService, productService, userService);
+    }
+
+    @Test
+    void scroll_SizeWithinRange_IsAccepted() throws Exception {
+        when(orderService.scrollOrders(any(), any(), anyInt())).thenReturn(new CursorSlice<>());
+        when(productService.scrollProducts(any(), anyInt())).thenReturn(new CursorSlice<>());
+        when(userService.scrollUsers(any(), anyInt())).thenReturn(new CursorSlice<>());
+
+        for (int size : new int[] {1, CursorSlice.MAX_SIZE}) {
+            for (String endpoint : ENDPOINTS) {
+                mockMvc.perform(get(endpoint).param("size", String.valueOf(size)))
+                        .andExpect(status().isOk());
+            }
+        }
+        verify(orderService).scrollOrders(null, null, CursorSlice.MAX_SIZE);
+    }
+}
@@ -2,6 +2,7 @@ package com.gry.demo.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gry.demo.dto.UserDto;
+import com.gry.demo.dto.UserView;
 import com.gry.demo.entity.User;
 import com.gry.demo.exception.GlobalExceptionHandler;
 import com.gry.demo.exception.ResourceNotFoundException;
@@ -55,27 +56,28 @@ class UserControllerTest {
 
     @Test
     void getUserById_Success() throws Exception {
-        when(userService.getUserById(1L)).thenReturn(testUser);
+        when(userService.getUserView(1L)).thenReturn(UserView.of(testUser));
 
         mockMvc.perform(get("/api/users/1"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.code").value("0000"))
                 .andExpect(jsonPath("$.data.id").value(1))
-                .andExpect(jsonPath("$.data.username").value("testuser"));
+                .andExpect(jsonPath("$.data.username").value("testuser"))
+                .andExpect(jsonPath("$.data.password").doesNotExist());
 
-        verify(userService).getUserById(1L);
+        verify(userService).getUserView(1L);
     }
 
     @Test
     void getUserById_NotFound() throws Exception {
-        when(userService.getUserById(1L)).thenThrow(new ResourceNotFoundException("User", "id", 1L));
+        when(userService.getUserView(1L)).thenThrow(new ResourceNotFoundException("User", "id", 1L));
 
         mockMvc.perform(get("/api/users/1"))
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.code").value("2001"));
 
-        verify(userService).getUserById(1L);
+        verify(userService).getUserView(1L);
     }
 
     @Test
@@ -130,7 +132,7 @@ class UserControllerTest {
 
     @Test
     void getAllUsers_Success() throws Exception {
-        Page<User> userPage = new PageImpl<>(Arrays.asList(testUser));
+        Page<UserView> userPage = new PageImpl<>(Arrays.asList(UserView.of(testUser)), PageRequest.of(0, 10), 1);
         when(userService.getAllUsers(any())).thenReturn(userPage);
 
         mockMvc.perform(get("/api/users")
@@ -145,7 +147,7 @@ class UserControllerTest {
 
     @Test
     void searchUsers_Success() throws Exception {
-        Page<User> userPage = new PageImpl<>(Arrays.asList(testUser));
+        Page<UserView> userPage = new PageImpl<>(Arrays.asList(UserView.of(testUser)), PageRequest.of(0, 10), 1);
         when(userService.searchUsers(anyString(), anyString(), any())).thenReturn(userPage);
 
         mockMvc.perform(get("/api/users")
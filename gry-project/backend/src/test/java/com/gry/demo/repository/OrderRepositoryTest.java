@@ -0,0 +1,116 @@
+package com.gry.demo.repository;
+
+import com.gry.demo.dto.OrderDetail;
+import com.gry.demo.dto.OrderItemView;
+import com.gry.demo.dto.OrderSummary;
+import com.gry.demo.entity.Order;
+import com.gry.demo.entity.OrderItem;
+import com.gry.demo.entity.Product;
+import com.gry.demo.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderRepositoryTest {
+
+    private static final int ORDER_COUNT = 120;
+    private static final int PAGE_SIZE = 10;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User heavyUser;
+
+    @BeforeEach
+    void setUp() {
+        heavyUser = new User("heavyuser", "heavy@example.com", "password123");
+        entityManager.persist(heavyUser);
+        Product keyboard = new Product("Keyboard", "87 keys", new BigDecimal("299.00"), 1000);
+        Product mouse = new Product("Mouse", "Wireless", new BigDecimal("99.00"), 1000);
+        entityManager.persist(keyboard);
+        entityManager.persist(mouse);
+
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            Order order = new Order(heavyUser, new BigDecimal("398.00"));
+            entityManager.persist(order);
+            entityManager.persist(new OrderItem(order, keyboard, 1, keyboard.getPrice()));
+            entityManager.persist(new OrderItem(order, mouse, 1, mouse.getPrice()));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findOrdersByUserIdWithDetails_LoadsOnlyRequestedPage() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<OrderDetail> page = orderRepository.findOrdersByUserIdWithDetails(heavyUser.getId(), PageRequest.of(2, PAGE_SIZE));
+
+        assertEquals(ORDER_COUNT, page.getTotalElements());
+        assertEquals(PAGE_SIZE, page.getNumberOfElements());
+        for (OrderDetail order : page) {
+            assertEquals(heavyUser.getId(), order.userId());
+            assertEquals(List.of("Keyboard", "Mouse"), order.orderItems().stream().map(OrderItemView::productName).toList());
+        }
+
+        // 订单分页、count、明细各一条语句，取回的行数只与页大小有关，与订单总数无关；投影查询不加载实体
+        assertEquals(3, statistics.getPrepareStatementCount());
+        for (String query : statistics.getQueries()) {
+            assertTrue(statistics.getQueryStatistics(query).getExecutionRowCount() <= 2 * PAGE_SIZE, query);
+        }
+        assertEquals(0, statistics.getEntityLoadCount());
+
+        // 分页查询走 (user_id, created_at DESC, id DESC) 索引，按索引顺序读取当前页，不必扫描并排序该用户的全部订单
+        String plan = entityManager.createNativeQuery("EXPLAIN SELECT o.id FROM orders o WHERE o.user_id = ?1 " +
+                "ORDER BY o.created_at DESC, o.id DESC FETCH FIRST 10 ROWS ONLY")
+                .setParameter(1, heavyUser.getId())
+                .getSingleResult().toString();
+        assertTrue(plan.contains("IDX_ORDERS_USER_CREATED_AT_ID"), plan);
+    }
+
+    @Test
+    void streamSummariesByDateRange_StreamsProjectionsInCreationOrder() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        LocalDateTime now = LocalDateTime.now();
+
+        List<OrderSummary> orders;
+        try (Stream<OrderSummary> stream = orderRepository.streamSummariesByDateRange(now.minusHours(1), now.plusHours(1))) {
+            orders = stream.toList();
+        }
+
+        assertEquals(ORDER_COUNT, orders.stream().filter(order -> order.userId().equals(heavyUser.getId())).count());
+        for (int i = 1; i < orders.size(); i++) {
+            OrderSummary previous = orders.get(i - 1);
+            OrderSummary current = orders.get(i);
+            assertTrue(previous.createdAt().isBefore(current.createdAt())
+                    || previous.createdAt().equals(current.createdAt()) && previous.id() < current.id());
+        }
+        assertEquals(0, statistics.getEntityLoadCount());
+        try (Stream<OrderSummary> stream = orderRepository.streamSummariesByDateRange(now.plusHours(1), now.plusHours(2))) {
+            assertEquals(0, stream.count());
+        }
+    }
+}
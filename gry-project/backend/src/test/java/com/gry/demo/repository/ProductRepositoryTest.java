@@ -0,0 +1,91 @@
+package com.gry.demo.repository;
+
+import com.gry.demo.dto.ProductDto;
+import com.gry.demo.dto.ProductSummary;
+import com.gry.demo.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class ProductRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Product keyboard;
+    private Product monitor;
+
+    @BeforeEach
+    void setUp() {
+        keyboard = productRepository.save(new Product("Keyboard", "87 keys", new BigDecimal("299.00"), 5));
+        monitor = productRepository.save(new Product("Monitor", "27 inch", new BigDecimal("1999.00"), 2));
+        productRepository.flush();
+    }
+
+    @Test
+    void decrementStock_OnlyWhenEnoughStock() {
+        assertEquals(1, productRepository.decrementStock(keyboard.getId(), 3));
+        assertEquals(0, productRepository.decrementStock(keyboard.getId(), 3));
+
+        assertEquals(2, productRepository.findStockQuantityById(keyboard.getId()).orElseThrow());
+    }
+
+    @Test
+    void incrementStock_UnknownProduct_ReturnsZero() {
+        assertEquals(1, productRepository.incrementStock(monitor.getId(), 4));
+        assertEquals(0, productRepository.incrementStock(-1L, 4));
+
+        assertEquals(6, productRepository.findStockQuantityById(monitor.getId()).orElseThrow());
+    }
+
+    @Test
+    void decrementStock_WholeOrder_ReportsRejectedProducts() {
+        List<Long> rejected = productRepository.decrementStock(Map.of(keyboard.getId(), 5, monitor.getId(), 3));
+
+        assertEquals(List.of(monitor.getId()), rejected);
+        assertEquals(0, productRepository.findStockQuantityById(keyboard.getId()).orElseThrow());
+        assertEquals(2, productRepository.findStockQuantityById(monitor.getId()).orElseThrow());
+    }
+
+    @Test
+    void incrementStock_WholeOrder() {
+        productRepository.incrementStock(Map.of(keyboard.getId(), 1, monitor.getId(), 1));
+
+        assertEquals(6, productRepository.findStockQuantityById(keyboard.getId()).orElseThrow());
+        assertEquals(3, productRepository.findStockQuantityById(monitor.getId()).orElseThrow());
+    }
+
+    @Test
+    void findSummariesAfter_WalksKeysetPages() {
+        List<ProductSummary> first = productRepository.findSummariesAfter(keyboard.getId() - 1, PageRequest.of(0, 1));
+        List<ProductSummary> second = productRepository.findSummariesAfter(first.get(0).id(), PageRequest.of(0, 1));
+        List<ProductSummary> rest = productRepository.findSummariesAfter(monitor.getId(), PageRequest.of(0, 1));
+
+        assertEquals(List.of(new ProductSummary(keyboard.getId(), "Keyboard", new BigDecimal("299.00"), 5)), first);
+        assertEquals(List.of(monitor.getId()), second.stream().map(ProductSummary::id).toList());
+        assertTrue(rest.isEmpty());
+    }
+
+    @Test
+    void insertAll_BatchInsertsWithDefaultStock() {
+        productRepository.insertAll(List.of(
+                new ProductDto("Mouse", "wireless", new BigDecimal("99.00"), 10),
+                new ProductDto("Mouse Pad", null, new BigDecimal("19.90"), null)));
+
+        List<Product> mice = productRepository.findByNameContainingIgnoreCase("mouse", PageRequest.of(0, 10)).getContent();
+        assertEquals(2, mice.size());
+        Product pad = mice.stream().filter(p -> p.getName().equals("Mouse Pad")).findFirst().orElseThrow();
+        assertEquals(0, pad.getStockQuantity());
+        assertEquals(0, new BigDecimal("19.90").compareTo(pad.getPrice()));
+        assertNotNull(pad.getCreatedAt());
+    }
+}
@@ -0,0 +1,170 @@
+package com.gry.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gry.demo.dto.BulkImportResult;
+import com.gry.demo.dto.BulkImportResult.ChunkResult;
+import com.gry.demo.dto.BulkImportResult.RowError;
+import com.gry.demo.dto.ProductDto;
+import com.gry.demo.dto.UserDto;
+import com.gry.demo.repository.ProductRepository;
+import com.gry.demo.repository.UserRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkImportServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ProductNameIndex productNameIndex;
+
+    @Mock
+    private ProductFacetIndex productFacetIndex;
+
+    @Mock
+    private ProductCache productCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private BulkImportService bulkImportService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(bulkImportService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(bulkImportService, "validator",
+                Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(bulkImportService, "chunkSize", 2);
+        ReflectionTestUtils.setField(bulkImportService, "threads", 2);
+        ReflectionTestUtils.setField(bulkImportService, "maxErrorsPerChunk", 10);
+        bulkImportService.init();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        bulkImportService.shutdown();
+    }
+
+    @Test
+    void importProducts_InsertsValidRowsAndReportsLineNumbers() throws Exception {
+        ReflectionTestUtils.setField(bulkImportService, "chunkSize", 3);
+        List<String> inserted = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            List<ProductDto> products = invocation.getArgument(0);
+            products.forEach(product -> inserted.add(product.getName()));
+            return null;
+        }).when(productRepository).insertAll(anyList());
+
+        BulkImportResult result = bulkImportService.importProducts(ndjson(
+                "{\"name\":\"Keyboard\",\"price\":299.00,\"stockQuantity\":5}",
+                "{\"name\":\"Mouse\",\"price\":99.00}",
+                "",
+                "{\"name\":\"Broken\",",
+                "{\"name\":\"\",\"price\":-1}",
+                "{\"name\":\"Monitor\",\"price\":1999.00,\"stockQuantity\":2}"));
+
+        assertEquals(5, result.rows());
+        assertEquals(3, result.inserted());
+        assertEquals(2, result.rejected());
+        assertEquals(Set.of("Keyboard", "Mouse", "Monitor"), Set.copyOf(inserted));
+
+        assertEquals(1, result.failedChunks().size());
+        ChunkResult chunk = result.failedChunks().get(0);
+        assertEquals(1, chunk.chunk());
+        assertEquals(4, chunk.firstLine());
+        assertNull(chunk.error());
+        assertEquals(List.of(4L, 5L), chunk.errors().stream().map(RowError::line).toList());
+        assertTrue(chunk.errors().get(0).message().startsWith("JSON 格式错误"));
+        assertEquals("产品名称不能为空; 价格必须为正数", chunk.errors().get(1).message());
+
+        verify(productNameIndex).rebuild();
+        verify(productFacetIndex).rebuild();
+        verify(productCache).publishReindex();
+    }
+
+    @Test
+    void importProducts_DatabaseFailureRollsBackOnlyThatChunk() throws Exception {
+        doNothing()
+                .doThrow(new DataIntegrityViolationException("value too long"))
+                .when(productRepository).insertAll(anyList());
+        ReflectionTestUtils.setField(bulkImportService, "threads", 1);
+        bulkImportService.shutdown();
+        bulkImportService.init();
+
+        BulkImportResult result = bulkImportService.importProducts(ndjson(
+                "{\"name\":\"A\",\"price\":1}",
+                "{\"name\":\"B\",\"price\":2}",
+                "{\"name\":\"C\",\"price\":3}"));
+
+        assertEquals(3, result.rows());
+        assertEquals(2, result.inserted());
+        assertEquals(1, result.rejected());
+        ChunkResult chunk = result.failedChunks().get(0);
+        assertEquals(3, chunk.firstLine());
+        assertTrue(chunk.error().contains("value too long"));
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void importProducts_NothingInserted_SkipsReindex() throws Exception {
+        BulkImportResult result = bulkImportService.importProducts(ndjson("{\"price\":1}"));
+
+        assertEquals(0, result.inserted());
+        assertEquals(1, result.rejected());
+        verify(productRepository, never()).insertAll(anyList());
+        verifyNoInteractions(productNameIndex, productFacetIndex, productCache);
+    }
+
+    @Test
+    void importUsers_SkipsDuplicatesWithinChunkAndExistingUsers() throws Exception {
+        ReflectionTestUtils.setField(bulkImportService, "chunkSize", 10);
+        when(userRepository.findExistingUsernames(anyCollection())).thenReturn(List.of("alice"));
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+
+        BulkImportResult result = bulkImportService.importUsers(ndjson(
+                "{\"username\":\"alice\",\"email\":\"alice@example.com\",\"password\":\"secret1\"}",
+                "{\"username\":\"bob\",\"email\":\"bob@example.com\",\"password\":\"secret1\"}",
+                "{\"username\":\"bob\",\"email\":\"bob2@example.com\",\"password\":\"secret1\"}",
+                "{\"username\":\"carol\",\"email\":\"bob@example.com\",\"password\":\"secret1\"}"));
+
+        ArgumentCaptor<List<UserDto>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(userRepository).insertAll(inserted.capture());
+        assertEquals(List.of("bob"), inserted.getValue().stream().map(UserDto::getUsername).toList());
+        assertEquals(1, result.inserted());
+        assertEquals(3, result.rejected());
+        assertEquals(List.of(1L, 3L, 4L),
+                result.failedChunks().get(0).errors().stream().map(RowError::line).toList());
+    }
+
+    private static InputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
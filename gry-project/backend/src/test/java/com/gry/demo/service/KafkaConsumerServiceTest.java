@@ -0,0 +1,110 @@
+package com.gry.demo.service;
+
+import com.gry.demo.config.KafkaConfig;
+import com.gry.demo.dto.OrderEvent;
+import com.gry.demo.entity.OrderStatus;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaConsumerServiceTest {
+    
+    @Mock
+    private ProductCache productCache;
+    
+    @Mock
+    private ProductFacetIndex productFacetIndex;
+    
+    @Mock
+    private Acknowledgment acknowledgment;
+    
+    @InjectMocks
+    private KafkaConsumerService kafkaConsumerService;
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(kafkaConsumerService, "workers", 3);
+        kafkaConsumerService.startWorkers();
+    }
+    
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        kafkaConsumerService.stopWorkers();
+    }
+    
+    @Test
+    void handleOrderEvents_AcknowledgesWholeBatchOnce() {
+        List<ConsumerRecord<String, OrderEvent>> records = List.of(
+                record(0, event(OrderEvent.Type.ORDER_CREATED, 1L)),
+                record(1, event(OrderEvent.Type.ORDER_STATUS_CHANGED, 1L)),
+                record(2, event(OrderEvent.Type.ORDER_CREATED, 2L)),
+                record(3, event(OrderEvent.Type.ORDER_DELETED, 1L)));
+        
+        kafkaConsumerService.handleOrderEvents(records, acknowledgment);
+        
+        verify(acknowledgment, times(1)).acknowledge();
+    }
+    
+    @Test
+    void handleOrderEvents_ReportsFirstFailedRecord() {
+        List<ConsumerRecord<String, OrderEvent>> records = List.of(
+                record(0, event(OrderEvent.Type.ORDER_CREATED, 1L)),
+                record(1, "2", null),
+                record(2, event(OrderEvent.Type.ORDER_CREATED, 3L)),
+                record(3, "4", null),
+                record(4, event(OrderEvent.Type.ORDER_DELETED, 2L)));
+        
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> kafkaConsumerService.handleOrderEvents(records, acknowledgment));
+        
+        assertEquals(1, exception.getIndex());
+        verify(acknowledgment, never()).acknowledge();
+    }
+    
+    @Test
+    void handleProductCacheInvalidation_StockChangedOnOtherInstance_EvictsStock() {
+        kafkaConsumerService.handleProductCacheInvalidation(
+                Map.of("stockChanged", List.of(1, 2L), "origin", "other-instance"));
+        
+        verify(productCache).evictStock(List.of(1L, 2L));
+        verify(productFacetIndex).stockChanged(List.of(1L, 2L));
+    }
+    
+    @Test
+    void handleProductCacheInvalidation_OwnStockChange_IsSkipped() {
+        kafkaConsumerService.handleProductCacheInvalidation(
+                Map.of("stockChanged", List.of(1L), "origin", ProductCache.INSTANCE_ID));
+        
+        verifyNoInteractions(productCache, productFacetIndex);
+    }
+    
+    private ConsumerRecord<String, OrderEvent> record(long offset, OrderEvent event) {
+        return record(offset, String.valueOf(event.orderId()), event);
+    }
+    
+    private ConsumerRecord<String, OrderEvent> record(long offset, String key, OrderEvent event) {
+        return new ConsumerRecord<>(KafkaConfig.ORDER_EVENTS_TOPIC, 0, offset, key, event);
+    }
+    
+    private OrderEvent event(OrderEvent.Type type, long orderId) {
+        return new OrderEvent(type, orderId, 1L, OrderStatus.PENDING, OrderStatus.PROCESSING,
+                Instant.now(), new BigDecimal("100.00"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.gry.demo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaEventPublisherTest {
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private KafkaEventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(publisher, "queueCapacity", 2);
+        ReflectionTestUtils.setField(publisher, "maxBatch", 10);
+        ReflectionTestUtils.setField(publisher, "enqueueTimeout", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(publisher, "sendTimeout", Duration.ofSeconds(1));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        publisher.stop();
+    }
+
+    @Test
+    void publish_SendsOnDrainerThread() throws Exception {
+        when(kafkaTemplate.send(anyString(), any(), any()))
+            .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+        publisher.start();
+
+        assertTrue(publisher.publish("order-events", "1", "payload"));
+
+        verify(kafkaTemplate, timeout(2000)).send("order-events", "1", "payload");
+        awaitCount(() -> meterRegistry.get("gry.kafka.publish.latency").timer().count());
+    }
+
+    @Test
+    void publish_QueueFull_SendsOnCallerThread() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(kafkaTemplate.send(anyString(), any(), any())).thenAnswer(invocation -> {
+            if ("first".equals(invocation.getArgument(2))) {
+                blocked.countDown();
+                release.await();
+            }
+            return CompletableFuture.completedFuture(mock(SendResult.class));
+        });
+        publisher.start();
+
+        publisher.publish("order-events", null, "first");
+        blocked.await();
+        assertTrue(publisher.publish("order-events", null, "second"));
+        assertTrue(publisher.publish("order-events", null, "third"));
+        assertTrue(publisher.publish("order-events", null, "fourth"));
+
+        verify(kafkaTemplate).send("order-events", null, "fourth");
+        verify(kafkaTemplate, never()).send("order-events", null, "second");
+        assertEquals(1.0, meterRegistry.get("gry.kafka.publish.synchronous").counter().count());
+        release.countDown();
+        verify(kafkaTemplate, timeout(2000)).send("order-events", null, "third");
+    }
+
+    @Test
+    void publish_QueueFullAndSendFails_ReturnsFalse() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(kafkaTemplate.send(anyString(), any(), any())).thenAnswer(invocation -> {
+            if ("first".equals(invocation.getArgument(2))) {
+                blocked.countDown();
+                release.await();
+                return CompletableFuture.completedFuture(mock(SendResult.class));
+            }
+            return CompletableFuture.failedFuture(new IllegalStateException("broker down"));
+        });
+        publisher.start();
+
+        publisher.publish("order-events", null, "first");
+        blocked.await();
+        publisher.publish("order-events", null, "second");
+        publisher.publish("order-events", null, "third");
+        assertFalse(publisher.publish("order-events", null, "fourth"));
+        assertEquals(1.0, meterRegistry.get("gry.kafka.publish.failures").counter().count());
+        release.countDown();
+    }
+
+    @Test
+    void publish_SendFailure_IsCounted() throws Exception {
+        when(kafkaTemplate.send(anyString(), any(), any()))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+        publisher.start();
+
+        publisher.publish("order-events", null, "payload");
+
+        verify(kafkaTemplate, timeout(2000)).send("order-events", null, "payload");
+        awaitCount(() -> meterRegistry.get("gry.kafka.publish.failures").counter().count());
+    }
+
+    /**
+     * 计数在发送线程的完成回调里更新，可能晚于 send 调用本身。
+     */
+    private static void awaitCount(DoubleSupplier count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (count.getAsDouble() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1.0, count.getAsDouble());
+    }
+}
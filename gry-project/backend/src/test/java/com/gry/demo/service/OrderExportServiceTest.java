@@ -0,0 +1,102 @@
+package com.gry.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gry.demo.dto.ExportFormat;
+import com.gry.demo.dto.OrderSummary;
+import com.gry.demo.entity.OrderStatus;
+import com.gry.demo.exception.BusinessException;
+import com.gry.demo.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderExportServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2024, 4, 1, 0, 0);
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @InjectMocks
+    private OrderExportService orderExportService;
+
+    private final AtomicBoolean streamClosed = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(orderExportService, "objectMapper",
+                new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+    }
+
+    @Test
+    void exportOrders_WritesOneJsonObjectPerLine() throws Exception {
+        stubOrders();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = orderExportService.exportOrders(FROM, TO, ExportFormat.NDJSON, out);
+
+        assertEquals(2, rows);
+        assertEquals(
+                "{\"id\":1,\"userId\":7,\"totalAmount\":199.00,\"status\":\"PENDING\",\"createdAt\":\"2024-03-01T10:15:30\",\"updatedAt\":\"2024-03-01T10:15:30\"}\n" +
+                "{\"id\":2,\"userId\":8,\"totalAmount\":5999.00,\"status\":\"SHIPPED\",\"createdAt\":\"2024-03-02T08:00:00\",\"updatedAt\":null}\n",
+                out.toString(StandardCharsets.UTF_8));
+        assertTrue(streamClosed.get());
+    }
+
+    @Test
+    void exportOrders_WritesCsvWithHeader() throws Exception {
+        stubOrders();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        orderExportService.exportOrders(FROM, TO, ExportFormat.CSV, out);
+
+        assertEquals(
+                "id,user_id,total_amount,status,created_at,updated_at\n" +
+                "1,7,199.00,PENDING,2024-03-01T10:15:30,2024-03-01T10:15:30\n" +
+                "2,8,5999.00,SHIPPED,2024-03-02T08:00,\n",
+                out.toString(StandardCharsets.UTF_8));
+        assertTrue(streamClosed.get());
+    }
+
+    @Test
+    void exportOrders_EmptyRange_WritesNothing() throws Exception {
+        when(orderRepository.streamSummariesByDateRange(FROM, TO)).thenReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, orderExportService.exportOrders(FROM, TO, ExportFormat.NDJSON, out));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void exportOrders_InvalidRange_ThrowsBeforeQuerying() {
+        assertThrows(BusinessException.class,
+                () -> orderExportService.exportOrders(TO, FROM, ExportFormat.CSV, new ByteArrayOutputStream()));
+        verifyNoInteractions(orderRepository);
+    }
+
+    private void stubOrders() {
+        LocalDateTime first = LocalDateTime.of(2024, 3, 1, 10, 15, 30);
+        LocalDateTime second = LocalDateTime.of(2024, 3, 2, 8, 0);
+        when(orderRepository.streamSummariesByDateRange(FROM, TO)).thenReturn(Stream.of(
+                new OrderSummary(1L, 7L, new BigDecimal("199.00"), OrderStatus.PENDING, first, first),
+                new OrderSummary(2L, 8L, new BigDecimal("5999.00"), OrderStatus.SHIPPED, second, null))
+                .onClose(() -> streamClosed.set(true)));
+    }
+}
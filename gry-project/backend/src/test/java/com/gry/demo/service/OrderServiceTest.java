@@ -0,0 +1,253 @@
+package com.gry.demo.service;
+
+import com.gry.demo.dto.CursorSlice;
+import com.gry.demo.dto.OrderDetail;
+import com.gry.demo.dto.OrderDto;
+import com.gry.demo.dto.OrderItemDto;
+import com.gry.demo.dto.OrderItemView;
+import com.gry.demo.dto.OrderSummary;
+import com.gry.demo.dto.PageCursor;
+import com.gry.demo.entity.*;
+import com.gry.demo.exception.BusinessException;
+import com.gry.demo.repository.OrderItemRepository;
+import com.gry.demo.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private ProductFacetIndex productFacetIndex;
+
+    @Mock
+    private OrderStatusCounter orderStatusCounter;
+
+    @InjectMocks
+    private OrderService orderService;
+
+    private User testUser;
+    private Product laptop;
+    private Product mouse;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(stockLedger.isEnabled()).thenReturn(true);
+
+        testUser = new User("testuser", "test@example.com", "password123");
+        testUser.setId(1L);
+
+        laptop = new Product("Laptop", "Laptop", new BigDecimal("5999.00"), 50);
+        laptop.setId(1L);
+        mouse = new Product("Mouse", "Mouse", new BigDecimal("199.00"), 100);
+        mouse.setId(2L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createOrder_ReservesStockThroughLedger() {
+        OrderDto orderDto = new OrderDto(1L, new BigDecimal("6397.00"));
+        orderDto.setOrderItems(Arrays.asList(
+            new OrderItemDto(1L, 1, new BigDecimal("5999.00")),
+            new OrderItemDto(2L, 1, new BigDecimal("199.00")),
+            new OrderItemDto(2L, 1, new BigDecimal("199.00"))
+        ));
+
+        Map<Long, Product> products = new HashMap<>();
+        products.put(1L, laptop);
+        products.put(2L, mouse);
+
+        when(userService.getUserById(1L)).thenReturn(testUser);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(productService.getProductsByIds(anyCollection())).thenReturn(products);
+        when(orderItemRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Order result = orderService.createOrder(orderDto);
+
+        ArgumentCaptor<Map<Long, Integer>> quantities = ArgumentCaptor.forClass(Map.class);
+        verify(stockLedger, times(1)).reserve(quantities.capture());
+        assertEquals(1, quantities.getValue().get(1L));
+        assertEquals(2, quantities.getValue().get(2L));
+
+        verify(orderItemRepository, times(1)).saveAll(anyList());
+        verify(orderItemRepository, never()).save(any(OrderItem.class));
+        verify(productService, times(1)).getProductsByIds(anyCollection());
+        verify(productService, never()).getProductDetail(anyLong());
+        verify(productService, never()).updateStock(anyLong(), anyInt());
+
+        assertEquals(3, result.getOrderItems().size());
+        assertSame(mouse, result.getOrderItems().get(2).getProduct());
+        verify(orderStatusCounter).increment(1L, OrderStatus.PENDING);
+        verify(notificationService).sendOrderCreatedNotification(result);
+    }
+
+    @Test
+    void createOrder_InsufficientStock_SavesNoItems() {
+        OrderDto orderDto = new OrderDto(1L, new BigDecimal("5999.00"));
+        orderDto.setOrderItems(List.of(new OrderItemDto(1L, 100, new BigDecimal("5999.00"))));
+
+        when(userService.getUserById(1L)).thenReturn(testUser);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(productService.getProductsByIds(anyCollection())).thenReturn(Map.of(1L, laptop));
+        doThrow(new BusinessException("INSUFFICIENT_STOCK", "库存不足"))
+            .when(stockLedger).reserve(anyMap());
+
+        assertThrows(BusinessException.class, () -> orderService.createOrder(orderDto));
+
+        verify(orderItemRepository, never()).saveAll(anyList());
+        verify(orderStatusCounter, never()).increment(anyLong(), any());
+        verify(notificationService, never()).sendOrderCreatedNotification(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deleteOrder_ReleasesStockThroughLedger() {
+        Order order = new Order(testUser, new BigDecimal("6397.00"));
+        order.setId(1L);
+        order.setOrderItems(Arrays.asList(
+            new OrderItem(order, laptop, 1, new BigDecimal("5999.00")),
+            new OrderItem(order, mouse, 2, new BigDecimal("199.00"))
+        ));
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.findOrderWithDetails(1L)).thenReturn(order);
+
+        orderService.deleteOrder(1L);
+
+        ArgumentCaptor<Map<Long, Integer>> quantities = ArgumentCaptor.forClass(Map.class);
+        verify(stockLedger, times(1)).release(quantities.capture());
+        verify(productService, never()).restoreStock(anyLong(), anyInt());
+        assertEquals(Map.of(1L, 1, 2L, 2), quantities.getValue());
+        verify(orderRepository).delete(order);
+        verify(orderStatusCounter).decrement(1L, OrderStatus.PENDING);
+        verify(notificationService).sendOrderDeletedNotification(order);
+    }
+
+    @Test
+    void updateOrderStatus_MovesStatusCounter() {
+        Order order = new Order(testUser, new BigDecimal("199.00"));
+        order.setId(1L);
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.save(order)).thenReturn(order);
+
+        orderService.updateOrderStatus(1L, OrderStatus.SHIPPED);
+
+        verify(orderStatusCounter).move(1L, OrderStatus.PENDING, OrderStatus.SHIPPED);
+        verify(notificationService).sendOrderStatusChangedNotification(order, OrderStatus.PENDING, OrderStatus.SHIPPED);
+    }
+
+    @Test
+    void countOrdersByUserIdAndStatus_ReadsCounterWithoutCountQuery() {
+        when(orderStatusCounter.count(1L, OrderStatus.DELIVERED)).thenReturn(7L);
+
+        assertEquals(7L, orderService.countOrdersByUserIdAndStatus(1L, OrderStatus.DELIVERED));
+        verify(orderRepository, never()).countOrdersByUserIdAndStatus(anyLong(), any());
+    }
+
+    @Test
+    void createOrder_LedgerDisabled_UsesConditionalDecrement() {
+        when(stockLedger.isEnabled()).thenReturn(false);
+        OrderDto orderDto = new OrderDto(1L, new BigDecimal("398.00"));
+        orderDto.setOrderItems(List.of(new OrderItemDto(2L, 2, new BigDecimal("199.00"))));
+
+        when(userService.getUserById(1L)).thenReturn(testUser);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(productService.getProductsByIds(anyCollection())).thenReturn(Map.of(2L, mouse));
+        when(orderItemRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        orderService.createOrder(orderDto);
+
+        verify(productService).reserveStock(Map.of(2L, 2));
+        verify(stockLedger, never()).reserve(anyMap());
+    }
+
+    @Test
+    void scrollOrders_ContinuesAfterCursorWithoutCount() {
+        LocalDateTime now = LocalDateTime.now();
+        OrderSummary newer = summary(8L, now.minusMinutes(1));
+        OrderSummary older = summary(7L, now.minusMinutes(2));
+        OrderSummary oldest = summary(6L, now.minusMinutes(3));
+        when(orderRepository.findOrdersBefore(eq(now), eq(9L), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(List.of(newer, older, oldest)));
+
+        CursorSlice<OrderSummary> slice = orderService.scrollOrders(null, PageCursor.encode(now, 9L), 2);
+
+        assertEquals(List.of(newer, older), slice.getContent());
+        assertTrue(slice.isHasNext());
+        PageCursor next = PageCursor.decode(slice.getNextCursor());
+        assertEquals(older.createdAt(), next.getCreatedAt());
+        assertEquals(7L, next.getId());
+        verify(orderRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void scrollOrders_WithStatus_UsesStatusQueries() {
+        LocalDateTime now = LocalDateTime.now();
+        OrderSummary order = summary(8L, now.minusMinutes(1));
+        when(orderRepository.findLatestOrdersByStatus(eq(OrderStatus.PENDING), any(Pageable.class)))
+                .thenReturn(List.of(order));
+        when(orderRepository.findOrdersByStatusBefore(eq(OrderStatus.PENDING), eq(now), eq(9L), any(Pageable.class)))
+                .thenReturn(List.of(order));
+
+        assertEquals(List.of(order), orderService.scrollOrders(OrderStatus.PENDING, null, 2).getContent());
+        assertEquals(List.of(order),
+                orderService.scrollOrders(OrderStatus.PENDING, PageCursor.encode(now, 9L), 2).getContent());
+        verify(orderRepository, never()).findLatestOrders(any(Pageable.class));
+        verify(orderRepository, never()).findOrdersBefore(any(), any(), any(Pageable.class));
+    }
+
+    @Test
+    void getOrderDetail_LoadsHeaderAndItemProjections() {
+        OrderSummary order = summary(5L, LocalDateTime.now());
+        OrderItemView item = new OrderItemView(11L, 5L, 2L, "Mouse", 2, new BigDecimal("199.00"));
+        when(orderRepository.findSummaryById(5L)).thenReturn(Optional.of(order));
+        when(orderRepository.findItemViewsByOrderIds(List.of(5L))).thenReturn(List.of(item));
+
+        OrderDetail detail = orderService.getOrderDetail(5L);
+
+        assertEquals(5L, detail.id());
+        assertEquals(1L, detail.userId());
+        assertEquals(List.of(item), detail.orderItems());
+        verify(orderRepository, never()).findOrderWithDetails(anyLong());
+    }
+
+    private OrderSummary summary(long id, LocalDateTime createdAt) {
+        return new OrderSummary(id, testUser.getId(), new BigDecimal("100.00"), OrderStatus.PENDING, createdAt, createdAt);
+    }
+}
@@ -0,0 +1,149 @@
+package com.gry.demo.service;
+
+import com.gry.demo.dto.OrderDto;
+import com.gry.demo.dto.OrderItemDto;
+import com.gry.demo.entity.Order;
+import com.gry.demo.entity.OrderStatus;
+import com.gry.demo.entity.User;
+import com.gry.demo.exception.ResourceNotFoundException;
+import com.gry.demo.repository.OrderRepository;
+import com.gry.demo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并发修改同一订单的状态或同时删除时，物化的状态计数与订单表保持一致。
+ * 使用独立的内存库：其他测试上下文启动时重跑 data.sql 会重置订单序列，共用库时新建订单可能与它们已分配的 id 冲突。
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:order-status-concurrency",
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "gry.outbox.relay.enabled=false",
+    "gry.sales.enabled=false",
+    "gry.stock.ledger.enabled=false"
+})
+@EmbeddedKafka(partitions = 1)
+class OrderStatusConcurrencyIntegrationTest {
+
+    private static final OrderStatus[] TARGETS = {
+        OrderStatus.PROCESSING, OrderStatus.SHIPPED, OrderStatus.DELIVERED, OrderStatus.CANCELLED
+    };
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("concurrent-status-user", "concurrent-status-user@example.com",
+                "password123"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (Order order : orderRepository.findByUserIdAndStatus(user.getId(), OrderStatus.PENDING)) {
+            orderService.deleteOrder(order.getId());
+        }
+        for (OrderStatus status : TARGETS) {
+            for (Order order : orderRepository.findByUserIdAndStatus(user.getId(), status)) {
+                orderService.deleteOrder(order.getId());
+            }
+        }
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void concurrentStatusUpdates_MoveCounterOncePerOrder() throws Exception {
+        Order order = createOrder();
+
+        List<Throwable> failures = runConcurrently(8,
+                i -> orderService.updateOrderStatus(order.getId(), TARGETS[i % TARGETS.length]));
+
+        assertEquals(List.of(), failures);
+        assertCounterMatchesOrders();
+        assertEquals(0, orderStatusCounter.count(user.getId(), OrderStatus.PENDING));
+    }
+
+    @Test
+    void concurrentDeleteAndStatusUpdate_LeaveNoCount() throws Exception {
+        Order order = createOrder();
+
+        List<Throwable> failures = runConcurrently(2, i -> {
+            if (i == 0) {
+                orderService.deleteOrder(order.getId());
+            } else {
+                orderService.updateOrderStatus(order.getId(), OrderStatus.SHIPPED);
+            }
+        });
+
+        assertTrue(failures.stream().allMatch(ResourceNotFoundException.class::isInstance), failures.toString());
+        assertFalse(orderRepository.existsById(order.getId()));
+        assertCounterMatchesOrders();
+    }
+
+    private Order createOrder() {
+        OrderDto orderDto = new OrderDto(user.getId(), new BigDecimal("199.00"));
+        orderDto.setOrderItems(List.of(new OrderItemDto(2L, 1, new BigDecimal("199.00"))));
+        Order order = orderService.createOrder(orderDto);
+        assertEquals(1, orderStatusCounter.count(user.getId(), OrderStatus.PENDING));
+        return order;
+    }
+
+    private void assertCounterMatchesOrders() {
+        for (OrderStatus status : OrderStatus.values()) {
+            assertEquals(orderRepository.countOrdersByUserIdAndStatus(user.getId(), status),
+                    orderStatusCounter.count(user.getId(), status), status.name());
+        }
+    }
+
+    private List<Throwable> runConcurrently(int threads, IndexedTask task) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    task.run(index);
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        return new ArrayList<>(failures);
+    }
+
+    @FunctionalInterface
+    private interface IndexedTask {
+        void run(int index) throws Exception;
+    }
+}
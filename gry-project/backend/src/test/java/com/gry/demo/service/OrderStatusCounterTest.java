@@ -0,0 +1,106 @@
+package com.gry.demo.service;
+
+import com.gry.demo.entity.Order;
+import com.gry.demo.entity.OrderStatus;
+import com.gry.demo.entity.User;
+import com.gry.demo.repository.OrderRepository;
+import com.gry.demo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(OrderStatusCounter.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderStatusCounterTest {
+
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(orderStatusCounter, "rebuildThreads", 3);
+        ReflectionTestUtils.setField(orderStatusCounter, "rebuildChunkSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (User user : users) {
+            jdbcTemplate.update("DELETE FROM orders WHERE user_id = ?", user.getId());
+            userRepository.deleteById(user.getId());
+        }
+        orderStatusCounter.rebuild();
+    }
+
+    @Test
+    void incrementMoveAndDecrement_MaintainCountsPerStatus() {
+        User user = createUser("counter-user");
+
+        orderStatusCounter.increment(user.getId(), OrderStatus.PENDING);
+        orderStatusCounter.increment(user.getId(), OrderStatus.PENDING);
+        orderStatusCounter.move(user.getId(), OrderStatus.PENDING, OrderStatus.SHIPPED);
+        orderStatusCounter.move(user.getId(), OrderStatus.SHIPPED, OrderStatus.PENDING);
+        orderStatusCounter.move(user.getId(), OrderStatus.PENDING, OrderStatus.DELIVERED);
+        orderStatusCounter.decrement(user.getId(), OrderStatus.PENDING);
+
+        assertEquals(0, orderStatusCounter.count(user.getId(), OrderStatus.PENDING));
+        assertEquals(0, orderStatusCounter.count(user.getId(), OrderStatus.SHIPPED));
+        assertEquals(1, orderStatusCounter.count(user.getId(), OrderStatus.DELIVERED));
+        assertEquals(0, orderStatusCounter.count(user.getId(), OrderStatus.CANCELLED));
+    }
+
+    @Test
+    void rebuild_RecomputesCountsFromOrdersInChunks() {
+        List<User> rebuilt = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User user = createUser("rebuild-user-" + i);
+            rebuilt.add(user);
+            for (int j = 0; j <= i; j++) {
+                Order order = new Order(user, new BigDecimal("10.00"));
+                order.setStatus(j % 2 == 0 ? OrderStatus.PENDING : OrderStatus.SHIPPED);
+                orderRepository.save(order);
+            }
+        }
+        orderStatusCounter.increment(rebuilt.get(0).getId(), OrderStatus.CANCELLED);
+
+        OrderStatusCounter.Rebuild result = orderStatusCounter.rebuild();
+
+        assertTrue(result.chunks() > 1);
+        for (User user : rebuilt) {
+            for (OrderStatus status : OrderStatus.values()) {
+                assertEquals(orderRepository.countOrdersByUserIdAndStatus(user.getId(), status),
+                        orderStatusCounter.count(user.getId(), status), user.getUsername() + " " + status);
+            }
+        }
+    }
+
+    private User createUser(String username) {
+        User user = userRepository.save(new User(username, username + "@example.com", "password123"));
+        users.add(user);
+        return user;
+    }
+}
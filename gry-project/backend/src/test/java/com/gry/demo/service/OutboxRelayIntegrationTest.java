@@ -0,0 +1,248 @@
+package com.gry.demo.service;
+
+import com.gry.demo.config.OrderEventDeserializer;
+import com.gry.demo.dto.OrderDto;
+import com.gry.demo.dto.OrderEvent;
+import com.gry.demo.dto.OrderItemDto;
+import com.gry.demo.entity.Order;
+import com.gry.demo.entity.OrderStatus;
+import com.gry.demo.entity.OutboxEvent;
+import com.gry.demo.entity.OutboxLane;
+import com.gry.demo.repository.OutboxEventRepository;
+import com.gry.demo.repository.OutboxLaneRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "spring.kafka.consumer.auto-offset-reset=earliest",
+    "gry.outbox.relay.threads=3",
+    "gry.outbox.relay.batch-size=2",
+    "gry.outbox.relay.max-attempts=3"
+})
+@EmbeddedKafka(partitions = 3, topics = "order-events")
+class OutboxRelayIntegrationTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxLaneRepository outboxLaneRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    private Consumer<String, OrderEvent> consumer;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("outbox-test", "false", embeddedKafka);
+        consumer = new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new OrderEventDeserializer())
+                .createConsumer();
+        embeddedKafka.consumeFromAnEmbeddedTopic(consumer, "order-events");
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.close();
+    }
+
+    @Test
+    void committedOrderEvents_AreRelayedKeyedByOrderId() {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            OrderDto orderDto = new OrderDto(1L, new BigDecimal("199.00"));
+            orderDto.setOrderItems(List.of(new OrderItemDto(2L, 1, new BigDecimal("199.00"))));
+            orders.add(orderService.createOrder(orderDto));
+        }
+
+        Set<String> keys = orders.stream().map(order -> String.valueOf(order.getId())).collect(Collectors.toSet());
+        List<ConsumerRecord<String, OrderEvent>> received = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (received.size() < orders.size() && System.currentTimeMillis() < deadline) {
+            ConsumerRecords<String, OrderEvent> records = KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(1));
+            records.forEach(record -> {
+                if (keys.contains(record.key())) {
+                    received.add(record);
+                }
+            });
+        }
+
+        assertEquals(orders.size(), received.size());
+        for (Order order : orders) {
+            ConsumerRecord<String, OrderEvent> record = received.stream()
+                    .filter(r -> String.valueOf(order.getId()).equals(r.key()))
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals(OrderEvent.Type.ORDER_CREATED, record.value().eventType());
+            assertEquals(order.getId(), record.value().orderId());
+            assertEquals(0, order.getTotalAmount().compareTo(record.value().totalAmount()));
+        }
+
+        long pending = waitForPending(0);
+        assertEquals(0, pending);
+        assertTrue(outboxEventRepository.findAll().stream().allMatch(e -> e.getSentAt() != null));
+    }
+
+    @Test
+    void orderLifecycleEvents_ArriveInOrderOnOnePartition() {
+        OrderDto orderDto = new OrderDto(1L, new BigDecimal("199.00"));
+        orderDto.setOrderItems(List.of(new OrderItemDto(2L, 1, new BigDecimal("199.00"))));
+        Order order = orderService.createOrder(orderDto);
+        List<OrderStatus> statuses = List.of(OrderStatus.PROCESSING, OrderStatus.SHIPPED, OrderStatus.DELIVERED);
+        for (OrderStatus status : statuses) {
+            orderService.updateOrderStatus(order.getId(), status);
+        }
+
+        String key = String.valueOf(order.getId());
+        List<ConsumerRecord<String, OrderEvent>> received = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (received.size() < statuses.size() + 1 && System.currentTimeMillis() < deadline) {
+            KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(1)).forEach(record -> {
+                if (key.equals(record.key())) {
+                    received.add(record);
+                }
+            });
+        }
+
+        assertEquals(statuses.size() + 1, received.size());
+        assertEquals(1, received.stream().map(ConsumerRecord::partition).distinct().count());
+        assertEquals(OrderEvent.Type.ORDER_CREATED, received.get(0).value().eventType());
+        for (int i = 0; i < statuses.size(); i++) {
+            assertEquals(OrderEvent.Type.ORDER_STATUS_CHANGED, received.get(i + 1).value().eventType());
+            assertEquals(statuses.get(i), received.get(i + 1).value().newStatus());
+        }
+    }
+
+    @Test
+    void rolledBackTransaction_LeavesNoOutboxEvent() {
+        long before = outboxEventRepository.count();
+        long statusChangesBefore = countEvents("ORDER_STATUS_CHANGED");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            orderService.updateOrderStatus(1L, OrderStatus.SHIPPED);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(before, outboxEventRepository.count());
+        assertEquals(statusChangesBefore, countEvents("ORDER_STATUS_CHANGED"));
+    }
+
+    @Test
+    void lockedLanes_AreNotRelayedUntilReleased() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int lane = 0; lane < OutboxLane.LANES; lane++) {
+                outboxLaneRepository.tryLock(lane);
+            }
+            locked.countDown();
+            try {
+                release.await(20, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holder.start();
+        try {
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+            OrderDto orderDto = new OrderDto(1L, new BigDecimal("199.00"));
+            orderDto.setOrderItems(List.of(new OrderItemDto(2L, 1, new BigDecimal("199.00"))));
+            orderService.createOrder(orderDto);
+
+            Thread.sleep(1000);
+            assertTrue(outboxEventRepository.countBySentAtIsNull() > 0);
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+
+        assertEquals(0, waitForPending(0));
+    }
+
+    @Test
+    void failingEvent_IsGivenUpWithoutBlockingItsLane() {
+        // 同一 key 落在同一通道；超过 max.request.size 的事件每次发送都以 RecordTooLargeException 失败
+        OutboxEvent poison = outboxEventRepository.save(new OutboxEvent("outbox-relay-test", "poison", "TEST",
+                new byte[OutboxEvent.MAX_PAYLOAD_LENGTH]));
+        OutboxEvent next = outboxEventRepository.save(
+                new OutboxEvent("outbox-relay-test", "poison", "TEST", new byte[] {2}));
+        try {
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (outboxEventRepository.findById(poison.getId()).orElseThrow().getFailedAt() == null
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+
+            OutboxEvent given = outboxEventRepository.findById(poison.getId()).orElseThrow();
+            assertNotNull(outboxEventRepository.findById(next.getId()).orElseThrow().getSentAt());
+            assertNull(given.getSentAt());
+            assertNotNull(given.getFailedAt());
+            assertEquals(3, given.getAttempts());
+            assertTrue(meterRegistry.get("gry.outbox.failed").gauge().value() >= 1);
+            assertEquals(0, meterRegistry.get("gry.outbox.lanes.retrying").gauge().value());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        } finally {
+            outboxEventRepository.deleteAllById(List.of(poison.getId(), next.getId()));
+        }
+    }
+
+    private long countEvents(String eventType) {
+        return outboxEventRepository.findAll().stream()
+                .map(OutboxEvent::getEventType)
+                .filter(eventType::equals)
+                .count();
+    }
+
+    private long waitForPending(long expected) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        long pending = outboxEventRepository.countBySentAtIsNull();
+        while (pending != expected && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            pending = outboxEventRepository.countBySentAtIsNull();
+        }
+        return pending;
+    }
+}
@@ -0,0 +1,112 @@
+package com.gry.demo.service;
+
+import com.gry.demo.dto.ProductSummary;
+import com.gry.demo.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductFacetIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @InjectMocks
+    private ProductFacetIndex productFacetIndex;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(productFacetIndex, "enabled", true);
+        ReflectionTestUtils.setField(productFacetIndex, "loadBatchSize", 2);
+        ReflectionTestUtils.setField(productFacetIndex, "priceBuckets",
+                new BigDecimal[] {BigDecimal.ZERO, new BigDecimal("10"), new BigDecimal("100")});
+        productFacetIndex.init();
+    }
+
+    @Test
+    void filter_BeforeRebuild_ReturnsNull() {
+        assertNull(productFacetIndex.filter(null, null, true));
+        assertNull(productFacetIndex.all());
+    }
+
+    @Test
+    void filter_IntersectsPriceRangeAndStock() {
+        rebuild(
+            new ProductSummary(1L, "Cable", new BigDecimal("5.00"), 3),
+            new ProductSummary(2L, "Mouse", new BigDecimal("25.00"), 0),
+            new ProductSummary(3L, "Keyboard", new BigDecimal("99.99"), 7),
+            new ProductSummary(4L, "Monitor", new BigDecimal("100.00"), 2),
+            new ProductSummary(5L, "Laptop", new BigDecimal("999.00"), 1));
+
+        assertEquals(RoaringBitmap.bitmapOf(1, 2, 3, 4, 5), productFacetIndex.all());
+        assertEquals(RoaringBitmap.bitmapOf(1, 3, 4, 5), productFacetIndex.filter(null, null, true));
+        assertEquals(RoaringBitmap.bitmapOf(2, 3), productFacetIndex.filter(new BigDecimal("10"), new BigDecimal("99.99"), false));
+        assertEquals(RoaringBitmap.bitmapOf(3, 4), productFacetIndex.filter(new BigDecimal("30"), new BigDecimal("100"), true));
+        assertEquals(RoaringBitmap.bitmapOf(4, 5), productFacetIndex.filter(new BigDecimal("99.995"), null, false));
+        assertEquals(RoaringBitmap.bitmapOf(1), productFacetIndex.filter(null, new BigDecimal("9.99"), false));
+    }
+
+    @Test
+    void putRemoveAndStockChanges_UpdateBitmaps() {
+        rebuild(
+            new ProductSummary(1L, "Cable", new BigDecimal("5.00"), 3),
+            new ProductSummary(2L, "Mouse", new BigDecimal("25.00"), 1));
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(stockLedger.getAvailable(2L)).thenReturn(0);
+
+        productFacetIndex.put(1L, new BigDecimal("150.00"), 3);
+        productFacetIndex.put(7L, new BigDecimal("20.00"), 4);
+        productFacetIndex.stockChanged(List.of(2L));
+        productFacetIndex.remove(7L);
+
+        assertEquals(RoaringBitmap.bitmapOf(1, 2), productFacetIndex.all());
+        assertEquals(RoaringBitmap.bitmapOf(1), productFacetIndex.filter(new BigDecimal("100"), null, true));
+        assertEquals(RoaringBitmap.bitmapOf(2), productFacetIndex.filter(null, new BigDecimal("99"), false));
+        assertTrue(productFacetIndex.filter(null, null, true).contains(1));
+        assertFalse(productFacetIndex.filter(null, null, true).contains(2));
+    }
+
+    @Test
+    void rebuild_ReplaysChangesCommittedWhileLoading() {
+        when(productRepository.findSummariesAfter(eq(0L), any(Pageable.class))).thenAnswer(invocation -> {
+            productFacetIndex.put(3L, new BigDecimal("40.00"), 1);
+            return List.of(new ProductSummary(1L, "Cable", new BigDecimal("5.00"), 3));
+        });
+
+        productFacetIndex.rebuild();
+
+        assertTrue(productFacetIndex.isReady());
+        assertEquals(RoaringBitmap.bitmapOf(1, 3), productFacetIndex.filter(null, null, true));
+    }
+
+    @Test
+    void slice_PagesInIdOrder() {
+        RoaringBitmap ids = RoaringBitmap.bitmapOf(2, 3, 5, 8, 13);
+
+        assertEquals(List.of(5L, 8L), ProductFacetIndex.slice(ids, 2, 2));
+        assertEquals(List.of(13L), ProductFacetIndex.slice(ids, 4, 2));
+        assertEquals(List.of(), ProductFacetIndex.slice(ids, 5, 2));
+    }
+
+    private void rebuild(ProductSummary... rows) {
+        when(productRepository.findSummariesAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(rows));
+        productFacetIndex.rebuild();
+    }
+}
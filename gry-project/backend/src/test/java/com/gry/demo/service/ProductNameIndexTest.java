@@ -0,0 +1,103 @@
+package com.gry.demo.service;
+
+import com.gry.demo.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductNameIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private ProductNameIndex productNameIndex;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(productNameIndex, "enabled", true);
+        ReflectionTestUtils.setField(productNameIndex, "gramSize", 3);
+        ReflectionTestUtils.setField(productNameIndex, "loadBatchSize", 2);
+    }
+
+    @Test
+    void search_BeforeRebuild_ReturnsNull() {
+        assertNull(productNameIndex.search("key"));
+    }
+
+    @Test
+    void search_MatchesSubstringsIgnoringCase() {
+        productNameIndex.rebuild(new int[] {1, 2, 3, 4},
+                new String[] {"Mechanical Keyboard", "Wireless Mouse", "Wireless Keyboard", "键盘托架"});
+
+        assertArrayEquals(new int[] {1, 3}, productNameIndex.search("KEYBOARD"));
+        assertArrayEquals(new int[] {3}, productNameIndex.search("less key"));
+        assertArrayEquals(new int[] {2, 3}, productNameIndex.search("ss"));
+        assertArrayEquals(new int[] {4}, productNameIndex.search("键盘"));
+        assertArrayEquals(new int[0], productNameIndex.search("monitor"));
+    }
+
+    @Test
+    void search_RequiresGramsInOrder() {
+        productNameIndex.rebuild(new int[] {1}, new String[] {"abcd bcde"});
+
+        assertArrayEquals(new int[] {1}, productNameIndex.search("abcd"));
+        assertArrayEquals(new int[0], productNameIndex.search("abcde"));
+    }
+
+    @Test
+    void putAndRemove_UpdateIndexIncrementally() {
+        productNameIndex.rebuild(new int[] {5, 9}, new String[] {"Keyboard", "Mouse"});
+
+        productNameIndex.put(7L, "Keyboard Cover");
+        productNameIndex.put(9L, "Gaming Keyboard");
+        productNameIndex.remove(5L);
+
+        assertArrayEquals(new int[] {7, 9}, productNameIndex.search("keyboard"));
+        assertArrayEquals(new int[0], productNameIndex.search("mouse"));
+    }
+
+    @Test
+    void rebuild_LoadsInBatchesAndReplaysConcurrentChanges() {
+        when(productRepository.findNamesAfter(eq(0L), any(Pageable.class))).thenAnswer(invocation -> {
+            productNameIndex.put(3L, "Keyboard Pro");
+            return List.of(new Object[] {1L, "Keyboard"}, new Object[] {2L, "Mouse"});
+        });
+        when(productRepository.findNamesAfter(eq(2L), any(Pageable.class))).thenAnswer(invocation -> {
+            productNameIndex.remove(1L);
+            return List.<Object[]>of(new Object[] {3L, "Keyboard Pro"});
+        });
+
+        productNameIndex.rebuild();
+
+        assertTrue(productNameIndex.isReady());
+        assertArrayEquals(new int[] {3}, productNameIndex.search("keyboard"));
+        assertArrayEquals(new int[] {2}, productNameIndex.search("mouse"));
+    }
+
+    @Test
+    void reload_ReadsNameFromDatabase() {
+        productNameIndex.rebuild(new int[] {1}, new String[] {"Keyboard"});
+        when(productRepository.findNameById(1L)).thenReturn(Optional.of("Trackpad"));
+        when(productRepository.findNameById(2L)).thenReturn(Optional.empty());
+
+        productNameIndex.reload(1L);
+        productNameIndex.reload(2L);
+
+        assertArrayEquals(new int[0], productNameIndex.search("keyboard"));
+        assertArrayEquals(new int[] {1}, productNameIndex.search("trackpad"));
+    }
+}
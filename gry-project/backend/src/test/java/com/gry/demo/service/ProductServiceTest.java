@@ -1,6 +1,9 @@
 package com.gry.demo.service;
 
+import com.gry.demo.dto.CursorSlice;
+import com.gry.demo.dto.ProductDetail;
 import com.gry.demo.dto.ProductDto;
+import com.gry.demo.dto.ProductSummary;
 import com.gry.demo.entity.Product;
 import com.gry.demo.exception.BusinessException;
 import com.gry.demo.exception.ResourceNotFoundException;
@@ -11,6 +14,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -18,7 +22,10 @@ import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -30,18 +37,35 @@ class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private ProductCache productCache;
+
+    @Mock
+    private ProductNameIndex productNameIndex;
+
+    @Mock
+    private ProductFacetIndex productFacetIndex;
+
     @InjectMocks
     private ProductService productService;
 
     private Product testProduct;
+    private ProductSummary testSummary;
     private ProductDto testProductDto;
 
     @BeforeEach
     void setUp() {
         testProduct = new Product("Test Product", "Test Description", new BigDecimal("99.99"), 10);
         testProduct.setId(1L);
+        testSummary = new ProductSummary(1L, "Test Product", new BigDecimal("99.99"), 10);
         
         testProductDto = new ProductDto("Test Product", "Test Description", new BigDecimal("99.99"), 10);
+
+        lenient().when(productCache.get(anyLong(), any()))
+            .thenAnswer(invocation -> invocation.getArgument(1, Supplier.class).get());
     }
 
     @Test
@@ -57,22 +81,59 @@ class ProductServiceTest {
     }
 
     @Test
-    void getProductById_Success() {
-        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+    void getProductDetail_Success() {
+        when(productRepository.findDetailById(1L)).thenReturn(Optional.of(ProductDetail.of(testProduct)));
 
-        Product result = productService.getProductById(1L);
+        ProductDetail result = productService.getProductDetail(1L);
 
         assertNotNull(result);
-        assertEquals(testProduct.getId(), result.getId());
-        assertEquals(testProduct.getName(), result.getName());
+        assertEquals(testProduct.getId(), result.id());
+        assertEquals(testProduct.getName(), result.name());
+        assertEquals(10, result.stockQuantity());
+        verify(productRepository, never()).findById(anyLong());
+        verify(productRepository, never()).findStockQuantityById(anyLong());
+    }
+
+    @Test
+    void getProductDetail_StockServedFromLedger() {
+        when(productRepository.findDetailById(1L)).thenReturn(Optional.of(ProductDetail.of(testProduct)));
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(stockLedger.getAvailable(1L)).thenReturn(7);
+
+        ProductDetail result = productService.getProductDetail(1L);
+
+        assertEquals(7, result.stockQuantity());
+        verify(productRepository, never()).findStockQuantityById(anyLong());
+    }
+
+    @Test
+    void getProductDetail_CacheHit_SkipsRepository() {
+        doReturn(ProductCache.Snapshot.of(ProductDetail.of(testProduct))).when(productCache).get(eq(1L), any());
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(stockLedger.getAvailable(1L)).thenReturn(10);
+
+        ProductDetail result = productService.getProductDetail(1L);
+
+        assertEquals(testProduct.getName(), result.name());
+        verify(productRepository, never()).findDetailById(anyLong());
+    }
+
+    @Test
+    void getProductDetail_CacheHitWithoutLedger_ServesCachedStock() {
+        doReturn(ProductCache.Snapshot.of(ProductDetail.of(testProduct))).when(productCache).get(eq(1L), any());
+
+        ProductDetail result = productService.getProductDetail(1L);
+
+        assertEquals(10, result.stockQuantity());
+        verifyNoInteractions(productRepository);
     }
 
     @Test
-    void getProductById_NotFound_ThrowsException() {
-        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+    void getProductDetail_NotFound_ThrowsException() {
+        when(productRepository.findDetailById(1L)).thenReturn(Optional.empty());
 
         ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, 
-            () -> productService.getProductById(1L));
+            () -> productService.getProductDetail(1L));
         
         assertTrue(exception.getMessage().contains("Product not found"));
     }
@@ -80,14 +141,14 @@ class ProductServiceTest {
     @Test
     void getAllProducts_Success() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Product> productPage = new PageImpl<>(Arrays.asList(testProduct));
-        when(productRepository.findAll(pageable)).thenReturn(productPage);
+        Page<ProductSummary> productPage = new PageImpl<>(Arrays.asList(testSummary));
+        when(productRepository.findAllSummaries(pageable)).thenReturn(productPage);
 
-        Page<Product> result = productService.getAllProducts(pageable);
+        Page<ProductSummary> result = productService.getAllProducts(pageable);
 
         assertNotNull(result);
         assertEquals(1, result.getContent().size());
-        assertEquals(testProduct.getName(), result.getContent().get(0).getName());
+        assertEquals(testProduct.getName(), result.getContent().get(0).name());
     }
 
     @Test
@@ -100,6 +161,7 @@ class ProductServiceTest {
 
         assertNotNull(result);
         verify(productRepository).save(any(Product.class));
+        verify(productCache).invalidate(1L);
     }
 
     @Test
@@ -109,65 +171,222 @@ class ProductServiceTest {
         assertDoesNotThrow(() -> productService.deleteProduct(1L));
         
         verify(productRepository).delete(testProduct);
+        verify(productCache).invalidate(1L);
     }
 
     @Test
     void updateStock_Success() {
+        when(productRepository.decrementStock(1L, 5)).thenReturn(1);
         when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
-        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
 
         Product result = productService.updateStock(1L, 5);
 
         assertNotNull(result);
-        verify(productRepository).save(any(Product.class));
+        verify(productRepository).decrementStock(1L, 5);
+        verify(productRepository, never()).save(any(Product.class));
+        verify(stockLedger).applyExternal(1L, -5);
     }
 
     @Test
     void updateStock_InsufficientStock_ThrowsException() {
-        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.decrementStock(1L, 15)).thenReturn(0);
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(10));
 
         BusinessException exception = assertThrows(BusinessException.class, 
             () -> productService.updateStock(1L, 15));
         
         assertEquals("INSUFFICIENT_STOCK", exception.getCode());
         assertTrue(exception.getMessage().contains("库存不足"));
+        verify(stockLedger, never()).applyExternal(anyLong(), anyInt());
+    }
+
+    @Test
+    void updateStock_ProductNotFound_ThrowsException() {
+        when(productRepository.decrementStock(99L, 1)).thenReturn(0);
+        when(productRepository.findStockQuantityById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> productService.updateStock(99L, 1));
     }
 
     @Test
     void restoreStock_Success() {
+        when(productRepository.incrementStock(1L, 5)).thenReturn(1);
         when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
-        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
 
         Product result = productService.restoreStock(1L, 5);
 
         assertNotNull(result);
-        verify(productRepository).save(any(Product.class));
+        verify(productRepository).incrementStock(1L, 5);
+        verify(productRepository, never()).save(any(Product.class));
+        verify(stockLedger).applyExternal(1L, 5);
+        verify(productCache).stockChanged(List.of(1L));
+    }
+
+    @Test
+    void reserveStock_WholeOrder_Success() {
+        Map<Long, Integer> quantities = Map.of(1L, 2, 2L, 3);
+        when(productRepository.decrementStock(quantities)).thenReturn(List.of());
+
+        productService.reserveStock(quantities);
+
+        verify(productRepository, times(1)).decrementStock(quantities);
+        verify(stockLedger).applyExternal(1L, -2);
+        verify(stockLedger).applyExternal(2L, -3);
+        verify(productCache).stockChanged(quantities.keySet());
+        verify(productCache).stockWritten(quantities.keySet());
+    }
+
+    @Test
+    void reserveStock_WholeOrder_InsufficientStock_ThrowsException() {
+        Map<Long, Integer> quantities = Map.of(1L, 2, 2L, 30);
+        when(productRepository.decrementStock(quantities)).thenReturn(List.of(2L));
+        when(productRepository.findStockQuantityById(2L)).thenReturn(Optional.of(3));
+
+        BusinessException exception = assertThrows(BusinessException.class,
+            () -> productService.reserveStock(quantities));
+
+        assertEquals("INSUFFICIENT_STOCK", exception.getCode());
+        verify(stockLedger, never()).applyExternal(anyLong(), anyInt());
+    }
+
+    @Test
+    void getProductsByIds_SingleQuery() {
+        Product other = new Product("Other Product", "Other Description", new BigDecimal("19.99"), 3);
+        other.setId(2L);
+        when(productRepository.loadAllById(any())).thenReturn(Arrays.asList(testProduct, other));
+
+        Map<Long, Product> result = productService.getProductsByIds(List.of(1L, 2L));
+
+        assertSame(testProduct, result.get(1L));
+        assertSame(other, result.get(2L));
+        verify(productRepository, times(1)).loadAllById(any());
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    void getProductsByIds_MissingProduct_ThrowsException() {
+        when(productRepository.loadAllById(any())).thenReturn(List.of(testProduct));
+
+        assertThrows(ResourceNotFoundException.class,
+            () -> productService.getProductsByIds(List.of(1L, 99L)));
     }
 
     @Test
     void searchProducts_Success() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Product> productPage = new PageImpl<>(Arrays.asList(testProduct));
+        Page<ProductSummary> productPage = new PageImpl<>(Arrays.asList(testSummary));
         when(productRepository.findProductsWithFilters(any(), any(), any(), any(), eq(pageable)))
             .thenReturn(productPage);
 
-        Page<Product> result = productService.searchProducts("Test", new BigDecimal("50"), new BigDecimal("150"), true, pageable);
+        Page<ProductSummary> result = productService.searchProducts("Test", new BigDecimal("50"), new BigDecimal("150"), true, pageable);
 
         assertNotNull(result);
         assertEquals(1, result.getContent().size());
         verify(productRepository).findProductsWithFilters(any(), any(), any(), any(), eq(pageable));
     }
 
+    @Test
+    void searchProducts_NameOnly_PagesIndexCandidates() {
+        when(productNameIndex.search("Test")).thenReturn(new int[] {1, 4, 6});
+        when(productRepository.findSummariesByIdIn(List.of(6L))).thenReturn(List.of(testSummary));
+
+        Page<ProductSummary> result = productService.searchProducts("Test", null, null, null, PageRequest.of(1, 2));
+
+        assertEquals(3, result.getTotalElements());
+        assertEquals(List.of(testSummary), result.getContent());
+        verify(productRepository, never()).findProductsWithFilters(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void searchProducts_NoIndexMatch_SkipsDatabase() {
+        when(productNameIndex.search("nothing")).thenReturn(new int[0]);
+        when(productFacetIndex.filter(new BigDecimal("50"), null, true)).thenReturn(RoaringBitmap.bitmapOf(1, 2));
+
+        Page<ProductSummary> result = productService.searchProducts("nothing", new BigDecimal("50"), null, true,
+                PageRequest.of(0, 10));
+
+        assertTrue(result.isEmpty());
+        assertEquals(0, result.getTotalElements());
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void searchProducts_WithFilters_IntersectsNameAndFacetBitmaps() {
+        when(productNameIndex.search("Test")).thenReturn(new int[] {1, 4, 9});
+        when(productFacetIndex.filter(new BigDecimal("50"), null, true)).thenReturn(RoaringBitmap.bitmapOf(1, 2, 9));
+        ProductSummary other = new ProductSummary(9L, "Test Product 9", new BigDecimal("59.00"), 3);
+        when(productRepository.findSummariesByIdIn(List.of(1L, 9L))).thenReturn(List.of(testSummary, other));
+
+        Page<ProductSummary> result = productService.searchProducts("Test", new BigDecimal("50"), null, true,
+                PageRequest.of(0, 10));
+
+        assertEquals(2, result.getTotalElements());
+        assertEquals(List.of(testSummary, other), result.getContent());
+        verify(productRepository, never()).findProductsWithFilters(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void searchProducts_FacetIndexNotReady_FallsBackToQuery() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(productRepository.findProductsWithFilters(null, new BigDecimal("50"), null, null, pageable))
+            .thenReturn(new PageImpl<>(List.of(testSummary), pageable, 1));
+
+        Page<ProductSummary> result = productService.searchProducts(null, new BigDecimal("50"), null, null, pageable);
+
+        assertEquals(List.of(testSummary), result.getContent());
+    }
+
+    @Test
+    void getAllProducts_PagesFacetBitmap() {
+        when(productFacetIndex.all()).thenReturn(RoaringBitmap.bitmapOf(3, 5, 8, 13));
+        when(productRepository.findSummariesByIdIn(List.of(8L, 13L))).thenReturn(List.of(testSummary));
+
+        Page<ProductSummary> result = productService.getAllProducts(PageRequest.of(1, 2));
+
+        assertEquals(4, result.getTotalElements());
+        assertEquals(List.of(testSummary), result.getContent());
+        verify(productRepository, never()).findAllSummaries(any());
+    }
+
+    @Test
+    void getAvailableProducts_PagesInStockBitmap() {
+        when(productFacetIndex.filter(null, null, true)).thenReturn(RoaringBitmap.bitmapOf(2, 7));
+
+        Page<ProductSummary> result = productService.getAvailableProducts(PageRequest.of(1, 10));
+
+        assertEquals(2, result.getTotalElements());
+        assertTrue(result.getContent().isEmpty());
+        verifyNoInteractions(productRepository);
+    }
+
     @Test
     void getAvailableProducts_Success() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Product> productPage = new PageImpl<>(Arrays.asList(testProduct));
+        Page<ProductSummary> productPage = new PageImpl<>(Arrays.asList(testSummary));
         when(productRepository.findAvailableProducts(pageable)).thenReturn(productPage);
 
-        Page<Product> result = productService.getAvailableProducts(pageable);
+        Page<ProductSummary> result = productService.getAvailableProducts(pageable);
 
         assertNotNull(result);
         assertEquals(1, result.getContent().size());
         verify(productRepository).findAvailableProducts(pageable);
     }
-}
\ No newline at end of file
+
+    @Test
+    void scrollProducts_LastPageHasNoCursor() {
+        when(productRepository.findSummariesAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(testSummary));
+
+        CursorSlice<ProductSummary> slice = productService.scrollProducts(null, 10);
+
+        assertEquals(List.of(testSummary), slice.getContent());
+        assertFalse(slice.isHasNext());
+        assertNull(slice.getNextCursor());
+    }
+
+    @Test
+    void scrollProducts_InvalidCursor_ThrowsException() {
+        assertThrows(BusinessException.class, () -> productService.scrollProducts("not-a-cursor!", 10));
+        verify(productRepository, never()).findSummariesAfter(anyLong(), any(Pageable.class));
+    }
+}
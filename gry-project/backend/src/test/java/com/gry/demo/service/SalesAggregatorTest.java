@@ -0,0 +1,195 @@
+package com.gry.demo.service;
+
+import com.gry.demo.config.KafkaConfig;
+import com.gry.demo.dto.OrderEvent;
+import com.gry.demo.dto.ProductSales;
+import com.gry.demo.entity.OrderStatus;
+import com.gry.demo.entity.SalesSnapshot;
+import com.gry.demo.exception.BusinessException;
+import com.gry.demo.repository.SalesSnapshotRepository;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.ConsumerSeekAware.ConsumerSeekCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SalesAggregatorTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-01T12:00:00Z");
+
+    @Mock
+    private SalesSnapshotRepository salesSnapshotRepository;
+
+    @InjectMocks
+    private SalesAggregator salesAggregator;
+
+    @BeforeEach
+    void setUp() {
+        configure(salesAggregator, NOW);
+        salesAggregator.init();
+    }
+
+    @Test
+    void record_AddsCreatedAndSubtractsDeletedOrders() {
+        salesAggregator.record(List.of(
+                record(0, 0, created(1L, NOW, line(10L, 2), line(11L, 1))),
+                record(0, 1, created(2L, NOW, line(10L, 3))),
+                record(1, 0, statusChanged(1L)),
+                record(1, 1, deleted(2L, NOW, line(10L, 3)))));
+
+        assertEquals(2, salesAggregator.getUnitsSold(10L));
+        assertEquals(1, salesAggregator.getUnitsSold(11L));
+        assertEquals(0, salesAggregator.getUnitsSold(12L));
+        assertEquals(List.of(new ProductSales(10L, 2), new ProductSales(11L, 1)), salesAggregator.getTopSelling(5));
+    }
+
+    @Test
+    void record_SkipsRedeliveredOffsetsAndMissingPayloads() {
+        salesAggregator.record(List.of(
+                record(0, 0, created(1L, NOW, line(10L, 2))),
+                record(0, 1, null)));
+        salesAggregator.record(List.of(
+                record(0, 0, created(1L, NOW, line(10L, 2))),
+                record(0, 2, created(3L, NOW, line(10L, 1)))));
+
+        assertEquals(3, salesAggregator.getUnitsSold(10L));
+    }
+
+    @Test
+    void topSelling_WindowCountsOnlyRecentOrders() {
+        salesAggregator.record(List.of(
+                record(0, 0, created(1L, NOW.minus(Duration.ofHours(2)), line(10L, 50))),
+                record(0, 1, created(2L, NOW.minus(Duration.ofMinutes(30)), line(11L, 5))),
+                record(0, 2, created(3L, NOW.minus(Duration.ofMinutes(1)), line(12L, 7), line(11L, 1)))));
+
+        assertEquals(List.of(new ProductSales(12L, 7), new ProductSales(11L, 6)),
+                salesAggregator.getTopSelling(Duration.ofHours(1), 10));
+        assertEquals(List.of(new ProductSales(12L, 7)), salesAggregator.getTopSelling(Duration.ofMinutes(5), 1));
+        assertEquals(50, salesAggregator.getUnitsSold(10L, Duration.ofHours(24)));
+        assertEquals(0, salesAggregator.getUnitsSold(10L, Duration.ofHours(1)));
+        assertEquals(50, salesAggregator.getTopSelling(1).get(0).unitsSold());
+    }
+
+    @Test
+    void topSelling_ExpiresBucketsAsTimePasses() {
+        salesAggregator.record(List.of(record(0, 0, created(1L, NOW, line(10L, 4)))));
+        assertEquals(List.of(new ProductSales(10L, 4)), salesAggregator.getTopSelling(Duration.ofMinutes(5), 10));
+
+        ReflectionTestUtils.setField(salesAggregator, "clock",
+                Clock.fixed(NOW.plus(Duration.ofMinutes(6)), ZoneOffset.UTC));
+
+        assertEquals(List.of(), salesAggregator.getTopSelling(Duration.ofMinutes(5), 10));
+        assertEquals(List.of(new ProductSales(10L, 4)), salesAggregator.getTopSelling(Duration.ofHours(1), 10));
+    }
+
+    @Test
+    void topSelling_UnknownWindowOrLimit_Rejected() {
+        assertThrows(BusinessException.class, () -> salesAggregator.getTopSelling(Duration.ofMinutes(7), 10));
+        assertThrows(BusinessException.class, () -> salesAggregator.getTopSelling(Duration.ofHours(1), 1000));
+        assertThrows(BusinessException.class, () -> salesAggregator.getTopSelling(0));
+    }
+
+    @Test
+    void snapshot_RestoresStateAndSeeksToNextOffsets() {
+        salesAggregator.record(List.of(
+                record(0, 4, created(1L, NOW.minus(Duration.ofMinutes(2)), line(10L, 2))),
+                record(2, 9, created(2L, NOW, line(11L, 3)))));
+        salesAggregator.snapshot();
+
+        ArgumentCaptor<SalesSnapshot> saved = ArgumentCaptor.forClass(SalesSnapshot.class);
+        verify(salesSnapshotRepository).save(saved.capture());
+        SalesSnapshotRepository restoredRepository = mock(SalesSnapshotRepository.class);
+        when(restoredRepository.findById(1L)).thenReturn(Optional.of(saved.getValue()));
+
+        SalesAggregator restored = new SalesAggregator();
+        ReflectionTestUtils.setField(restored, "salesSnapshotRepository", restoredRepository);
+        configure(restored, NOW);
+        restored.init();
+
+        assertEquals(2, restored.getUnitsSold(10L));
+        assertEquals(List.of(new ProductSales(11L, 3), new ProductSales(10L, 2)),
+                restored.getTopSelling(Duration.ofMinutes(5), 10));
+
+        ConsumerSeekCallback callback = mock(ConsumerSeekCallback.class);
+        restored.onPartitionsAssigned(Map.of(
+                new TopicPartition(KafkaConfig.ORDER_EVENTS_TOPIC, 0), 0L,
+                new TopicPartition(KafkaConfig.ORDER_EVENTS_TOPIC, 1), 0L,
+                new TopicPartition(KafkaConfig.ORDER_EVENTS_TOPIC, 2), 0L), callback);
+
+        verify(callback).seek(KafkaConfig.ORDER_EVENTS_TOPIC, 0, 5L);
+        verify(callback).seek(KafkaConfig.ORDER_EVENTS_TOPIC, 2, 10L);
+        verify(callback, never()).seek(eq(KafkaConfig.ORDER_EVENTS_TOPIC), eq(1), anyLong());
+    }
+
+    @Test
+    void init_UnreadableSnapshot_StartsEmpty() {
+        SalesSnapshotRepository corruptRepository = mock(SalesSnapshotRepository.class);
+        when(corruptRepository.findById(1L)).thenReturn(Optional.of(
+                new SalesSnapshot(1L, null, new byte[] {1, 2, 3})));
+
+        SalesAggregator restored = new SalesAggregator();
+        ReflectionTestUtils.setField(restored, "salesSnapshotRepository", corruptRepository);
+        configure(restored, NOW);
+        restored.init();
+
+        ConsumerSeekCallback callback = mock(ConsumerSeekCallback.class);
+        restored.onPartitionsAssigned(Map.of(new TopicPartition(KafkaConfig.ORDER_EVENTS_TOPIC, 0), 0L), callback);
+        verify(callback, never()).seek(anyString(), anyInt(), anyLong());
+        assertEquals(List.of(), restored.getTopSelling(10));
+    }
+
+    private static void configure(SalesAggregator aggregator, Instant now) {
+        ReflectionTestUtils.setField(aggregator, "enabled", true);
+        ReflectionTestUtils.setField(aggregator, "windowDurations",
+                new Duration[] {Duration.ofMinutes(5), Duration.ofHours(1), Duration.ofHours(24)});
+        ReflectionTestUtils.setField(aggregator, "bucketsPerWindow", 12);
+        ReflectionTestUtils.setField(aggregator, "sketchDepth", 4);
+        ReflectionTestUtils.setField(aggregator, "sketchWidth", 1024);
+        ReflectionTestUtils.setField(aggregator, "topK", 20);
+        ReflectionTestUtils.setField(aggregator, "clock", Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private ConsumerRecord<String, OrderEvent> record(int partition, long offset, OrderEvent event) {
+        return new ConsumerRecord<>(KafkaConfig.ORDER_EVENTS_TOPIC, partition, offset,
+                event != null ? String.valueOf(event.orderId()) : null, event);
+    }
+
+    private OrderEvent created(long orderId, Instant at, OrderEvent.Line... items) {
+        return new OrderEvent(OrderEvent.Type.ORDER_CREATED, orderId, 1L, null, OrderStatus.PENDING,
+                at, new BigDecimal("10.00"), List.of(items));
+    }
+
+    private OrderEvent deleted(long orderId, Instant at, OrderEvent.Line... items) {
+        return new OrderEvent(OrderEvent.Type.ORDER_DELETED, orderId, 1L, OrderStatus.PENDING, null,
+                at, new BigDecimal("10.00"), List.of(items));
+    }
+
+    private OrderEvent statusChanged(long orderId) {
+        return new OrderEvent(OrderEvent.Type.ORDER_STATUS_CHANGED, orderId, 1L, OrderStatus.PENDING,
+                OrderStatus.SHIPPED, NOW, new BigDecimal("10.00"));
+    }
+
+    private OrderEvent.Line line(long productId, int quantity) {
+        return new OrderEvent.Line(productId, quantity);
+    }
+}
@@ -0,0 +1,191 @@
+package com.gry.demo.service;
+
+import com.gry.demo.exception.BusinessException;
+import com.gry.demo.exception.ResourceNotFoundException;
+import com.gry.demo.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockLedgerTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ProductCache productCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private StockLedger stockLedger;
+
+    @Test
+    void reserve_LoadsStockOnceAndDecrementsInMemory() {
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(10));
+
+        stockLedger.reserve(Map.of(1L, 3));
+        stockLedger.reserve(Map.of(1L, 2));
+
+        assertEquals(5, stockLedger.getAvailable(1L));
+        verify(productRepository, times(1)).findStockQuantityById(1L);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void reserve_InsufficientStock_RollsBackWholeOrder() {
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(10));
+        when(productRepository.findStockQuantityById(2L)).thenReturn(Optional.of(1));
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(1L, 4);
+        quantities.put(2L, 2);
+
+        BusinessException exception = assertThrows(BusinessException.class,
+            () -> stockLedger.reserve(quantities));
+
+        assertEquals("INSUFFICIENT_STOCK", exception.getCode());
+        assertEquals(10, stockLedger.getAvailable(1L));
+        assertEquals(1, stockLedger.getAvailable(2L));
+    }
+
+    @Test
+    void reserve_UnknownProduct_ThrowsException() {
+        when(productRepository.findStockQuantityById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> stockLedger.reserve(Map.of(99L, 1)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_WritesNetDeltasInOneBatch() {
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(10));
+        when(productRepository.findStockQuantityById(2L)).thenReturn(Optional.of(5));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] {1, 1});
+
+        stockLedger.reserve(Map.of(1L, 3));
+        stockLedger.reserve(Map.of(1L, 1, 2L, 2));
+        stockLedger.release(Map.of(2L, 1));
+        stockLedger.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batch.capture());
+        Map<Object, Object> deltas = new LinkedHashMap<>();
+        for (Object[] row : batch.getValue()) {
+            deltas.put(row[1], row[0]);
+        }
+        assertEquals(Map.of(1L, -4, 2L, -1), deltas);
+        verify(productCache).stockWritten(List.of(1L, 2L));
+
+        stockLedger.flush();
+        verifyNoMoreInteractions(jdbcTemplate, productCache);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_Failure_KeepsDeltasForRetry() {
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(10));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+            .thenThrow(new RuntimeException("db down"))
+            .thenReturn(new int[] {1});
+
+        stockLedger.reserve(Map.of(1L, 3));
+        stockLedger.flush();
+        stockLedger.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batch.capture());
+        assertEquals(-3, batch.getAllValues().get(1).get(0)[0]);
+        // the failed batch was rolled back as a whole, so re-adding every delta cannot apply a row twice
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void reconcile_LoadsMissingProductsWithoutOverwritingReservations() {
+        ReflectionTestUtils.setField(stockLedger, "enabled", true);
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(10));
+        List<Object[]> levels = new ArrayList<>();
+        levels.add(new Object[] {1L, 10});
+        levels.add(new Object[] {2L, 7});
+        when(productRepository.findAllStockLevels()).thenReturn(levels);
+
+        // reserved inside a transaction that has not completed yet: neither in pending nor in the database
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            stockLedger.reserve(Map.of(1L, 3));
+            stockLedger.reconcile();
+
+            assertEquals(7, stockLedger.getAvailable(1L));
+            assertEquals(7, stockLedger.getAvailable(2L));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void reconcile_Disabled_DoesNotLoadStock() {
+        stockLedger.reconcile();
+
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void reserve_ConcurrentCallers_NeverOversell() throws Exception {
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(1000));
+        stockLedger.getAvailable(1L);
+
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    try {
+                        stockLedger.reserve(Map.of(1L, 1));
+                        succeeded.incrementAndGet();
+                    } catch (BusinessException ignored) {
+                        // sold out
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, succeeded.get());
+        assertEquals(0, stockLedger.getAvailable(1L));
+    }
+}
@@ -1,6 +1,7 @@
 package com.gry.demo.service;
 
 import com.gry.demo.dto.UserDto;
+import com.gry.demo.dto.UserView;
 import com.gry.demo.entity.User;
 import com.gry.demo.exception.BusinessException;
 import com.gry.demo.exception.ResourceNotFoundException;
@@ -114,14 +115,14 @@ class UserServiceTest {
     @Test
     void getAllUsers_Success() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<User> userPage = new PageImpl<>(Arrays.asList(testUser));
-        when(userRepository.findAll(pageable)).thenReturn(userPage);
+        Page<UserView> userPage = new PageImpl<>(Arrays.asList(UserView.of(testUser)));
+        when(userRepository.findAllViews(pageable)).thenReturn(userPage);
 
-        Page<User> result = userService.getAllUsers(pageable);
+        Page<UserView> result = userService.getAllUsers(pageable);
 
         assertNotNull(result);
         assertEquals(1, result.getContent().size());
-        assertEquals(testUser.getUsername(), result.getContent().get(0).getUsername());
+        assertEquals(testUser.getUsername(), result.getContent().get(0).username());
     }
 
     @Test
@@ -150,10 +151,10 @@ class UserServiceTest {
     @Test
     void searchUsers_Success() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<User> userPage = new PageImpl<>(Arrays.asList(testUser));
+        Page<UserView> userPage = new PageImpl<>(Arrays.asList(UserView.of(testUser)));
         when(userRepository.findUsersWithFilters("test", "test@", pageable)).thenReturn(userPage);
 
-        Page<User> result = userService.searchUsers("test", "test@", pageable);
+        Page<UserView> result = userService.searchUsers("test", "test@", pageable);
 
         assertNotNull(result);
         assertEquals(1, result.getContent().size());